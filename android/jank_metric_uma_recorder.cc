@@ -4,11 +4,15 @@
 
 #include "base/android/jank_metric_uma_recorder.h"
 
+#include <algorithm>
 #include <cstdint>
+#include <vector>
 
 #include "base/android/jni_android.h"
 #include "base/android/jni_array.h"
 #include "base/base_jni/JankMetricUMARecorder_jni.h"
+#include "base/check_op.h"
+#include "base/metrics/histogram.h"
 #include "base/metrics/histogram_functions.h"
 #include "base/time/time.h"
 #include "base/trace_event/base_tracing.h"
@@ -22,6 +26,7 @@ void RecordJankMetricReportingIntervalTraceEvent(
     int64_t reporting_interval_duration,
     uint64_t janky_frame_count,
     uint64_t non_janky_frame_count,
+    uint64_t max_consecutive_janky_frame_count,
     int scenario) {
   if (reporting_interval_start_time <= 0) {
     return;
@@ -35,7 +40,8 @@ void RecordJankMetricReportingIntervalTraceEvent(
       "JankMetricsReportingInterval", t,
       base::TimeTicks::FromUptimeMillis(reporting_interval_start_time),
       "janky_frames", janky_frame_count, "non_janky_frames",
-      non_janky_frame_count, "scenario", scenario);
+      non_janky_frame_count, "max_consecutive_janky_frames",
+      max_consecutive_janky_frame_count, "scenario", scenario);
   TRACE_EVENT_END(
       "android_webview.timeline,android.ui.jank", t,
       base::TimeTicks::FromUptimeMillis(
@@ -145,6 +151,8 @@ void RecordJankMetrics(
   }
 
   uint64_t janky_frame_count = 0;
+  uint64_t consecutive_janky_frame_count = 0;
+  uint64_t max_consecutive_janky_frame_count = 0;
 
   for (bool is_janky : jank_status) {
     base::UmaHistogramEnumeration(
@@ -152,12 +160,92 @@ void RecordJankMetrics(
         is_janky ? FrameJankStatus::kJanky : FrameJankStatus::kNonJanky);
     if (is_janky) {
       ++janky_frame_count;
+      ++consecutive_janky_frame_count;
+      max_consecutive_janky_frame_count = std::max(
+          max_consecutive_janky_frame_count, consecutive_janky_frame_count);
+    } else {
+      consecutive_janky_frame_count = 0;
     }
   }
 
   RecordJankMetricReportingIntervalTraceEvent(
       java_reporting_interval_start_time, java_reporting_interval_duration,
       janky_frame_count, jank_status.size() - janky_frame_count,
+      max_consecutive_janky_frame_count, java_scenario_enum);
+}
+
+// This function is called from Java with JNI. The actual implementation is in
+// RecordJankMetricsSummary for simpler testing.
+void JNI_JankMetricUMARecorder_RecordJankMetricsSummary(
+    JNIEnv* env,
+    const base::android::JavaParamRef<jintArray>& java_duration_samples_ms,
+    const base::android::JavaParamRef<jintArray>& java_duration_counts,
+    jint java_janky_frame_count,
+    jint java_non_janky_frame_count,
+    jint java_max_consecutive_janky_frame_count,
+    jlong java_reporting_interval_start_time,
+    jlong java_reporting_interval_duration,
+    jint java_scenario_enum) {
+  RecordJankMetricsSummary(
+      env, java_duration_samples_ms, java_duration_counts,
+      java_janky_frame_count, java_non_janky_frame_count,
+      java_max_consecutive_janky_frame_count,
+      java_reporting_interval_start_time, java_reporting_interval_duration,
+      java_scenario_enum);
+}
+
+void RecordJankMetricsSummary(
+    JNIEnv* env,
+    const base::android::JavaParamRef<jintArray>& java_duration_samples_ms,
+    const base::android::JavaParamRef<jintArray>& java_duration_counts,
+    jint java_janky_frame_count,
+    jint java_non_janky_frame_count,
+    jint java_max_consecutive_janky_frame_count,
+    jlong java_reporting_interval_start_time,
+    jlong java_reporting_interval_duration,
+    jint java_scenario_enum) {
+  std::vector<int> duration_samples_ms;
+  JavaIntArrayToIntVector(env, java_duration_samples_ms, &duration_samples_ms);
+
+  std::vector<int> duration_counts;
+  JavaIntArrayToIntVector(env, java_duration_counts, &duration_counts);
+  CHECK_EQ(duration_samples_ms.size(), duration_counts.size());
+
+  JankScenario scenario = static_cast<JankScenario>(java_scenario_enum);
+
+  // Same histograms as the ones recorded by UmaHistogramTimes and
+  // UmaHistogramEnumeration in RecordJankMetrics, so that both paths record
+  // to compatible histograms.
+  HistogramBase* frame_duration_histogram = Histogram::FactoryTimeGet(
+      GetAndroidFrameTimelineDurationHistogramName(scenario), Milliseconds(1),
+      Seconds(10), 50, HistogramBase::kUmaTargetedHistogramFlag);
+  for (size_t i = 0; i < duration_samples_ms.size(); ++i) {
+    frame_duration_histogram->AddCount(duration_samples_ms[i],
+                                       duration_counts[i]);
+  }
+
+  constexpr int kJankStatusExclusiveMax =
+      static_cast<int>(FrameJankStatus::kMaxValue) + 1;
+  HistogramBase* janky_frames_per_scenario_histogram =
+      LinearHistogram::FactoryGet(
+          GetAndroidFrameTimelineJankHistogramName(scenario), 1,
+          kJankStatusExclusiveMax, kJankStatusExclusiveMax + 1,
+          HistogramBase::kUmaTargetedHistogramFlag);
+  if (java_janky_frame_count > 0) {
+    janky_frames_per_scenario_histogram->AddCount(
+        static_cast<int>(FrameJankStatus::kJanky), java_janky_frame_count);
+  }
+  if (java_non_janky_frame_count > 0) {
+    janky_frames_per_scenario_histogram->AddCount(
+        static_cast<int>(FrameJankStatus::kNonJanky),
+        java_non_janky_frame_count);
+  }
+
+  RecordJankMetricReportingIntervalTraceEvent(
+      java_reporting_interval_start_time, java_reporting_interval_duration,
+      static_cast<uint64_t>(java_janky_frame_count),
+      static_cast<uint64_t>(java_non_janky_frame_count),
+      static_cast<uint64_t>(java_max_consecutive_janky_frame_count),
       java_scenario_enum);
 }
 
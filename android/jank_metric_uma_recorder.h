@@ -51,5 +51,19 @@ BASE_EXPORT void RecordJankMetrics(
     jlong java_reporting_interval_start_time,
     jlong java_reporting_interval_duration,
     jint java_scenario_enum);
+
+// Records the same histograms as RecordJankMetrics from a summary of the
+// frames: the number of frames in each bucket of the duration histogram, given
+// as one sample per bucket, and the number of janky and non janky frames.
+BASE_EXPORT void RecordJankMetricsSummary(
+    JNIEnv* env,
+    const base::android::JavaParamRef<jintArray>& java_duration_samples_ms,
+    const base::android::JavaParamRef<jintArray>& java_duration_counts,
+    jint java_janky_frame_count,
+    jint java_non_janky_frame_count,
+    jint java_max_consecutive_janky_frame_count,
+    jlong java_reporting_interval_start_time,
+    jlong java_reporting_interval_duration,
+    jint java_scenario_enum);
 }  // namespace base::android
 #endif  // BASE_ANDROID_JANK_METRIC_UMA_RECORDER_H_
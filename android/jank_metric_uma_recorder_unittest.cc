@@ -8,6 +8,8 @@
 
 #include <cstddef>
 #include <cstdint>
+#include <string>
+#include <vector>
 
 #include "base/android/jni_android.h"
 #include "base/android/jni_array.h"
@@ -60,6 +62,21 @@ const bool kJankStatus[] = {
 };
 const size_t kJankStatusLen = kDurationsLen;
 
+jintArray GenerateJavaIntArray(JNIEnv* env,
+                               const int int_array[],
+                               const size_t array_length) {
+  ScopedJavaLocalRef<jintArray> java_int_array =
+      ToJavaIntArray(env, int_array, array_length);
+
+  return java_int_array.Release();
+}
+
+// kDurations summarized as one sample (the lower bound of the bucket) per
+// bucket of the duration histograms.
+const int kDurationSamplesMs[] = {1, 2, 10, 20, 29, 57};
+const int kDurationCounts[] = {3, 1, 1, 1, 1, 1};
+const size_t kDurationSamplesLen = std::size(kDurationSamplesMs);
+
 }  // namespace
 
 TEST(JankMetricUMARecorder, TestUMARecording) {
@@ -123,4 +140,60 @@ TEST(JankMetricUMARecorder, TestUMARecording) {
         << kJankyName;
   }
 }
+
+TEST(JankMetricUMARecorder, TestSummaryMatchesPerFrameRecording) {
+  JNIEnv* env = AttachCurrentThread();
+
+  jlongArray java_durations =
+      GenerateJavaLongArray(env, kDurations, kDurationsLen);
+  jbooleanArray java_jank_status =
+      GenerateJavaBooleanArray(env, kJankStatus, kJankStatusLen);
+  jintArray java_duration_samples_ms =
+      GenerateJavaIntArray(env, kDurationSamplesMs, kDurationSamplesLen);
+  jintArray java_duration_counts =
+      GenerateJavaIntArray(env, kDurationCounts, kDurationSamplesLen);
+
+  const JankScenario kScenario = JankScenario::FEED_SCROLLING;
+  const std::string kDurationName =
+      GetAndroidFrameTimelineDurationHistogramName(kScenario);
+  const std::string kJankyName =
+      GetAndroidFrameTimelineJankHistogramName(kScenario);
+
+  std::vector<Bucket> per_frame_durations;
+  std::vector<Bucket> per_frame_jank;
+  {
+    HistogramTester histogram_tester;
+    RecordJankMetrics(
+        env,
+        /* java_durations_ns= */
+        base::android::JavaParamRef<jlongArray>(env, java_durations),
+        /* java_jank_status = */
+        base::android::JavaParamRef<jbooleanArray>(env, java_jank_status),
+        /* java_reporting_interval_start_time = */ 0,
+        /* java_reporting_interval_duration = */ 1000,
+        /* java_scenario_enum = */ static_cast<int>(kScenario));
+    per_frame_durations = histogram_tester.GetAllSamples(kDurationName);
+    per_frame_jank = histogram_tester.GetAllSamples(kJankyName);
+  }
+
+  HistogramTester histogram_tester;
+  RecordJankMetricsSummary(
+      env,
+      /* java_duration_samples_ms= */
+      base::android::JavaParamRef<jintArray>(env, java_duration_samples_ms),
+      /* java_duration_counts= */
+      base::android::JavaParamRef<jintArray>(env, java_duration_counts),
+      /* java_janky_frame_count= */ 2,
+      /* java_non_janky_frame_count= */ 6,
+      /* java_max_consecutive_janky_frame_count= */ 1,
+      /* java_reporting_interval_start_time = */ 0,
+      /* java_reporting_interval_duration = */ 1000,
+      /* java_scenario_enum = */ static_cast<int>(kScenario));
+
+  EXPECT_EQ(histogram_tester.GetAllSamples(kDurationName), per_frame_durations);
+  EXPECT_EQ(histogram_tester.GetAllSamples(kJankyName), per_frame_jank);
+  EXPECT_THAT(histogram_tester.GetAllSamples(kJankyName),
+              ElementsAre(Bucket(FrameJankStatus::kJanky, 2),
+                          Bucket(FrameJankStatus::kNonJanky, 6)));
+}
 }  // namespace base::android
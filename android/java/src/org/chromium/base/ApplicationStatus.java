@@ -28,14 +28,11 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-
-import javax.annotation.concurrent.GuardedBy;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides information about the current activity's status, and a way
@@ -49,54 +46,139 @@ public class ApplicationStatus {
             "androidx.appcompat.app.ToolbarActionBar$ToolbarCallbackWrapper";
 
     private static class ActivityInfo {
-        private int mStatus = ActivityState.DESTROYED;
         private ObserverList<ActivityStateListener> mListeners = new ObserverList<>();
 
         /**
-         * @return The current {@link ActivityState} of the activity.
+         * @return A list of {@link ActivityStateListener}s listening to this activity.
          */
-        @ActivityState
-        public int getStatus() {
-            return mStatus;
+        public ObserverList<ActivityStateListener> getListeners() {
+            return mListeners;
         }
+    }
 
-        /**
-         * @param status The new {@link ActivityState} of the activity.
-         */
-        public void setStatus(@ActivityState int status) {
-            mStatus = status;
+    /**
+     * An immutable view of the tracked activities, their state and the resulting application
+     * state. Each change publishes a new snapshot, so that queries from any thread read the
+     * current one without locking or allocating. There are only a handful of activities, so
+     * copying the arrays on each change is cheap.
+     */
+    private static final class ActivitySnapshot {
+        static final ActivitySnapshot UNINITIALIZED =
+                new ActivitySnapshot(
+                        new Activity[0],
+                        new ActivityInfo[0],
+                        new int[0],
+                        new int[ActivityState.DESTROYED + 1],
+                        ApplicationState.UNKNOWN);
+
+        final Activity[] mActivities;
+        // The listeners of each activity, these are only used on the UI thread.
+        final ActivityInfo[] mInfos;
+        final int[] mStates;
+        // Number of activities in each ActivityState, from which the application state is derived
+        // without looking at each activity.
+        final int[] mStateCounts;
+        final @ApplicationState int mApplicationState;
+        final List<Activity> mActivityList;
+
+        private ActivitySnapshot(
+                Activity[] activities,
+                ActivityInfo[] infos,
+                int[] states,
+                int[] stateCounts,
+                @ApplicationState int applicationState) {
+            mActivities = activities;
+            mInfos = infos;
+            mStates = states;
+            mStateCounts = stateCounts;
+            mApplicationState = applicationState;
+            mActivityList = Collections.unmodifiableList(Arrays.asList(activities));
         }
 
-        /**
-         * @return A list of {@link ActivityStateListener}s listening to this activity.
-         */
-        public ObserverList<ActivityStateListener> getListeners() {
-            return mListeners;
+        private ActivitySnapshot(
+                Activity[] activities,
+                ActivityInfo[] infos,
+                int[] states,
+                int[] stateCounts) {
+            this(activities, infos, states, stateCounts, determineApplicationState(stateCounts));
+        }
+
+        /** Returns the snapshot of an initialized ApplicationStatus without any activity. */
+        static ActivitySnapshot createEmpty() {
+            return new ActivitySnapshot(
+                    new Activity[0],
+                    new ActivityInfo[0],
+                    new int[0],
+                    new int[ActivityState.DESTROYED + 1]);
+        }
+
+        /** Returns the index of {@code activity}, or -1 if it isn't tracked. */
+        int indexOf(Activity activity) {
+            for (int i = 0; i < mActivities.length; i++) {
+                if (mActivities[i] == activity) return i;
+            }
+            return -1;
+        }
+
+        /** Returns a snapshot tracking {@code activity} as created. */
+        ActivitySnapshot withCreatedActivity(Activity activity, ActivityInfo info) {
+            int count = mActivities.length;
+            Activity[] activities = Arrays.copyOf(mActivities, count + 1);
+            ActivityInfo[] infos = Arrays.copyOf(mInfos, count + 1);
+            int[] states = Arrays.copyOf(mStates, count + 1);
+            int[] stateCounts = mStateCounts.clone();
+            activities[count] = activity;
+            infos[count] = info;
+            states[count] = ActivityState.CREATED;
+            stateCounts[ActivityState.CREATED]++;
+            return new ActivitySnapshot(activities, infos, states, stateCounts);
+        }
+
+        /** Returns a snapshot where the activity at {@code index} is in {@code newState}. */
+        ActivitySnapshot withState(int index, @ActivityState int newState) {
+            int[] states = mStates.clone();
+            int[] stateCounts = mStateCounts.clone();
+            stateCounts[states[index]]--;
+            states[index] = newState;
+            stateCounts[newState]++;
+            return new ActivitySnapshot(mActivities, mInfos, states, stateCounts);
+        }
+
+        /** Returns a snapshot without the activity at {@code index}. */
+        ActivitySnapshot withDestroyedActivity(int index) {
+            int count = mActivities.length - 1;
+            Activity[] activities = new Activity[count];
+            ActivityInfo[] infos = new ActivityInfo[count];
+            int[] states = new int[count];
+            int[] stateCounts = mStateCounts.clone();
+            stateCounts[mStates[index]]--;
+            System.arraycopy(mActivities, 0, activities, 0, index);
+            System.arraycopy(mActivities, index + 1, activities, index, count - index);
+            System.arraycopy(mInfos, 0, infos, 0, index);
+            System.arraycopy(mInfos, index + 1, infos, index, count - index);
+            System.arraycopy(mStates, 0, states, 0, index);
+            System.arraycopy(mStates, index + 1, states, index, count - index);
+            return new ActivitySnapshot(activities, infos, states, stateCounts);
         }
     }
 
+    // Serializes the updates of sActivitySnapshot, which is read without locking.
+    private static final Object sActivitySnapshotLock = new Object();
+
     /**
-     * A map of which observers listen to state changes from which {@link Activity}.
+     * The tracked activities and the observers listening to their state changes. Its application
+     * state is UNKNOWN until {@link #initialize(Application)} is called.
      */
-    private static final Map<Activity, ActivityInfo> sActivityInfo =
-            Collections.synchronizedMap(new HashMap<Activity, ActivityInfo>());
+    private static volatile ActivitySnapshot sActivitySnapshot = ActivitySnapshot.UNINITIALIZED;
 
     /**
      * A map to cache TaskId for each {@link Activity}.
      */
-    public static final Map<Activity, Integer> sActivityTaskId =
-            Collections.synchronizedMap(new HashMap<Activity, Integer>());
+    public static final Map<Activity, Integer> sActivityTaskId = new ConcurrentHashMap<>();
 
     // Shared preferences key for TaskId caching of an activity.
     private static final String CACHE_ACTIVITY_TASKID_KEY = "cache_activity_taskid_enabled";
 
-    @SuppressLint("SupportAnnotationUsage")
-    @ApplicationState
-    @GuardedBy("sActivityInfo")
-    // The getStateForApplication() historically returned ApplicationState.HAS_DESTROYED_ACTIVITIES
-    // when no activity has been observed.
-    private static int sCurrentApplicationState = ApplicationState.UNKNOWN;
-
     /**
      * Last activity that was shown (or null if none or it was destroyed).
      */
@@ -244,12 +326,12 @@ public class ApplicationStatus {
     public static int getTaskId(Activity activity) {
         if (!isCachingEnabled()) return activity.getTaskId();
 
-        if (!sActivityTaskId.containsKey(activity)) {
-            synchronized (sActivityTaskId) {
-                sActivityTaskId.put(activity, activity.getTaskId());
-            }
+        Integer taskId = sActivityTaskId.get(activity);
+        if (taskId == null) {
+            taskId = activity.getTaskId();
+            sActivityTaskId.put(activity, taskId);
         }
-        return sActivityTaskId.get(activity);
+        return taskId;
     }
 
     /**
@@ -295,19 +377,21 @@ public class ApplicationStatus {
 
         public void onWindowFocusChanged(boolean hasFocus) {
             mCallback.onWindowFocusChanged(hasFocus);
+            notifyWindowFocusChanged(mActivity, hasFocus);
+        }
+    }
 
-            if (sWindowFocusListeners != null) {
-                for (WindowFocusChangedListener listener : sWindowFocusListeners) {
-                    listener.onWindowFocusChanged(mActivity, hasFocus);
-                }
+    /** Notifies the listeners of a window focus change, once the Window.Callback was called. */
+    static void notifyWindowFocusChanged(Activity activity, boolean hasFocus) {
+        if (sWindowFocusListeners != null) {
+            for (WindowFocusChangedListener listener : sWindowFocusListeners) {
+                listener.onWindowFocusChanged(activity, hasFocus);
             }
         }
     }
 
     public static boolean isInitialized() {
-        synchronized (sActivityInfo) {
-            return sCurrentApplicationState != ApplicationState.UNKNOWN;
-        }
+        return sActivitySnapshot.mApplicationState != ApplicationState.UNKNOWN;
     }
 
     /**
@@ -318,8 +402,10 @@ public class ApplicationStatus {
     @MainThread
     public static void initialize(Application application) {
         assert !isInitialized();
-        synchronized (sActivityInfo) {
-            sCurrentApplicationState = ApplicationState.HAS_DESTROYED_ACTIVITIES;
+        synchronized (sActivitySnapshotLock) {
+            // getStateForApplication() historically returned HAS_DESTROYED_ACTIVITIES when no
+            // activity has been observed.
+            sActivitySnapshot = ActivitySnapshot.createEmpty();
         }
 
         registerWindowFocusChangedListener(new WindowFocusChangedListener() {
@@ -388,8 +474,22 @@ public class ApplicationStatus {
         });
     }
 
+    /**
+     * Wraps the Window.Callback of an activity to intercept its window focus changes. Calls are
+     * forwarded without reflection, unless Window.Callback has methods unknown to {@link
+     * WindowCallbackForwarder} on this device.
+     */
     @VisibleForTesting
     static Window.Callback createWindowCallbackProxy(Activity activity, Window.Callback callback) {
+        if (WindowCallbackForwarder.forwardsAllMethods()) {
+            return new WindowCallbackForwarder(activity, callback);
+        }
+        return createReflectiveWindowCallbackProxy(activity, callback);
+    }
+
+    @VisibleForTesting
+    static Window.Callback createReflectiveWindowCallbackProxy(
+            Activity activity, Window.Callback callback) {
         return (Window.Callback) Proxy.newProxyInstance(Window.Callback.class.getClassLoader(),
                 new Class[] {Window.Callback.class},
                 new ApplicationStatus.WindowCallbackProxy(activity, callback));
@@ -411,6 +511,7 @@ public class ApplicationStatus {
             // AndroidX is fixed and updated.
             return true;
         }
+        if (callback instanceof WindowCallbackForwarder) return true;
         if (Proxy.isProxyClass(callback.getClass())) {
             return Proxy.getInvocationHandler(callback)
                            instanceof ApplicationStatus.WindowCallbackProxy;
@@ -457,23 +558,25 @@ public class ApplicationStatus {
         boolean oldTaskVisibility = isTaskVisible(getTaskId(activity));
         ActivityInfo info;
 
-        synchronized (sActivityInfo) {
+        synchronized (sActivitySnapshotLock) {
+            ActivitySnapshot snapshot = sActivitySnapshot;
+            int index = snapshot.indexOf(activity);
             if (newState == ActivityState.CREATED) {
-                assert !sActivityInfo.containsKey(activity);
-                sActivityInfo.put(activity, new ActivityInfo());
-            }
-
-            info = sActivityInfo.get(activity);
-            info.setStatus(newState);
-
-            // Remove before calling listeners so that isEveryActivityDestroyed() returns false when
-            // this was the last activity.
-            if (newState == ActivityState.DESTROYED) {
-                sActivityInfo.remove(activity);
-                if (activity == sActivity) sActivity = null;
+                assert index == -1;
+                info = new ActivityInfo();
+                sActivitySnapshot = snapshot.withCreatedActivity(activity, info);
+            } else {
+                assert index != -1 : "Activity state changed before it was created";
+                info = snapshot.mInfos[index];
+                // Remove before calling listeners so that isEveryActivityDestroyed() returns true
+                // when this was the last activity.
+                if (newState == ActivityState.DESTROYED) {
+                    sActivitySnapshot = snapshot.withDestroyedActivity(index);
+                    if (activity == sActivity) sActivity = null;
+                } else {
+                    sActivitySnapshot = snapshot.withState(index, newState);
+                }
             }
-
-            sCurrentApplicationState = determineApplicationStateLocked();
         }
 
         // Notify all state observers that are specifically listening to this activity.
@@ -502,10 +605,8 @@ public class ApplicationStatus {
                 listener.onApplicationStateChange(applicationState);
             }
         }
-        synchronized (sActivityTaskId) {
-            if (newState == ActivityState.DESTROYED) {
-                sActivityTaskId.remove(activity);
-            }
+        if (newState == ActivityState.DESTROYED) {
+            sActivityTaskId.remove(activity);
         }
     }
 
@@ -528,14 +629,13 @@ public class ApplicationStatus {
     }
 
     /**
-     * @return A {@link List} of all non-destroyed {@link Activity}s.
+     * @return An immutable {@link List} of all non-destroyed {@link Activity}s. It is a snapshot,
+     *     which isn't updated by later state changes.
      */
     @AnyThread
     public static List<Activity> getRunningActivities() {
         assert isInitialized();
-        synchronized (sActivityInfo) {
-            return new ArrayList<>(sActivityInfo.keySet());
-        }
+        return sActivitySnapshot.mActivityList;
     }
 
     /**
@@ -586,8 +686,9 @@ public class ApplicationStatus {
     public static int getStateForActivity(@Nullable Activity activity) {
         assert isInitialized();
         if (activity == null) return ActivityState.DESTROYED;
-        ActivityInfo info = sActivityInfo.get(activity);
-        return info != null ? info.getStatus() : ActivityState.DESTROYED;
+        ActivitySnapshot snapshot = sActivitySnapshot;
+        int index = snapshot.indexOf(activity);
+        return index != -1 ? snapshot.mStates[index] : ActivityState.DESTROYED;
     }
 
     /**
@@ -597,9 +698,7 @@ public class ApplicationStatus {
     @ApplicationState
     @CalledByNative
     public static int getStateForApplication() {
-        synchronized (sActivityInfo) {
-            return sCurrentApplicationState;
-        }
+        return sActivitySnapshot.mApplicationState;
     }
 
     /**
@@ -626,7 +725,7 @@ public class ApplicationStatus {
     @AnyThread
     public static boolean isEveryActivityDestroyed() {
         assert isInitialized();
-        return sActivityInfo.isEmpty();
+        return sActivitySnapshot.mActivities.length == 0;
     }
 
     /**
@@ -639,13 +738,12 @@ public class ApplicationStatus {
     @AnyThread
     public static boolean isTaskVisible(int taskId) {
         assert isInitialized();
-        for (Map.Entry<Activity, ActivityInfo> entry : sActivityInfo.entrySet()) {
-            if (getTaskId(entry.getKey()) == taskId) {
-                @ActivityState
-                int state = entry.getValue().getStatus();
-                if (state == ActivityState.RESUMED || state == ActivityState.PAUSED) {
-                    return true;
-                }
+        ActivitySnapshot snapshot = sActivitySnapshot;
+        for (int i = 0; i < snapshot.mActivities.length; i++) {
+            @ActivityState int state = snapshot.mStates[i];
+            if ((state == ActivityState.RESUMED || state == ActivityState.PAUSED)
+                    && getTaskId(snapshot.mActivities[i]) == taskId) {
+                return true;
             }
         }
         return false;
@@ -681,11 +779,11 @@ public class ApplicationStatus {
         assert isInitialized();
         assert activity != null;
 
-        ActivityInfo info = sActivityInfo.get(activity);
-        assert info != null
+        ActivitySnapshot snapshot = sActivitySnapshot;
+        int index = snapshot.indexOf(activity);
+        assert index != -1
                 : "destroyed: " + activity.isDestroyed() + " finishing: " + activity.isFinishing();
-        assert info.getStatus() != ActivityState.DESTROYED;
-        info.getListeners().addObserver(listener);
+        snapshot.mInfos[index].getListeners().addObserver(listener);
     }
 
     /**
@@ -700,10 +798,8 @@ public class ApplicationStatus {
         }
 
         // Loop through all observer lists for all activities and remove the listener.
-        synchronized (sActivityInfo) {
-            for (ActivityInfo info : sActivityInfo.values()) {
-                info.getListeners().removeObserver(listener);
-            }
+        for (ActivityInfo info : sActivitySnapshot.mInfos) {
+            info.getListeners().removeObserver(listener);
         }
     }
 
@@ -738,13 +834,12 @@ public class ApplicationStatus {
      */
     @MainThread
     public static void destroyForJUnitTests() {
-        synchronized (sActivityInfo) {
+        synchronized (sActivitySnapshotLock) {
             if (sApplicationStateListeners != null) sApplicationStateListeners.clear();
             if (sGeneralActivityStateListeners != null) sGeneralActivityStateListeners.clear();
             if (sTaskVisibilityListeners != null) sTaskVisibilityListeners.clear();
-            sActivityInfo.clear();
             if (sWindowFocusListeners != null) sWindowFocusListeners.clear();
-            sCurrentApplicationState = ApplicationState.UNKNOWN;
+            sActivitySnapshot = ActivitySnapshot.UNINITIALIZED;
             sActivity = null;
             sNativeApplicationStateListener = null;
         }
@@ -757,14 +852,12 @@ public class ApplicationStatus {
     public static void resetActivitiesForInstrumentationTests() {
         assert ThreadUtils.runningOnUiThread();
 
-        synchronized (sActivityInfo) {
-            // Copy the set to avoid concurrent modifications to the underlying set.
-            for (Activity activity : new HashSet<>(sActivityInfo.keySet())) {
-                assert activity.getApplication()
-                        == null : "Real activities that are launched should be closed by test code "
-                                  + "and not rely on this cleanup of mocks.";
-                onStateChangeForTesting(activity, ActivityState.DESTROYED);
-            }
+        // The snapshot isn't modified by destroying its activities.
+        for (Activity activity : sActivitySnapshot.mActivities) {
+            assert activity.getApplication()
+                    == null : "Real activities that are launched should be closed by test code "
+                              + "and not rely on this cleanup of mocks.";
+            onStateChangeForTesting(activity, ActivityState.DESTROYED);
         }
     }
 
@@ -793,9 +886,8 @@ public class ApplicationStatus {
     }
 
     /**
-     * Determines the current application state as defined by {@link ApplicationState}.  This will
-     * loop over all the activities and check their state to determine what the general application
-     * state should be.
+     * Determines the current application state as defined by {@link ApplicationState}, from the
+     * number of activities in each state.
      *
      * @return HAS_RUNNING_ACTIVITIES if any activity is not paused, stopped, or destroyed.
      * HAS_PAUSED_ACTIVITIES if none are running and one is paused.
@@ -803,25 +895,14 @@ public class ApplicationStatus {
      * HAS_DESTROYED_ACTIVITIES if none are running/paused/stopped.
      */
     @ApplicationState
-    @GuardedBy("sActivityInfo")
-    private static int determineApplicationStateLocked() {
-        boolean hasPausedActivity = false;
-        boolean hasStoppedActivity = false;
-
-        for (ActivityInfo info : sActivityInfo.values()) {
-            int state = info.getStatus();
-            if (state != ActivityState.PAUSED && state != ActivityState.STOPPED
-                    && state != ActivityState.DESTROYED) {
-                return ApplicationState.HAS_RUNNING_ACTIVITIES;
-            } else if (state == ActivityState.PAUSED) {
-                hasPausedActivity = true;
-            } else if (state == ActivityState.STOPPED) {
-                hasStoppedActivity = true;
-            }
+    private static int determineApplicationState(int[] stateCounts) {
+        if (stateCounts[ActivityState.CREATED] > 0
+                || stateCounts[ActivityState.STARTED] > 0
+                || stateCounts[ActivityState.RESUMED] > 0) {
+            return ApplicationState.HAS_RUNNING_ACTIVITIES;
         }
-
-        if (hasPausedActivity) return ApplicationState.HAS_PAUSED_ACTIVITIES;
-        if (hasStoppedActivity) return ApplicationState.HAS_STOPPED_ACTIVITIES;
+        if (stateCounts[ActivityState.PAUSED] > 0) return ApplicationState.HAS_PAUSED_ACTIVITIES;
+        if (stateCounts[ActivityState.STOPPED] > 0) return ApplicationState.HAS_STOPPED_ACTIVITIES;
         return ApplicationState.HAS_DESTROYED_ACTIVITIES;
     }
 
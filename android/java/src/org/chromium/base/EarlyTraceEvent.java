@@ -16,7 +16,9 @@ import org.jni_zero.NativeMethods;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -29,16 +31,23 @@ import javax.annotation.concurrent.GuardedBy;
  * Events recorded here are buffered in Java until the native library is available, at which point
  * they are flushed to the native side and regular java tracing (TraceEvent) takes over.
  *
+ * Each thread buffers its events in a fixed-size buffer of primitive arrays, with event names
+ * replaced by ids from a shared name table. When tracing is disabled, the buffers of all threads
+ * are merged by timestamp and dumped once. Events dropped because a buffer was full are reported
+ * in logcat.
+ *
  * Locking: This class is threadsafe. It is enabled when general tracing is, and then disabled when
  *          tracing is enabled from the native side. At this point, buffered events are flushed to
  *          the native side and then early tracing is permanently disabled after dumping the events.
+ *          Recording an event does not take a lock, except for the first event of a thread and the
+ *          first use of an event name.
  *
  * Like the TraceEvent, the event name of the trace events must be a string literal or a |static
  * final String| class member. Otherwise NoDynamicStringsInTraceEventCheck error will be thrown.
  */
 @JNINamespace("base::android")
 public class EarlyTraceEvent {
-    /** Single trace event. */
+    /** Single trace event, decoded from a {@link ThreadBuffer} for tests. */
     @VisibleForTesting
     static final class Event {
         final boolean mIsStart;
@@ -48,16 +57,23 @@ public class EarlyTraceEvent {
         final long mTimeNanos;
         final long mThreadTimeMillis;
 
-        Event(String name, boolean isStart, boolean isToplevel) {
+        Event(
+                String name,
+                boolean isStart,
+                boolean isToplevel,
+                int threadId,
+                long timeNanos,
+                long threadTimeMillis) {
             mIsStart = isStart;
             mIsToplevel = isToplevel;
             mName = name;
-            mThreadId = Process.myTid();
-            mTimeNanos = System.nanoTime(); // Same timebase as TimeTicks::Now().
-            mThreadTimeMillis = SystemClock.currentThreadTimeMillis();
+            mThreadId = threadId;
+            mTimeNanos = timeNanos;
+            mThreadTimeMillis = threadTimeMillis;
         }
     }
 
+    /** Single async trace event, decoded from a {@link ThreadBuffer} for tests. */
     @VisibleForTesting
     static final class AsyncEvent {
         final boolean mIsStart;
@@ -65,12 +81,126 @@ public class EarlyTraceEvent {
         final long mId;
         final long mTimeNanos;
 
-        AsyncEvent(String name, long id, boolean isStart) {
+        AsyncEvent(String name, long id, boolean isStart, long timeNanos) {
             mName = name;
             mId = id;
             mIsStart = isStart;
-            mTimeNanos = System.nanoTime(); // Same timebase as TimeTicks::Now().
+            mTimeNanos = timeNanos;
+        }
+    }
+
+    /**
+     * Fixed-size buffer of the events recorded by a single thread, stored in primitive arrays.
+     * Only the owning thread appends, so appending takes no lock. Once full, new events are dropped
+     * and counted, so that the start of startup is kept and every end event has its begin event.
+     */
+    @VisibleForTesting
+    static final class ThreadBuffer {
+        static final byte FLAG_START = 1;
+        static final byte FLAG_TOPLEVEL = 1 << 1;
+        static final byte FLAG_ASYNC = 1 << 2;
+
+        final int mThreadId;
+        private final int mMaxCapacity;
+
+        /**
+         * Storage of the events. Replaced by a larger copy when full, written only by the owning
+         * thread. Readers read {@link #mAppendedCount} first, the volatile read makes the storage
+         * holding the events it counts visible, and the final fields make the events copied into
+         * a newer storage visible too.
+         */
+        private Events mEvents;
+
+        /**
+         * Number of events appended so far, including dropped ones. Written only by the owning
+         * thread, the volatile write publishes the event stored before it.
+         */
+        private volatile int mAppendedCount;
+
+        ThreadBuffer(int threadId, int initialCapacity, int maxCapacity) {
+            assert initialCapacity > 0 && initialCapacity <= maxCapacity;
+            mThreadId = threadId;
+            mMaxCapacity = maxCapacity;
+            mEvents = new Events(initialCapacity);
+        }
+
+        void append(int nameId, byte flags, long timeNanos, long threadTimeMillisOrId) {
+            int count = mAppendedCount;
+            Events events = mEvents;
+            if (count == events.mNameIds.length && count < mMaxCapacity) {
+                events = new Events(events, Math.min(count * 2, mMaxCapacity));
+                mEvents = events;
+            }
+            if (count < events.mNameIds.length) {
+                events.mNameIds[count] = nameId;
+                events.mFlags[count] = flags;
+                events.mTimeNanos[count] = timeNanos;
+                events.mThreadTimeMillisOrIds[count] = threadTimeMillisOrId;
+            }
+            mAppendedCount = count + 1;
+        }
+
+        /**
+         * Returns the number of stored events. Stored events are never overwritten, so they can be
+         * read while a thread that checked {@link #enabled()} just before tracing was disabled is
+         * still appending.
+         */
+        int getEventCount() {
+            return Math.min(mAppendedCount, mMaxCapacity);
+        }
+
+        /** Returns the number of events dropped because the buffer was full. */
+        int getDroppedCount() {
+            return Math.max(mAppendedCount - mMaxCapacity, 0);
+        }
+
+        @VisibleForTesting
+        int getCapacity() {
+            return mEvents.mNameIds.length;
+        }
+
+        int getNameId(int position) {
+            return mEvents.mNameIds[position];
+        }
+
+        byte getFlags(int position) {
+            return mEvents.mFlags[position];
+        }
+
+        long getTimeNanos(int position) {
+            return mEvents.mTimeNanos[position];
         }
+
+        long getThreadTimeMillisOrId(int position) {
+            return mEvents.mThreadTimeMillisOrIds[position];
+        }
+
+        private static final class Events {
+            final int[] mNameIds;
+            final byte[] mFlags;
+            final long[] mTimeNanos;
+            // Thread time in milliseconds for regular events, event id for async events.
+            final long[] mThreadTimeMillisOrIds;
+
+            Events(int capacity) {
+                mNameIds = new int[capacity];
+                mFlags = new byte[capacity];
+                mTimeNanos = new long[capacity];
+                mThreadTimeMillisOrIds = new long[capacity];
+            }
+
+            Events(Events events, int capacity) {
+                mNameIds = Arrays.copyOf(events.mNameIds, capacity);
+                mFlags = Arrays.copyOf(events.mFlags, capacity);
+                mTimeNanos = Arrays.copyOf(events.mTimeNanos, capacity);
+                mThreadTimeMillisOrIds = Arrays.copyOf(events.mThreadTimeMillisOrIds, capacity);
+            }
+        }
+    }
+
+    /** Receives events merged from all thread buffers, in timestamp order. */
+    private interface EventVisitor {
+        void visit(ThreadBuffer buffer, int position);
     }
 
     // State transitions are:
@@ -107,17 +237,34 @@ public class EarlyTraceEvent {
     // ChildProcessLauncherHelperImpl.
     public static final String TRACE_EARLY_JAVA_IN_CHILD_SWITCH = "trace-early-java-in-child";
 
-    // Protects the fields below.
+    private static final String TAG = "EarlyTraceEvent";
+
+    // Number of events a thread buffer can hold when created. It doubles when full, until it
+    // reaches THREAD_BUFFER_CAPACITY.
+    @VisibleForTesting static final int INITIAL_THREAD_BUFFER_CAPACITY = 256;
+
+    // Number of events each thread can buffer before new ones are dropped.
+    @VisibleForTesting static final int THREAD_BUFFER_CAPACITY = 1 << 13;
+
+    // Protects the fields below. Recording an event only takes the lock the first time a thread
+    // records an event, or the first time an event name is used.
     @VisibleForTesting
     static final Object sLock = new Object();
 
     // Not final because in many configurations these objects are not used.
     @GuardedBy("sLock")
     @VisibleForTesting
-    static List<Event> sEvents;
+    static List<ThreadBuffer> sThreadBuffers;
+
+    // Event names, indexed by the ids stored in thread buffers.
     @GuardedBy("sLock")
-    @VisibleForTesting
-    static List<AsyncEvent> sAsyncEvents;
+    private static List<String> sNames;
+
+    // Replaced on each enable() so that buffers of a previous session are never reused.
+    private static volatile ThreadLocal<ThreadBuffer> sCurrentThreadBuffer;
+
+    // Maps event names to their ids. Readable without the lock, written with it held.
+    private static volatile ConcurrentHashMap<String, Integer> sNameIds;
 
     /** @see TraceEvent#maybeEnableEarlyTracing(boolean) */
     static void maybeEnableInBrowserProcess() {
@@ -189,8 +336,10 @@ public class EarlyTraceEvent {
     static void enable() {
         synchronized (sLock) {
             if (sState != STATE_DISABLED) return;
-            sEvents = new ArrayList<Event>();
-            sAsyncEvents = new ArrayList<AsyncEvent>();
+            sThreadBuffers = new ArrayList<ThreadBuffer>();
+            sNames = new ArrayList<String>();
+            sCurrentThreadBuffer = new ThreadLocal<ThreadBuffer>();
+            sNameIds = new ConcurrentHashMap<String, Integer>();
             sState = STATE_ENABLED;
         }
     }
@@ -204,18 +353,11 @@ public class EarlyTraceEvent {
         synchronized (sLock) {
             if (!enabled()) return;
 
-            if (!sEvents.isEmpty()) {
-                dumpEvents(sEvents);
-                sEvents.clear();
-            }
-            if (!sAsyncEvents.isEmpty()) {
-                dumpAsyncEvents(sAsyncEvents);
-                sAsyncEvents.clear();
-            }
-
+            // Stop recording before reading the buffers, so that their contents no longer change
+            // apart from events that are being appended right now.
             sState = STATE_FINISHED;
-            sEvents = null;
-            sAsyncEvents = null;
+            dumpEvents(sThreadBuffers, sNames);
+            clearBuffers();
         }
     }
 
@@ -226,11 +368,18 @@ public class EarlyTraceEvent {
     static void reset() {
         synchronized (sLock) {
             sState = STATE_DISABLED;
-            sEvents = null;
-            sAsyncEvents = null;
+            clearBuffers();
         }
     }
 
+    @GuardedBy("sLock")
+    private static void clearBuffers() {
+        sThreadBuffers = null;
+        sNames = null;
+        sCurrentThreadBuffer = null;
+        sNameIds = null;
+    }
+
     static boolean enabled() {
         return sState == STATE_ENABLED;
     }
@@ -262,88 +411,216 @@ public class EarlyTraceEvent {
 
     /** @see TraceEvent#begin */
     public static void begin(String name, boolean isToplevel) {
-        // begin() and end() are going to be called once per TraceEvent, this avoids entering a
-        // synchronized block at each and every call.
+        // begin() and end() are going to be called once per TraceEvent, this avoids looking up
+        // the thread buffer at each and every call.
         if (!enabled()) return;
-        Event event = new Event(name, true /*isStart*/, isToplevel);
-        synchronized (sLock) {
-            if (!enabled()) return;
-            sEvents.add(event);
-        }
+        byte flags = ThreadBuffer.FLAG_START;
+        if (isToplevel) flags |= ThreadBuffer.FLAG_TOPLEVEL;
+        addEvent(name, flags, SystemClock.currentThreadTimeMillis());
     }
 
     /** @see TraceEvent#end */
     public static void end(String name, boolean isToplevel) {
         if (!enabled()) return;
-        Event event = new Event(name, false /*isStart*/, isToplevel);
-        synchronized (sLock) {
-            if (!enabled()) return;
-            sEvents.add(event);
-        }
+        addEvent(
+                name,
+                isToplevel ? ThreadBuffer.FLAG_TOPLEVEL : 0,
+                SystemClock.currentThreadTimeMillis());
     }
 
     /** @see TraceEvent#startAsync */
     public static void startAsync(String name, long id) {
         if (!enabled()) return;
-        AsyncEvent event = new AsyncEvent(name, id, true /*isStart*/);
-        synchronized (sLock) {
-            if (!enabled()) return;
-            sAsyncEvents.add(event);
-        }
+        addEvent(name, (byte) (ThreadBuffer.FLAG_ASYNC | ThreadBuffer.FLAG_START), id);
     }
 
     /** @see TraceEvent#finishAsync */
     public static void finishAsync(String name, long id) {
         if (!enabled()) return;
-        AsyncEvent event = new AsyncEvent(name, id, false /*isStart*/);
+        addEvent(name, ThreadBuffer.FLAG_ASYNC, id);
+    }
+
+    private static void addEvent(String name, byte flags, long threadTimeMillisOrId) {
+        ThreadBuffer buffer = getCurrentThreadBuffer();
+        if (buffer == null) return;
+        int nameId = getNameId(name);
+        if (nameId < 0) return;
+        // Same timebase as TimeTicks::Now().
+        buffer.append(nameId, flags, System.nanoTime(), threadTimeMillisOrId);
+    }
+
+    /** Returns the buffer of the current thread, or null if tracing is no longer enabled. */
+    private static ThreadBuffer getCurrentThreadBuffer() {
+        ThreadLocal<ThreadBuffer> currentThreadBuffer = sCurrentThreadBuffer;
+        if (currentThreadBuffer == null) return null;
+        ThreadBuffer buffer = currentThreadBuffer.get();
+        if (buffer != null) return buffer;
         synchronized (sLock) {
-            if (!enabled()) return;
-            sAsyncEvents.add(event);
+            if (!enabled() || currentThreadBuffer != sCurrentThreadBuffer) return null;
+            buffer =
+                    new ThreadBuffer(
+                            Process.myTid(),
+                            INITIAL_THREAD_BUFFER_CAPACITY,
+                            THREAD_BUFFER_CAPACITY);
+            sThreadBuffers.add(buffer);
+        }
+        currentThreadBuffer.set(buffer);
+        return buffer;
+    }
+
+    /** Returns the id of an event name, or -1 if tracing is no longer enabled. */
+    private static int getNameId(String name) {
+        ConcurrentHashMap<String, Integer> nameIds = sNameIds;
+        if (nameIds == null) return -1;
+        Integer id = nameIds.get(name);
+        if (id != null) return id;
+        synchronized (sLock) {
+            if (nameIds != sNameIds) return -1;
+            id = nameIds.get(name);
+            if (id == null) {
+                id = sNames.size();
+                sNames.add(name);
+                nameIds.put(name, id);
+            }
+            return id;
         }
     }
 
     static List<Event> getMatchingCompletedEventsForTesting(String eventName) {
         synchronized (sLock) {
             List<Event> matchingEvents = new ArrayList<Event>();
-            for (Event evt : EarlyTraceEvent.sEvents) {
-                if (evt.mName.equals(eventName)) {
-                    matchingEvents.add(evt);
-                }
-            }
+            visitEventsInOrder(
+                    sThreadBuffers,
+                    (buffer, position) -> {
+                        byte flags = buffer.getFlags(position);
+                        String name = sNames.get(buffer.getNameId(position));
+                        if ((flags & ThreadBuffer.FLAG_ASYNC) != 0 || !name.equals(eventName)) {
+                            return;
+                        }
+                        matchingEvents.add(
+                                new Event(
+                                        name,
+                                        (flags & ThreadBuffer.FLAG_START) != 0,
+                                        (flags & ThreadBuffer.FLAG_TOPLEVEL) != 0,
+                                        buffer.mThreadId,
+                                        buffer.getTimeNanos(position),
+                                        buffer.getThreadTimeMillisOrId(position)));
+                    });
             return matchingEvents;
         }
     }
 
-    private static void dumpEvents(List<Event> events) {
-        for (Event e : events) {
-            if (e.mIsStart) {
-                if (e.mIsToplevel) {
-                    EarlyTraceEventJni.get().recordEarlyToplevelBeginEvent(
-                            e.mName, e.mTimeNanos, e.mThreadId, e.mThreadTimeMillis);
-                } else {
-                    EarlyTraceEventJni.get().recordEarlyBeginEvent(
-                            e.mName, e.mTimeNanos, e.mThreadId, e.mThreadTimeMillis);
-                }
-            } else {
-                if (e.mIsToplevel) {
-                    EarlyTraceEventJni.get().recordEarlyToplevelEndEvent(
-                            e.mName, e.mTimeNanos, e.mThreadId, e.mThreadTimeMillis);
-                } else {
-                    EarlyTraceEventJni.get().recordEarlyEndEvent(
-                            e.mName, e.mTimeNanos, e.mThreadId, e.mThreadTimeMillis);
-                }
+    static List<AsyncEvent> getMatchingAsyncEventsForTesting(String eventName) {
+        synchronized (sLock) {
+            List<AsyncEvent> matchingEvents = new ArrayList<AsyncEvent>();
+            visitEventsInOrder(
+                    sThreadBuffers,
+                    (buffer, position) -> {
+                        byte flags = buffer.getFlags(position);
+                        String name = sNames.get(buffer.getNameId(position));
+                        if ((flags & ThreadBuffer.FLAG_ASYNC) == 0 || !name.equals(eventName)) {
+                            return;
+                        }
+                        matchingEvents.add(
+                                new AsyncEvent(
+                                        name,
+                                        buffer.getThreadTimeMillisOrId(position),
+                                        (flags & ThreadBuffer.FLAG_START) != 0,
+                                        buffer.getTimeNanos(position)));
+                    });
+            return matchingEvents;
+        }
+    }
+
+    /** Returns the number of events dropped because a thread buffer was full. */
+    static int getDroppedEventCountForTesting() {
+        synchronized (sLock) {
+            int droppedCount = 0;
+            for (ThreadBuffer buffer : sThreadBuffers) {
+                droppedCount += buffer.getDroppedCount();
             }
+            return droppedCount;
         }
     }
 
-    private static void dumpAsyncEvents(List<AsyncEvent> events) {
-        for (AsyncEvent e : events) {
-            if (e.mIsStart) {
-                EarlyTraceEventJni.get().recordEarlyAsyncBeginEvent(e.mName, e.mId, e.mTimeNanos);
-            } else {
-                EarlyTraceEventJni.get().recordEarlyAsyncEndEvent(e.mId, e.mTimeNanos);
+    /**
+     * Merges the events of all buffers by timestamp. Events of a single thread keep the order in
+     * which they were recorded.
+     */
+    private static void visitEventsInOrder(List<ThreadBuffer> buffers, EventVisitor visitor) {
+        int bufferCount = buffers.size();
+        int[] positions = new int[bufferCount];
+        int[] ends = new int[bufferCount];
+        for (int i = 0; i < bufferCount; i++) {
+            ends[i] = buffers.get(i).getEventCount();
+        }
+        // There are few threads recording early events, so a linear scan is cheaper than a heap.
+        while (true) {
+            int next = -1;
+            long nextTimeNanos = Long.MAX_VALUE;
+            for (int i = 0; i < bufferCount; i++) {
+                if (positions[i] == ends[i]) continue;
+                long timeNanos = buffers.get(i).getTimeNanos(positions[i]);
+                if (next == -1 || timeNanos < nextTimeNanos) {
+                    next = i;
+                    nextTimeNanos = timeNanos;
+                }
             }
+            if (next == -1) return;
+            visitor.visit(buffers.get(next), positions[next]++);
+        }
+    }
+
+    private static void dumpEvents(List<ThreadBuffer> buffers, List<String> names) {
+        for (ThreadBuffer buffer : buffers) {
+            int droppedCount = buffer.getDroppedCount();
+            if (droppedCount == 0) continue;
+            Log.w(
+                    TAG,
+                    "Dropped %d early trace events on thread %d, buffer capacity is %d",
+                    droppedCount,
+                    buffer.mThreadId,
+                    THREAD_BUFFER_CAPACITY);
         }
+        EarlyTraceEvent.Natives natives = EarlyTraceEventJni.get();
+        visitEventsInOrder(
+                buffers,
+                (buffer, position) -> {
+                    byte flags = buffer.getFlags(position);
+                    long timeNanos = buffer.getTimeNanos(position);
+                    long threadTimeMillisOrId = buffer.getThreadTimeMillisOrId(position);
+                    boolean isStart = (flags & ThreadBuffer.FLAG_START) != 0;
+                    if ((flags & ThreadBuffer.FLAG_ASYNC) != 0) {
+                        if (isStart) {
+                            natives.recordEarlyAsyncBeginEvent(
+                                    names.get(buffer.getNameId(position)),
+                                    threadTimeMillisOrId,
+                                    timeNanos);
+                        } else {
+                            natives.recordEarlyAsyncEndEvent(threadTimeMillisOrId, timeNanos);
+                        }
+                        return;
+                    }
+                    String name = names.get(buffer.getNameId(position));
+                    boolean isToplevel = (flags & ThreadBuffer.FLAG_TOPLEVEL) != 0;
+                    if (isStart) {
+                        if (isToplevel) {
+                            natives.recordEarlyToplevelBeginEvent(
+                                    name, timeNanos, buffer.mThreadId, threadTimeMillisOrId);
+                        } else {
+                            natives.recordEarlyBeginEvent(
+                                    name, timeNanos, buffer.mThreadId, threadTimeMillisOrId);
+                        }
+                    } else {
+                        if (isToplevel) {
+                            natives.recordEarlyToplevelEndEvent(
+                                    name, timeNanos, buffer.mThreadId, threadTimeMillisOrId);
+                        } else {
+                            natives.recordEarlyEndEvent(
+                                    name, timeNanos, buffer.mThreadId, threadTimeMillisOrId);
+                        }
+                    }
+                });
     }
 
     @NativeMethods
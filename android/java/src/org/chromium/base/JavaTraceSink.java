@@ -0,0 +1,332 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base;
+
+import android.os.Process;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes Java trace events to a memory-mapped file, without going through the native library.
+ *
+ * Enabled by passing the output path with the {@code --java-trace-file} switch. Events recorded by
+ * {@link TraceEvent} are then written to that file in addition to any native or early tracing,
+ * which makes Java timing data available in processes that never load the native library.
+ *
+ * The file uses the Chrome JSON trace format, which chrome://tracing and the Perfetto UI can open
+ * directly. It is a bounded ring buffer of fixed-size records: each event is written as
+ * {@code ,{...}} and padded with spaces to {@link #RECORD_SIZE} bytes, between a header record
+ * opening the JSON array and a footer record closing it. The file is therefore valid JSON at any
+ * point in time, including after the ring has wrapped and older events were overwritten. The
+ * viewers sort events by timestamp, so the order of records in the file doesn't matter. Names and
+ * arguments that don't fit in a record are truncated.
+ *
+ * Writes go to the page cache through the mapping, so events are kept even if the process dies.
+ * Recording an event takes no lock.
+ */
+/* package */ final class JavaTraceSink {
+    private static final String TAG = "JavaTraceSink";
+
+    /** Size in bytes of each record in the file. */
+    @VisibleForTesting static final int RECORD_SIZE = 256;
+
+    /** Number of event records in the file, making the file 4 MiB large. */
+    @VisibleForTesting static final int DEFAULT_RECORD_COUNT = 16 * 1024 - 2;
+
+    private static final String CATEGORY = "Java";
+
+    // Room kept after the name for the arguments and the end of the record.
+    private static final int ARGS_RESERVED_SIZE = 48;
+
+    private static final String HEADER =
+            "[{\"ph\":\"M\",\"name\":\"process_labels\",\"pid\":%d,\"tid\":0,"
+                    + "\"args\":{\"labels\":\"" + TAG + "\"}}";
+    private static final String FOOTER = "]";
+
+    private static volatile JavaTraceSink sInstance;
+
+    /** Per-thread state used to encode records without allocating. */
+    private static final class RecordWriter {
+        final int mThreadId = Process.myTid();
+        final byte[] mRecord = new byte[RECORD_SIZE];
+        final ByteBuffer mBuffer;
+        int mLength;
+
+        RecordWriter(MappedByteBuffer buffer) {
+            mBuffer = buffer.duplicate();
+        }
+
+        void appendAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                mRecord[mLength++] = (byte) value.charAt(i);
+            }
+        }
+
+        void appendLong(long value) {
+            if (value < 0) {
+                mRecord[mLength++] = '-';
+                value = -value;
+            }
+            int start = mLength;
+            do {
+                mRecord[mLength++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            reverse(start, mLength - 1);
+        }
+
+        /** Appends |nanos| as microseconds with three decimals, the unit of "ts". */
+        void appendTimestamp(long nanos) {
+            appendLong(nanos / 1000);
+            mRecord[mLength++] = '.';
+            int fraction = (int) (nanos % 1000);
+            mRecord[mLength++] = (byte) ('0' + fraction / 100);
+            mRecord[mLength++] = (byte) ('0' + fraction / 10 % 10);
+            mRecord[mLength++] = (byte) ('0' + fraction % 10);
+        }
+
+        /**
+         * Appends |value| as the contents of a JSON string, encoded in UTF-8. Stops before the
+         * first character that doesn't fit before |limit|.
+         */
+        void appendString(String value, int limit) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                int size;
+                if (c == '"' || c == '\\') {
+                    size = 2;
+                } else if (c < 0x20) {
+                    size = 6;
+                } else if (c < 0x80) {
+                    size = 1;
+                } else if (c < 0x800) {
+                    size = 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                    size = 4;
+                } else {
+                    size = 3;
+                }
+                if (mLength + size > limit) return;
+
+                if (c == '"' || c == '\\') {
+                    mRecord[mLength++] = '\\';
+                    mRecord[mLength++] = (byte) c;
+                } else if (c < 0x20) {
+                    appendAscii("\\u00");
+                    mRecord[mLength++] = (byte) Character.forDigit(c >> 4, 16);
+                    mRecord[mLength++] = (byte) Character.forDigit(c & 0xF, 16);
+                } else if (size == 1) {
+                    mRecord[mLength++] = (byte) c;
+                } else if (size == 2) {
+                    mRecord[mLength++] = (byte) (0xC0 | (c >> 6));
+                    mRecord[mLength++] = (byte) (0x80 | (c & 0x3F));
+                } else if (size == 4) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    mRecord[mLength++] = (byte) (0xF0 | (codePoint >> 18));
+                    mRecord[mLength++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    mRecord[mLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    mRecord[mLength++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    // Unpaired surrogates are replaced, they can't be encoded in UTF-8.
+                    if (Character.isSurrogate(c)) c = '\uFFFD';
+                    mRecord[mLength++] = (byte) (0xE0 | (c >> 12));
+                    mRecord[mLength++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    mRecord[mLength++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        /** Appends |value| as an unsigned hexadecimal JSON string, the format of "id". */
+        void appendHexId(long value) {
+            appendAscii("\"0x");
+            int start = mLength;
+            do {
+                mRecord[mLength++] = (byte) Character.forDigit((int) (value & 0xF), 16);
+                value >>>= 4;
+            } while (value != 0);
+            reverse(start, mLength - 1);
+            mRecord[mLength++] = '"';
+        }
+
+        private void reverse(int start, int end) {
+            while (start < end) {
+                byte swap = mRecord[start];
+                mRecord[start++] = mRecord[end];
+                mRecord[end--] = swap;
+            }
+        }
+    }
+
+    private final MappedByteBuffer mBuffer;
+    private final int mRecordCount;
+    private final int mProcessId = Process.myPid();
+    private final AtomicLong mWrittenRecordCount = new AtomicLong();
+    private final ThreadLocal<RecordWriter> mWriters =
+            new ThreadLocal<RecordWriter>() {
+                @Override
+                protected RecordWriter initialValue() {
+                    return new RecordWriter(mBuffer);
+                }
+            };
+
+    private JavaTraceSink(MappedByteBuffer buffer, int recordCount) {
+        mBuffer = buffer;
+        mRecordCount = recordCount;
+    }
+
+    /**
+     * Enables the sink if the {@code --java-trace-file} switch is set. Does nothing if the
+     * CommandLine isn't initialized yet, or if the sink is already enabled.
+     */
+    static void maybeEnable() {
+        if (sInstance != null || !CommandLine.isInitialized()) return;
+        String path = CommandLine.getInstance().getSwitchValue(BaseSwitches.JAVA_TRACE_FILE);
+        if (path == null || path.isEmpty()) return;
+        synchronized (JavaTraceSink.class) {
+            if (sInstance != null) return;
+            try (StrictModeContext ignored = StrictModeContext.allowDiskWrites()) {
+                sInstance = create(new File(path), DEFAULT_RECORD_COUNT);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to create trace file %s", path, e);
+            }
+        }
+    }
+
+    /** Returns whether events are written to a trace file. */
+    static boolean enabled() {
+        return sInstance != null;
+    }
+
+    /**
+     * Creates the trace file, overwriting any existing file.
+     *
+     * @param file the trace file.
+     * @param recordCount maximum number of events kept in the file.
+     */
+    @VisibleForTesting
+    static JavaTraceSink create(File file, int recordCount) throws IOException {
+        assert recordCount > 0;
+        long size = (long) (recordCount + 2) * RECORD_SIZE;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(size);
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer =
+                    randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            JavaTraceSink sink = new JavaTraceSink(buffer, recordCount);
+            sink.initializeFile();
+            return sink;
+        }
+    }
+
+    @VisibleForTesting
+    static void setInstanceForTesting(@Nullable JavaTraceSink sink) {
+        sInstance = sink;
+        ResettersForTesting.register(() -> sInstance = null);
+    }
+
+    /** Writes a begin event. @see TraceEvent#begin */
+    static void begin(String name, @Nullable String arg) {
+        JavaTraceSink sink = sInstance;
+        if (sink != null) sink.writeEvent("B", name, arg, 0, false);
+    }
+
+    /** Writes an end event. @see TraceEvent#end */
+    static void end(String name, @Nullable String arg) {
+        JavaTraceSink sink = sInstance;
+        if (sink != null) sink.writeEvent("E", name, arg, 0, false);
+    }
+
+    /** Writes a thread-scoped instant event. @see TraceEvent#instant */
+    static void instant(String name, @Nullable String arg) {
+        JavaTraceSink sink = sInstance;
+        if (sink != null) sink.writeEvent("i", name, arg, 0, false);
+    }
+
+    /** Writes the start of an async event. @see TraceEvent#startAsync */
+    static void startAsync(String name, long id) {
+        JavaTraceSink sink = sInstance;
+        if (sink != null) sink.writeEvent("b", name, null, id, true);
+    }
+
+    /** Writes the end of an async event. @see TraceEvent#finishAsync */
+    static void finishAsync(String name, long id) {
+        JavaTraceSink sink = sInstance;
+        if (sink != null) sink.writeEvent("e", name, null, id, true);
+    }
+
+    /** Returns the number of events overwritten because the ring buffer wrapped. */
+    @VisibleForTesting
+    long getOverwrittenEventCount() {
+        return Math.max(0, mWrittenRecordCount.get() - mRecordCount);
+    }
+
+    private void initializeFile() {
+        byte[] spaces = new byte[RECORD_SIZE];
+        Arrays.fill(spaces, (byte) ' ');
+        for (int i = 0; i < mRecordCount + 2; i++) {
+            mBuffer.put(spaces);
+        }
+        putRecord(0, String.format(HEADER, mProcessId));
+        putRecord(mRecordCount + 1, FOOTER);
+    }
+
+    private void putRecord(int index, String contents) {
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(index * RECORD_SIZE);
+        for (int i = 0; i < contents.length(); i++) {
+            buffer.put((byte) contents.charAt(i));
+        }
+        buffer.put(index * RECORD_SIZE + RECORD_SIZE - 1, (byte) '\n');
+    }
+
+    private void writeEvent(
+            String phase, String name, @Nullable String arg, long id, boolean isAsync) {
+        // Same timebase as TimeTicks::Now().
+        long timeNanos = System.nanoTime();
+        RecordWriter writer = mWriters.get();
+        writer.mLength = 0;
+        writer.appendAscii(",{\"ph\":\"");
+        writer.appendAscii(phase);
+        writer.appendAscii("\",\"cat\":\"" + CATEGORY + "\",\"ts\":");
+        writer.appendTimestamp(timeNanos);
+        writer.appendAscii(",\"pid\":");
+        writer.appendLong(mProcessId);
+        writer.appendAscii(",\"tid\":");
+        writer.appendLong(writer.mThreadId);
+        if (isAsync) {
+            writer.appendAscii(",\"id\":");
+            writer.appendHexId(id);
+        } else if (phase.equals("i")) {
+            writer.appendAscii(",\"s\":\"t\"");
+        }
+        writer.appendAscii(",\"name\":\"");
+        writer.appendString(name, RECORD_SIZE - ARGS_RESERVED_SIZE);
+        writer.appendAscii("\"");
+        if (arg != null) {
+            writer.appendAscii(",\"args\":{\"arg\":\"");
+            // Keeps room for closing the string and the two objects.
+            writer.appendString(arg, RECORD_SIZE - 5);
+            writer.appendAscii("\"}");
+        }
+        writer.appendAscii("}");
+        Arrays.fill(writer.mRecord, writer.mLength, RECORD_SIZE - 1, (byte) ' ');
+        writer.mRecord[RECORD_SIZE - 1] = '\n';
+
+        // Records 0 and mRecordCount + 1 are the header and the footer.
+        long index = mWrittenRecordCount.getAndIncrement() % mRecordCount + 1;
+        writer.mBuffer.position((int) index * RECORD_SIZE);
+        writer.mBuffer.put(writer.mRecord);
+    }
+}
@@ -4,10 +4,13 @@
 
 package org.chromium.base;
 
-import java.util.ArrayList;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -23,6 +26,11 @@ import javax.annotation.concurrent.NotThreadSafe;
  *   - The iterator implements NOTIFY_EXISTING_ONLY.
  *   - The range-based for loop is left to the clients to implement in terms of iterator().
  * <p/>
+ * Observers are compared with {@link Object#equals}, and kept in an array. Large lists also keep a
+ * hash index of the observers, so that adding, removing and looking up observers doesn't scan the
+ * list. The hash code of an observer must not change while it is in the list.
+ * {@link #forEach} notifies the observers without allocating an iterator.
+ * <p/>
  * This class is not threadsafe. Observers MUST be added, removed and will be notified on the same
  * thread this is created.
  *
@@ -43,7 +51,17 @@ public class ObserverList<E> implements Iterable<E> {
         public void rewind();
     }
 
-    public final List<E> mObservers = new ArrayList<E>();
+    // Observers are looked up in an index rather than by scanning the array once there are more
+    // than this many.
+    private static final int INDEX_THRESHOLD = 16;
+    private static final Object[] EMPTY_OBSERVERS = new Object[0];
+
+    // Observers in the order they were added, in [0, mSize). Removed observers leave a null slot
+    // until the array is compacted, so that indices don't shift during iterations.
+    @VisibleForTesting Object[] mObservers = EMPTY_OBSERVERS;
+    private int mSize;
+    // Maps observers to their index in |mObservers|, only created for large lists.
+    private HashMap<E, Integer> mObserverIndices;
     private final ThreadUtils.ThreadChecker mThreadChecker;
     private int mIterationDepth;
     private int mCount;
@@ -73,17 +91,27 @@ public class ObserverList<E> implements Iterable<E> {
     public boolean addObserver(E obs) {
         if (mEnableThreadAsserts) mThreadChecker.assertOnValidThread();
 
-        // Avoid adding null elements to the list as they may be removed on a compaction.
-        if (obs == null || mObservers.contains(obs)) {
+        // Avoid adding null elements to the list as they mark removed observers.
+        if (obs == null || indexOf(obs) != -1) {
             return false;
         }
 
-        // Structurally modifying the underlying list here. This means we
-        // cannot use the underlying list's iterator to iterate over the list.
-        boolean result = mObservers.add(obs);
-        assert result;
+        if (mSize == mObservers.length) {
+            if (mIterationDepth == 0 && mCount < mSize) {
+                compact();
+            } else {
+                mObservers = Arrays.copyOf(mObservers, Math.max(4, mSize * 2));
+            }
+        }
+        if (mObserverIndices != null) {
+            mObserverIndices.put(obs, mSize);
+        }
+        mObservers[mSize++] = obs;
 
         ++mCount;
+        if (mObserverIndices == null && mCount > INDEX_THRESHOLD) {
+            buildIndex();
+        }
         return true;
     }
 
@@ -99,45 +127,50 @@ public class ObserverList<E> implements Iterable<E> {
             return false;
         }
 
-        int index = mObservers.indexOf(obs);
+        int index = indexOf(obs);
         if (index == -1) {
             return false;
         }
 
-        if (mIterationDepth == 0) {
-            // No one is iterating over the list.
-            mObservers.remove(index);
-        } else {
-            mNeedsCompact = true;
-            mObservers.set(index, null);
+        mObservers[index] = null;
+        if (mObserverIndices != null) {
+            mObserverIndices.remove(obs);
         }
         --mCount;
         assert mCount >= 0;
 
+        if (mIterationDepth > 0) {
+            mNeedsCompact = true;
+        } else if (index == mSize - 1) {
+            mSize--;
+        } else if (mSize - mCount > mCount) {
+            // No one is iterating over the list. Compacting once half of the slots are empty keeps
+            // removals amortized O(1).
+            compact();
+        }
+
         return true;
     }
 
     public boolean hasObserver(E obs) {
         if (mEnableThreadAsserts) mThreadChecker.assertOnValidThread();
 
-        return mObservers.contains(obs);
+        return obs != null && indexOf(obs) != -1;
     }
 
     public void clear() {
         if (mEnableThreadAsserts) mThreadChecker.assertOnValidThread();
 
         mCount = 0;
+        mObserverIndices = null;
+        Arrays.fill(mObservers, 0, mSize, null);
 
         if (mIterationDepth == 0) {
-            mObservers.clear();
+            mSize = 0;
             return;
         }
 
-        int size = mObservers.size();
-        mNeedsCompact |= size != 0;
-        for (int i = 0; i < size; i++) {
-            mObservers.set(i, null);
-        }
+        mNeedsCompact |= mSize != 0;
     }
 
     @Override
@@ -158,6 +191,27 @@ public class ObserverList<E> implements Iterable<E> {
         return new ObserverListIterator();
     }
 
+    /**
+     * Notifies the observers without allocating an iterator. Observers may be added and removed
+     * while this runs, with the same guarantees as {@link #iterator()}: observers added during the
+     * call are not notified, and removed observers are not notified after their removal.
+     */
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        if (mEnableThreadAsserts) mThreadChecker.assertOnValidThread();
+
+        incrementIterationDepth();
+        try {
+            int end = mSize;
+            for (int i = 0; i < end; i++) {
+                E obs = getObserverAt(i);
+                if (obs != null) action.accept(obs);
+            }
+        } finally {
+            decrementIterationDepthAndCompactIfNeeded();
+        }
+    }
+
     /**
      * Returns the number of observers currently registered in the ObserverList.
      * This is equivalent to the number of non-empty spaces in |mObservers|.
@@ -177,18 +231,46 @@ public class ObserverList<E> implements Iterable<E> {
         return mCount == 0;
     }
 
+    /** Returns the index of an observer equal to |obs| in |mObservers|, or -1. */
+    private int indexOf(E obs) {
+        if (mObserverIndices != null) {
+            Integer index = mObserverIndices.get(obs);
+            return index == null ? -1 : index;
+        }
+        for (int i = 0; i < mSize; i++) {
+            if (obs.equals(mObservers[i])) return i;
+        }
+        return -1;
+    }
+
+    private void buildIndex() {
+        mObserverIndices = new HashMap<>(mCount * 2);
+        for (int i = 0; i < mSize; i++) {
+            E obs = getObserverAt(i);
+            if (obs != null) mObserverIndices.put(obs, i);
+        }
+    }
+
     /**
-     * Compact the underlying list be removing null elements.
+     * Compact the underlying array by removing null elements.
      * <p/>
      * Should only be called when mIterationDepth is zero.
      */
     private void compact() {
         assert mIterationDepth == 0;
-        for (int i = mObservers.size() - 1; i >= 0; i--) {
-            if (mObservers.get(i) == null) {
-                mObservers.remove(i);
+        int newSize = 0;
+        for (int i = 0; i < mSize; i++) {
+            E obs = getObserverAt(i);
+            if (obs == null) continue;
+            if (newSize != i) {
+                mObservers[newSize] = obs;
+                if (mObserverIndices != null) mObserverIndices.put(obs, newSize);
             }
+            newSize++;
         }
+        Arrays.fill(mObservers, newSize, mSize, null);
+        mSize = newSize;
+        assert mSize == mCount;
     }
 
     private void incrementIterationDepth() {
@@ -209,11 +291,12 @@ public class ObserverList<E> implements Iterable<E> {
      * It will take into account the empty spaces inside |mObservers|.
      */
     private int capacity() {
-        return mObservers.size();
+        return mSize;
     }
 
+    @SuppressWarnings("unchecked")
     private E getObserverAt(int index) {
-        return mObservers.get(index);
+        return (E) mObservers[index];
     }
 
     private class ObserverListIterator implements RewindableIterator<E> {
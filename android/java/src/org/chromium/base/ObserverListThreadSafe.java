@@ -0,0 +1,188 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base;
+
+import org.chromium.base.task.TaskRunner;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A thread-safe container for a list of observers, the Java counterpart of the C++
+ * ObserverListThreadSafe.
+ * <p/>
+ * Observers are registered with the {@link TaskRunner} they should be notified on, usually the
+ * one they run on, and notifications can be sent from any thread. A notification is always
+ * delivered with {@link TaskRunner#postTask(Runnable)}, with a single post per TaskRunner for all
+ * of its observers.
+ * <p/>
+ * Observers can be added and removed from any thread, including from a notification. An observer
+ * removed while a notification is pending for it won't be notified, but a notification that is
+ * already running completes. Sending a notification doesn't lock, as the observers are published
+ * as an immutable list that is copied on each change.
+ *
+ * @param <E> The type of observers that this list should hold.
+ */
+@ThreadSafe
+public class ObserverListThreadSafe<E> {
+    /** An observer, and whether it is still registered. */
+    private static final class Registration<E> {
+        final E mObserver;
+        volatile boolean mRemoved;
+
+        Registration(E observer) {
+            mObserver = observer;
+        }
+    }
+
+    /** The observers notified on the same TaskRunner. */
+    private static final class RunnerObservers<E> {
+        final TaskRunner mTaskRunner;
+        final Registration<E>[] mRegistrations;
+
+        RunnerObservers(TaskRunner taskRunner, Registration<E>[] registrations) {
+            mTaskRunner = taskRunner;
+            mRegistrations = registrations;
+        }
+    }
+
+    private static final RunnerObservers<?>[] EMPTY = new RunnerObservers<?>[0];
+
+    private final Object mLock = new Object();
+    // Never modified, replaced when observers are added or removed. Writes are guarded by mLock.
+    private volatile RunnerObservers<E>[] mObservers = emptyObservers();
+    @GuardedBy("mLock")
+    private int mCount;
+
+    @SuppressWarnings("unchecked")
+    private static <E> RunnerObservers<E>[] emptyObservers() {
+        return (RunnerObservers<E>[]) EMPTY;
+    }
+
+    /**
+     * Adds an observer, notified on {@code taskRunner}. Observers are compared by identity.
+     *
+     * @return true if the observer list changed as a result of the call, false if the observer
+     *     is null or was already added.
+     */
+    public boolean addObserver(E obs, TaskRunner taskRunner) {
+        assert taskRunner != null;
+        if (obs == null) return false;
+        synchronized (mLock) {
+            RunnerObservers<E>[] observers = mObservers;
+            if (findRegistration(observers, obs) != null) return false;
+
+            int runnerIndex = 0;
+            while (runnerIndex < observers.length
+                    && observers[runnerIndex].mTaskRunner != taskRunner) {
+                runnerIndex++;
+            }
+            boolean hasRunner = runnerIndex < observers.length;
+            observers = Arrays.copyOf(observers, Math.max(observers.length, runnerIndex + 1));
+            Registration<E>[] registrations;
+            if (hasRunner) {
+                Registration<E>[] current = observers[runnerIndex].mRegistrations;
+                registrations = Arrays.copyOf(current, current.length + 1);
+            } else {
+                registrations = newRegistrations(1);
+            }
+            registrations[registrations.length - 1] = new Registration<>(obs);
+            observers[runnerIndex] = new RunnerObservers<>(taskRunner, registrations);
+            mObservers = observers;
+            mCount++;
+            return true;
+        }
+    }
+
+    /**
+     * Removes an observer if it is in the list. Pending notifications for it are dropped.
+     *
+     * @return true if an observer was removed as a result of this call.
+     */
+    public boolean removeObserver(E obs) {
+        if (obs == null) return false;
+        synchronized (mLock) {
+            RunnerObservers<E>[] observers = mObservers;
+            for (int i = 0; i < observers.length; i++) {
+                Registration<E>[] registrations = observers[i].mRegistrations;
+                for (int j = 0; j < registrations.length; j++) {
+                    if (registrations[j].mObserver != obs) continue;
+                    registrations[j].mRemoved = true;
+                    mObservers = without(observers, i, j);
+                    mCount--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public boolean hasObserver(E obs) {
+        return obs != null && findRegistration(mObservers, obs) != null;
+    }
+
+    /** Returns the number of observers currently registered. */
+    public int size() {
+        synchronized (mLock) {
+            return mCount;
+        }
+    }
+
+    /** Returns true if no observer is registered. */
+    public boolean isEmpty() {
+        return mObservers.length == 0;
+    }
+
+    /**
+     * Notifies the observers registered at the time of the call, each on its TaskRunner. Can be
+     * called from any thread.
+     *
+     * @param notification Called with each observer, on the TaskRunner of the observer.
+     */
+    public void notifyObservers(Callback<E> notification) {
+        for (RunnerObservers<E> runnerObservers : mObservers) {
+            Registration<E>[] registrations = runnerObservers.mRegistrations;
+            runnerObservers.mTaskRunner.postTask(
+                    () -> {
+                        for (Registration<E> registration : registrations) {
+                            if (registration.mRemoved) continue;
+                            notification.onResult(registration.mObserver);
+                        }
+                    });
+        }
+    }
+
+    private static <E> Registration<E> findRegistration(RunnerObservers<E>[] observers, E obs) {
+        for (RunnerObservers<E> runnerObservers : observers) {
+            for (Registration<E> registration : runnerObservers.mRegistrations) {
+                if (registration.mObserver == obs) return registration;
+            }
+        }
+        return null;
+    }
+
+    /** Returns a copy of {@code observers} without registration {@code j} of runner {@code i}. */
+    private static <E> RunnerObservers<E>[] without(RunnerObservers<E>[] observers, int i, int j) {
+        Registration<E>[] registrations = observers[i].mRegistrations;
+        if (registrations.length == 1) {
+            RunnerObservers<E>[] result = Arrays.copyOf(observers, observers.length - 1);
+            System.arraycopy(observers, i + 1, result, i, observers.length - i - 1);
+            return result;
+        }
+        Registration<E>[] remaining = newRegistrations(registrations.length - 1);
+        System.arraycopy(registrations, 0, remaining, 0, j);
+        System.arraycopy(registrations, j + 1, remaining, j, registrations.length - j - 1);
+        RunnerObservers<E>[] result = observers.clone();
+        result[i] = new RunnerObservers<>(observers[i].mTaskRunner, remaining);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Registration<E>[] newRegistrations(int length) {
+        return (Registration<E>[]) new Registration<?>[length];
+    }
+}
@@ -53,6 +53,12 @@ public class TraceEvent implements AutoCloseable {
         @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
         static final String FILTERED_EVENT_NAME = LOOPER_TASK_PREFIX + "EVENT_NAME_FILTERED";
         private static final int SHORTEST_LOG_PREFIX_LENGTH = "<<<<< Finished to ".length();
+        @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+        static final int EVENT_NAME_CACHE_CAPACITY = 64;
+
+        // Only accessed on the thread of the monitored Looper.
+        private final EventNameCache mEventNameCache =
+                new EventNameCache(EVENT_NAME_CACHE_CAPACITY);
         private String mCurrentTarget;
 
         @Override
@@ -72,7 +78,10 @@ public class TraceEvent implements AutoCloseable {
             if (sEnabled || earlyTracingActive) {
                 // Note that we don't need to log ATrace events here because the
                 // framework does that for us (M+).
-                mCurrentTarget = getTraceEventName(line);
+                mCurrentTarget =
+                        sEventNameFilteringEnabled
+                                ? FILTERED_EVENT_NAME
+                                : mEventNameCache.getTraceEventName(line);
                 if (sEnabled) {
                     TraceEventJni.get().beginToplevel(mCurrentTarget);
                 } else {
@@ -98,7 +107,17 @@ public class TraceEvent implements AutoCloseable {
             if (sEventNameFilteringEnabled) {
                 return FILTERED_EVENT_NAME;
             }
-            return LOOPER_TASK_PREFIX + getTarget(line) + "(" + getTargetName(line) + ")";
+            int targetStart = getTargetStart(line);
+            int targetEnd = getTargetEnd(line, targetStart);
+            int targetNameStart = getTargetNameStart(line);
+            int targetNameEnd = getTargetNameEnd(line, targetNameStart);
+            return createTraceEventName(
+                    line.substring(targetStart, targetEnd),
+                    line.substring(targetNameStart, targetNameEnd));
+        }
+
+        private static String createTraceEventName(String target, String targetName) {
+            return LOOPER_TASK_PREFIX + target + "(" + targetName + ")";
         }
 
         /**
@@ -110,23 +129,152 @@ public class TraceEvent implements AutoCloseable {
          *
          * "<<<<< Finished to (TARGET) {HASH_CODE} TARGET_NAME".
          *
-         * This has been the case since at least 2009 (Donut). This function extracts the
-         * TARGET part of the message.
+         * This has been the case since at least 2009 (Donut). The functions below return the
+         * bounds of the TARGET and TARGET_NAME parts of the message, which are empty if the
+         * message doesn't have the expected format.
          */
-        private static String getTarget(String logLine) {
+        private static int getTargetStart(String logLine) {
             int start = logLine.indexOf('(', SHORTEST_LOG_PREFIX_LENGTH);
-            int end = start == -1 ? -1 : logLine.indexOf(')', start);
-            return end != -1 ? logLine.substring(start + 1, end) : "";
+            return start == -1 || logLine.indexOf(')', start) == -1 ? 0 : start + 1;
+        }
+
+        private static int getTargetEnd(String logLine, int targetStart) {
+            return targetStart == 0 ? 0 : logLine.indexOf(')', targetStart);
         }
 
-        // Extracts the TARGET_NAME part of the log message (see above).
-        private static String getTargetName(String logLine) {
+        private static int getTargetNameStart(String logLine) {
             int start = logLine.indexOf('}', SHORTEST_LOG_PREFIX_LENGTH);
-            int end = start == -1 ? -1 : logLine.indexOf(':', start);
-            if (end == -1) {
-                end = logLine.length();
+            return start == -1 ? 0 : start + 2;
+        }
+
+        private static int getTargetNameEnd(String logLine, int targetNameStart) {
+            if (targetNameStart == 0) return 0;
+            int end = logLine.indexOf(':', targetNameStart - 2);
+            return end == -1 ? logLine.length() : end;
+        }
+
+        /**
+         * Bounded LRU cache of event names, keyed on the TARGET and TARGET_NAME parts of the log
+         * line. Looking up a name that is already cached parses the line in place and doesn't
+         * allocate. Not thread-safe.
+         */
+        @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+        static final class EventNameCache {
+            private static final class Entry {
+                String mTarget;
+                String mTargetName;
+                String mEventName;
+                int mHash;
+                Entry mNextInBucket;
+                // Neighbours in the least recently used order.
+                Entry mMoreRecent;
+                Entry mLessRecent;
+            }
+
+            private final Entry[] mBuckets;
+            private final int mCapacity;
+            private int mSize;
+            private Entry mMostRecent;
+            private Entry mLeastRecent;
+
+            EventNameCache(int capacity) {
+                mCapacity = capacity;
+                mBuckets = new Entry[Integer.highestOneBit(capacity) * 2];
+            }
+
+            /** Returns the trace event name for |line|, creating it if it isn't cached. */
+            String getTraceEventName(String line) {
+                int targetStart = getTargetStart(line);
+                int targetEnd = getTargetEnd(line, targetStart);
+                int targetNameStart = getTargetNameStart(line);
+                int targetNameEnd = getTargetNameEnd(line, targetNameStart);
+                int hash =
+                        31 * hashRegion(line, targetStart, targetEnd)
+                                + hashRegion(line, targetNameStart, targetNameEnd);
+                int bucket = hash & (mBuckets.length - 1);
+                for (Entry entry = mBuckets[bucket]; entry != null; entry = entry.mNextInBucket) {
+                    if (entry.mHash == hash
+                            && regionEquals(line, targetStart, targetEnd, entry.mTarget)
+                            && regionEquals(
+                                    line, targetNameStart, targetNameEnd, entry.mTargetName)) {
+                        moveToFront(entry);
+                        return entry.mEventName;
+                    }
+                }
+
+                Entry entry = mSize == mCapacity ? removeLeastRecent() : new Entry();
+                entry.mTarget = line.substring(targetStart, targetEnd);
+                entry.mTargetName = line.substring(targetNameStart, targetNameEnd);
+                entry.mEventName = createTraceEventName(entry.mTarget, entry.mTargetName);
+                entry.mHash = hash;
+                entry.mNextInBucket = mBuckets[bucket];
+                mBuckets[bucket] = entry;
+                addToFront(entry);
+                mSize++;
+                return entry.mEventName;
+            }
+
+            @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+            int size() {
+                return mSize;
+            }
+
+            private static int hashRegion(String line, int start, int end) {
+                int hash = 0;
+                for (int i = start; i < end; i++) {
+                    hash = 31 * hash + line.charAt(i);
+                }
+                return hash;
+            }
+
+            private static boolean regionEquals(String line, int start, int end, String value) {
+                return end - start == value.length()
+                        && line.regionMatches(start, value, 0, value.length());
+            }
+
+            private void moveToFront(Entry entry) {
+                if (entry == mMostRecent) return;
+                unlink(entry);
+                addToFront(entry);
+            }
+
+            private void addToFront(Entry entry) {
+                entry.mMoreRecent = null;
+                entry.mLessRecent = mMostRecent;
+                if (mMostRecent != null) mMostRecent.mMoreRecent = entry;
+                mMostRecent = entry;
+                if (mLeastRecent == null) mLeastRecent = entry;
+            }
+
+            private void unlink(Entry entry) {
+                if (entry.mMoreRecent != null) {
+                    entry.mMoreRecent.mLessRecent = entry.mLessRecent;
+                } else {
+                    mMostRecent = entry.mLessRecent;
+                }
+                if (entry.mLessRecent != null) {
+                    entry.mLessRecent.mMoreRecent = entry.mMoreRecent;
+                } else {
+                    mLeastRecent = entry.mMoreRecent;
+                }
+            }
+
+            /** Removes the least recently used entry and returns it for reuse. */
+            private Entry removeLeastRecent() {
+                Entry entry = mLeastRecent;
+                unlink(entry);
+                int bucket = entry.mHash & (mBuckets.length - 1);
+                if (mBuckets[bucket] == entry) {
+                    mBuckets[bucket] = entry.mNextInBucket;
+                } else {
+                    Entry previous = mBuckets[bucket];
+                    while (previous.mNextInBucket != entry) previous = previous.mNextInBucket;
+                    previous.mNextInBucket = entry.mNextInBucket;
+                }
+                entry.mNextInBucket = null;
+                mSize--;
+                return entry;
             }
-            return start != -1 ? logLine.substring(start + 2, end) : "";
         }
     }
 
@@ -283,7 +431,7 @@ public class TraceEvent implements AutoCloseable {
      * @return a TraceEvent, or null if tracing is not enabled.
      */
     public static TraceEvent scoped(String name, String arg) {
-        if (!(EarlyTraceEvent.enabled() || enabled())) return null;
+        if (!(EarlyTraceEvent.enabled() || enabled() || JavaTraceSink.enabled())) return null;
         return new TraceEvent(name, arg);
     }
 
@@ -297,7 +445,7 @@ public class TraceEvent implements AutoCloseable {
      * @return a TraceEvent, or null if tracing is not enabled.
      */
     public static TraceEvent scoped(String name, int arg) {
-        if (!(EarlyTraceEvent.enabled() || enabled())) return null;
+        if (!(EarlyTraceEvent.enabled() || enabled() || JavaTraceSink.enabled())) return null;
         return new TraceEvent(name, arg);
     }
 
@@ -347,12 +495,24 @@ public class TraceEvent implements AutoCloseable {
         // line flags.
         if (readCommandLine) {
             EarlyTraceEvent.maybeEnableInBrowserProcess();
+            JavaTraceSink.maybeEnable();
         }
         if (EarlyTraceEvent.enabled()) {
             ThreadUtils.getUiThreadLooper().setMessageLogging(LooperMonitorHolder.sInstance);
         }
     }
 
+    /**
+     * Starts writing Java trace events to the file passed with the --java-trace-file switch, if
+     * any. Unlike other tracing, this doesn't need the native library to be loaded. Must be called
+     * after the CommandLine is initialized.
+     *
+     * @see JavaTraceSink
+     */
+    public static void maybeEnableJavaTraceSink() {
+        JavaTraceSink.maybeEnable();
+    }
+
     public static void onNativeTracingReady() {
         TraceEventJni.get().registerEnabledObserver();
     }
@@ -379,6 +539,7 @@ public class TraceEvent implements AutoCloseable {
      * @param name The name of the event.
      */
     public static void instant(String name) {
+        JavaTraceSink.instant(name, null);
         if (sEnabled) TraceEventJni.get().instant(name, null);
     }
 
@@ -388,6 +549,7 @@ public class TraceEvent implements AutoCloseable {
      * @param arg  The arguments of the event.
      */
     public static void instant(String name, String arg) {
+        JavaTraceSink.instant(name, arg);
         if (sEnabled) TraceEventJni.get().instant(name, arg);
     }
 
@@ -484,6 +646,7 @@ public class TraceEvent implements AutoCloseable {
      */
     public static void startAsync(String name, long id) {
         EarlyTraceEvent.startAsync(name, id);
+        JavaTraceSink.startAsync(name, id);
         if (sEnabled) {
             TraceEventJni.get().startAsync(name, id);
         }
@@ -496,6 +659,7 @@ public class TraceEvent implements AutoCloseable {
      */
     public static void finishAsync(String name, long id) {
         EarlyTraceEvent.finishAsync(name, id);
+        JavaTraceSink.finishAsync(name, id);
         if (sEnabled) {
             TraceEventJni.get().finishAsync(name, id);
         }
@@ -516,6 +680,7 @@ public class TraceEvent implements AutoCloseable {
      */
     public static void begin(String name, String arg) {
         EarlyTraceEvent.begin(name, false /*isToplevel*/);
+        JavaTraceSink.begin(name, arg);
         if (sEnabled) {
             TraceEventJni.get().begin(name, arg);
         }
@@ -528,6 +693,7 @@ public class TraceEvent implements AutoCloseable {
      */
     public static void begin(String name, int arg) {
         EarlyTraceEvent.begin(name, false /*isToplevel*/);
+        if (JavaTraceSink.enabled()) JavaTraceSink.begin(name, Integer.toString(arg));
         if (sEnabled) {
             TraceEventJni.get().beginWithIntArg(name, arg);
         }
@@ -558,6 +724,7 @@ public class TraceEvent implements AutoCloseable {
      */
     public static void end(String name, String arg, long flow) {
         EarlyTraceEvent.end(name, false /*isToplevel*/);
+        JavaTraceSink.end(name, arg);
         if (sEnabled) {
             TraceEventJni.get().end(name, arg, flow);
         }
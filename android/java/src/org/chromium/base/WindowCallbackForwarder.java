@@ -0,0 +1,192 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base;
+
+import android.app.Activity;
+import android.view.ActionMode;
+import android.view.KeyEvent;
+import android.view.KeyboardShortcutGroup;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.SearchEvent;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+import android.view.accessibility.AccessibilityEvent;
+
+import androidx.annotation.RequiresApi;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Forwards all calls to a Window.Callback, and relays window focus changes to {@link
+ * ApplicationStatus}.
+ *
+ * Unlike {@link ApplicationStatus.WindowCallbackProxy}, input events are forwarded without
+ * reflection. It can only be used when it overrides every method of Window.Callback on this
+ * device though, otherwise methods added by newer SDKs would run their default implementation
+ * rather than being forwarded. See {@link #forwardsAllMethods()}.
+ */
+class WindowCallbackForwarder implements Window.Callback {
+    private static Boolean sForwardsAllMethods;
+
+    private final Window.Callback mCallback;
+    private final Activity mActivity;
+
+    WindowCallbackForwarder(Activity activity, Window.Callback callback) {
+        mCallback = callback;
+        mActivity = activity;
+    }
+
+    /** Returns whether this class overrides every method of Window.Callback on this device. */
+    static boolean forwardsAllMethods() {
+        if (sForwardsAllMethods == null) {
+            sForwardsAllMethods = true;
+            for (Method method : Window.Callback.class.getMethods()) {
+                try {
+                    WindowCallbackForwarder.class.getDeclaredMethod(
+                            method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException e) {
+                    sForwardsAllMethods = false;
+                    break;
+                }
+            }
+        }
+        return sForwardsAllMethods;
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return mCallback.dispatchKeyEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyShortcutEvent(KeyEvent event) {
+        return mCallback.dispatchKeyShortcutEvent(event);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        return mCallback.dispatchTouchEvent(event);
+    }
+
+    @Override
+    public boolean dispatchTrackballEvent(MotionEvent event) {
+        return mCallback.dispatchTrackballEvent(event);
+    }
+
+    @Override
+    public boolean dispatchGenericMotionEvent(MotionEvent event) {
+        return mCallback.dispatchGenericMotionEvent(event);
+    }
+
+    @Override
+    public boolean dispatchPopulateAccessibilityEvent(AccessibilityEvent event) {
+        return mCallback.dispatchPopulateAccessibilityEvent(event);
+    }
+
+    @Override
+    public View onCreatePanelView(int featureId) {
+        return mCallback.onCreatePanelView(featureId);
+    }
+
+    @Override
+    public boolean onCreatePanelMenu(int featureId, Menu menu) {
+        return mCallback.onCreatePanelMenu(featureId, menu);
+    }
+
+    @Override
+    public boolean onPreparePanel(int featureId, View view, Menu menu) {
+        return mCallback.onPreparePanel(featureId, view, menu);
+    }
+
+    @Override
+    public boolean onMenuOpened(int featureId, Menu menu) {
+        return mCallback.onMenuOpened(featureId, menu);
+    }
+
+    @Override
+    public boolean onMenuItemSelected(int featureId, MenuItem item) {
+        return mCallback.onMenuItemSelected(featureId, item);
+    }
+
+    @Override
+    public void onWindowAttributesChanged(WindowManager.LayoutParams attrs) {
+        mCallback.onWindowAttributesChanged(attrs);
+    }
+
+    @Override
+    public void onContentChanged() {
+        mCallback.onContentChanged();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        mCallback.onWindowFocusChanged(hasFocus);
+        ApplicationStatus.notifyWindowFocusChanged(mActivity, hasFocus);
+    }
+
+    @Override
+    public void onAttachedToWindow() {
+        mCallback.onAttachedToWindow();
+    }
+
+    @Override
+    public void onDetachedFromWindow() {
+        mCallback.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onPanelClosed(int featureId, Menu menu) {
+        mCallback.onPanelClosed(featureId, menu);
+    }
+
+    @RequiresApi(23)
+    @Override
+    public boolean onSearchRequested(SearchEvent searchEvent) {
+        return mCallback.onSearchRequested(searchEvent);
+    }
+
+    @Override
+    public boolean onSearchRequested() {
+        return mCallback.onSearchRequested();
+    }
+
+    @Override
+    public ActionMode onWindowStartingActionMode(ActionMode.Callback callback) {
+        return mCallback.onWindowStartingActionMode(callback);
+    }
+
+    @RequiresApi(23)
+    @Override
+    public ActionMode onWindowStartingActionMode(ActionMode.Callback callback, int type) {
+        return mCallback.onWindowStartingActionMode(callback, type);
+    }
+
+    @Override
+    public void onActionModeStarted(ActionMode mode) {
+        mCallback.onActionModeStarted(mode);
+    }
+
+    @Override
+    public void onActionModeFinished(ActionMode mode) {
+        mCallback.onActionModeFinished(mode);
+    }
+
+    @RequiresApi(24)
+    @Override
+    public void onProvideKeyboardShortcuts(
+            List<KeyboardShortcutGroup> data, Menu menu, int deviceId) {
+        mCallback.onProvideKeyboardShortcuts(data, menu, deviceId);
+    }
+
+    @RequiresApi(26)
+    @Override
+    public void onPointerCaptureChanged(boolean hasCapture) {
+        mCallback.onPointerCaptureChanged(hasCapture);
+    }
+}
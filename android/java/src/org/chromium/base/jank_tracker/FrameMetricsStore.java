@@ -8,10 +8,8 @@ import org.chromium.base.ThreadUtils.ThreadChecker;
 import org.chromium.base.TraceEvent;
 import org.chromium.build.BuildConfig;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 
 /**
  * This class stores relevant metrics from FrameMetrics between the calls to UMA reporting methods.
@@ -25,31 +23,33 @@ public class FrameMetricsStore {
     // clashes with another track is trace events will show up on both potentially looking weird in
     // the tracing UI. No other issue will occur.
     private static final long TRACE_EVENT_TRACK_ID = 84186319646187624L;
+    // Capacity of the frame buffers when the store is created, enough for about a second of frames
+    // at 60 Hz. Buffers double in size when full.
+    private static final int INITIAL_FRAME_CAPACITY = 64;
     // Android FrameMetrics promises in order frame metrics so this is just the latest timestamp.
     private long mMaxTimestamp = -1;
-    // Array of timestamps stored in nanoseconds, they represent the moment when each frame
-    // began (VSYNC_TIMESTAMP), must always be the same size as mTotalDurationsNs.
-    private final ArrayList<Long> mTimestampsNs = new ArrayList<>();
-    // Array of total durations stored in nanoseconds, they represent how long each frame took to
-    // draw.
-    private final ArrayList<Long> mTotalDurationsNs = new ArrayList<>();
-    // Array of boolean values denoting whether a given frame is janky or not. Must always be the
-    // same size as mTotalDurationsNs.
-    private final ArrayList<Boolean> mIsJanky = new ArrayList<>();
-    // Stores the timestamp (nanoseconds) of the most recent frame metric as a scenario started.
-    // Zero if no FrameMetrics have been received.
-    private final HashMap<Integer, Long> mScenarioPreviousFrameTimestampNs = new HashMap<>();
-
-    public FrameMetricsStore() {
-        // Add 0 to mTimestampNS array. This simplifies handling edge case when starting a scenario
-        // and we don't have any frame metrics stored. Adding 0 also makes sure the array stays in
-        // sorted order since the actual metrics received will have larger vsync start timestamps.
-        mTimestampsNs.add(0L);
-        // Add arbitrary values to related arrays as well since we always want them to be of same
-        // size.
-        mTotalDurationsNs.add(0L);
-        mIsJanky.add(false);
-    }
+    // Frame data is stored in parallel column arrays, only the first mFrameCount entries are used.
+    // Index 0 always holds a placeholder frame with a timestamp of 0. This simplifies handling the
+    // edge case of starting a scenario when we don't have any frame metrics stored, and keeps the
+    // timestamps sorted since the actual metrics received will have larger vsync start
+    // timestamps.
+    private int mFrameCount = 1;
+    // Timestamps stored in nanoseconds, they represent the moment when each frame began
+    // (VSYNC_TIMESTAMP).
+    private long[] mTimestampsNs = new long[INITIAL_FRAME_CAPACITY];
+    // Total durations stored in nanoseconds, they represent how long each frame took to draw.
+    private long[] mTotalDurationsNs = new long[INITIAL_FRAME_CAPACITY];
+    // Whether a given frame is janky or not.
+    private boolean[] mIsJanky = new boolean[INITIAL_FRAME_CAPACITY];
+    // Number of frames removed from the start of the buffers so far. A frame stored at index i
+    // has the absolute frame index i + mRemovedFrameCount, which doesn't change when older frames
+    // are removed.
+    private long mRemovedFrameCount;
+    // Stores the absolute index of the most recent frame as a scenario started. Frames after it
+    // belong to the scenario.
+    private final HashMap<Integer, Long> mScenarioPreviousFrameIndex = new HashMap<>();
+    // Summary of the frames of each tracked scenario, updated as frames arrive.
+    private final HashMap<Integer, JankScenarioAggregator> mScenarioAggregators = new HashMap<>();
 
     // Convert an enum value to string to use as an UMA histogram name, changes to strings should be
     // reflected in android/histograms.xml and base/android/jank_
@@ -93,10 +93,20 @@ public class FrameMetricsStore {
      */
     void addFrameMeasurement(long totalDurationNs, boolean isJanky, long frameStartVsyncTs) {
         mThreadChecker.assertOnValidThread();
-        mTotalDurationsNs.add(totalDurationNs);
-        mIsJanky.add(isJanky);
-        mTimestampsNs.add(frameStartVsyncTs);
+        if (mFrameCount == mTimestampsNs.length) {
+            int capacity = mFrameCount * 2;
+            mTimestampsNs = Arrays.copyOf(mTimestampsNs, capacity);
+            mTotalDurationsNs = Arrays.copyOf(mTotalDurationsNs, capacity);
+            mIsJanky = Arrays.copyOf(mIsJanky, capacity);
+        }
+        mTimestampsNs[mFrameCount] = frameStartVsyncTs;
+        mTotalDurationsNs[mFrameCount] = totalDurationNs;
+        mIsJanky[mFrameCount] = isJanky;
+        mFrameCount++;
         mMaxTimestamp = frameStartVsyncTs;
+        for (JankScenarioAggregator aggregator : mScenarioAggregators.values()) {
+            aggregator.addFrame(totalDurationNs, isJanky, frameStartVsyncTs);
+        }
     }
 
     @SuppressWarnings("NoDynamicStringsInTraceEventCheck")
@@ -106,16 +116,16 @@ public class FrameMetricsStore {
             mThreadChecker.assertOnValidThread();
             // Ignore multiple calls to startTrackingScenario without corresponding
             // stopTrackingScenario calls.
-            if (mScenarioPreviousFrameTimestampNs.containsKey(scenario)) {
+            if (mScenarioPreviousFrameIndex.containsKey(scenario)) {
                 return;
             }
             // Make a unique ID for each scenario for tracing.
             TraceEvent.startAsync(
                     "JankCUJ:" + scenarioToString(scenario), TRACE_EVENT_TRACK_ID + scenario);
-            // Scenarios are tracked based on the latest stored timestamp to allow fast lookups
-            // (find index of [timestamp] vs find first index that's >= [timestamp]).
-            Long startingTimestamp = mTimestampsNs.get(mTimestampsNs.size() - 1);
-            mScenarioPreviousFrameTimestampNs.put(scenario, startingTimestamp);
+            // Scenarios are tracked based on the index of the latest stored frame, so finding where
+            // they start doesn't require any search.
+            mScenarioPreviousFrameIndex.put(scenario, mFrameCount - 1 + mRemovedFrameCount);
+            mScenarioAggregators.put(scenario, new JankScenarioAggregator());
         }
     }
 
@@ -137,118 +147,151 @@ public class FrameMetricsStore {
             mThreadChecker.assertOnValidThread();
             TraceEvent.finishAsync(
                     "JankCUJ:" + scenarioToString(scenario), TRACE_EVENT_TRACK_ID + scenario);
-            // Get the timestamp of the latest frame before startTrackingScenario was called. This
-            // can be null if tracking never started for scenario, or 0L if tracking started when no
-            // frames were stored.
-            Long previousFrameTimestamp = mScenarioPreviousFrameTimestampNs.remove(scenario);
+            mScenarioAggregators.remove(scenario);
+            // Get the index of the latest frame before startTrackingScenario was called. This can
+            // be null if tracking never started for scenario, or refer to the placeholder frame if
+            // tracking started when no frames were stored.
+            Long previousFrameIndex = mScenarioPreviousFrameIndex.remove(scenario);
 
             // If stopTrackingScenario is called without a corresponding startTrackingScenario then
             // return an empty FrameMetrics object.
-            if (previousFrameTimestamp == null) {
+            if (previousFrameIndex == null) {
                 removeUnusedFrames();
                 return new JankMetrics();
             }
 
-            int startingIndex = mTimestampsNs.indexOf(previousFrameTimestamp);
-            // The scenario starts with the frame after the tracking timestamp.
-            startingIndex++;
+            // The scenario starts with the frame after the tracking index.
+            int startingIndex = (int) (previousFrameIndex - mRemovedFrameCount) + 1;
 
             // If startingIndex is out of bounds then we haven't recorded any frames since
             // tracking started, return an empty FrameMetrics object.
-            if (startingIndex >= mTimestampsNs.size()) {
+            if (startingIndex >= mFrameCount) {
                 return new JankMetrics();
             }
 
-            // Ending index is exclusive, so this is not out of bounds.
-            int endingIndex = mTimestampsNs.size();
-            if (endScenarioTimeNs > 0) {
-                // binarySearch returns
-                // index of the search key (non-negative value) or (-(insertion point) - 1).
-                // The insertion point is defined as the index of the first element greater than the
-                // key, or a.length if all elements in the array are less than the specified key.
-                endingIndex = Collections.binarySearch(mTimestampsNs, endScenarioTimeNs);
-                if (endingIndex < 0) {
-                    endingIndex = -1 * (endingIndex + 1);
-                } else {
-                    endingIndex = Math.min(endingIndex + 1, mTimestampsNs.size());
-                }
-                if (endingIndex <= startingIndex) {
-                    // Something went wrong reset
-                    TraceEvent.instant("FrameMetricsStore invalid endScenarioTimeNs");
-                    endingIndex = mTimestampsNs.size();
-                }
-            }
-
+            int endingIndex = getEndingIndex(startingIndex, endScenarioTimeNs);
             JankMetrics jankMetrics =
-                    convertArraysToJankMetrics(mTimestampsNs.subList(startingIndex, endingIndex),
-                            mTotalDurationsNs.subList(startingIndex, endingIndex),
-                            mIsJanky.subList(startingIndex, endingIndex));
+                    new JankMetrics(
+                            Arrays.copyOfRange(mTimestampsNs, startingIndex, endingIndex),
+                            Arrays.copyOfRange(mTotalDurationsNs, startingIndex, endingIndex),
+                            Arrays.copyOfRange(mIsJanky, startingIndex, endingIndex));
             removeUnusedFrames();
 
             return jankMetrics;
         }
     }
 
+    JankScenarioAggregator stopTrackingScenarioSummary(@JankScenario int scenario) {
+        return stopTrackingScenarioSummary(scenario, -1);
+    }
+
+    /**
+     * Stops tracking a scenario and returns a fixed size summary of its frames. Unlike {@link
+     * #stopTrackingScenario(int, long)} this doesn't copy the frames of the scenario.
+     */
+    // The string added is a static string.
+    @SuppressWarnings("NoDynamicStringsInTraceEventCheck")
+    JankScenarioAggregator stopTrackingScenarioSummary(
+            @JankScenario int scenario, long endScenarioTimeNs) {
+        try (TraceEvent e =
+                TraceEvent.scoped(
+                        "finishTrackingScenario: " + scenarioToString(scenario),
+                        Long.toString(endScenarioTimeNs))) {
+            mThreadChecker.assertOnValidThread();
+            TraceEvent.finishAsync(
+                    "JankCUJ:" + scenarioToString(scenario), TRACE_EVENT_TRACK_ID + scenario);
+            JankScenarioAggregator aggregator = mScenarioAggregators.remove(scenario);
+            Long previousFrameIndex = mScenarioPreviousFrameIndex.remove(scenario);
+            if (previousFrameIndex == null) {
+                removeUnusedFrames();
+                return new JankScenarioAggregator();
+            }
+
+            // Frames after the end of the scenario may have been aggregated before the end time
+            // was known. This is uncommon, so the summary is then rebuilt from the stored frames.
+            if (endScenarioTimeNs > 0 && aggregator.getLastTimestampNs() > endScenarioTimeNs) {
+                int startingIndex = (int) (previousFrameIndex - mRemovedFrameCount) + 1;
+                int endingIndex = getEndingIndex(startingIndex, endScenarioTimeNs);
+                aggregator = new JankScenarioAggregator();
+                for (int i = startingIndex; i < endingIndex; i++) {
+                    aggregator.addFrame(mTotalDurationsNs[i], mIsJanky[i], mTimestampsNs[i]);
+                }
+            }
+            removeUnusedFrames();
+
+            return aggregator;
+        }
+    }
+
+    /**
+     * Returns the exclusive index of the last stored frame of a scenario starting at {@code
+     * startingIndex} and ending at {@code endScenarioTimeNs}, or at the latest frame if {@code
+     * endScenarioTimeNs} isn't positive.
+     */
+    private int getEndingIndex(int startingIndex, long endScenarioTimeNs) {
+        // Ending index is exclusive, so this is not out of bounds.
+        int endingIndex = mFrameCount;
+        if (endScenarioTimeNs > 0) {
+            // binarySearch returns
+            // index of the search key (non-negative value) or (-(insertion point) - 1).
+            // The insertion point is defined as the index of the first element greater than the
+            // key, or a.length if all elements in the array are less than the specified key.
+            endingIndex = Arrays.binarySearch(mTimestampsNs, 0, mFrameCount, endScenarioTimeNs);
+            if (endingIndex < 0) {
+                endingIndex = -1 * (endingIndex + 1);
+            } else {
+                endingIndex = Math.min(endingIndex + 1, mFrameCount);
+            }
+            if (endingIndex <= startingIndex) {
+                // Something went wrong reset
+                TraceEvent.instant("FrameMetricsStore invalid endScenarioTimeNs");
+                endingIndex = mFrameCount;
+            }
+        }
+        return endingIndex;
+    }
+
     private void removeUnusedFrames() {
-        if (mScenarioPreviousFrameTimestampNs.isEmpty()) {
-            TraceEvent.instant("removeUnusedFrames", Long.toString(mTimestampsNs.size()));
-            mTimestampsNs.subList(1, mTimestampsNs.size()).clear();
-            mTotalDurationsNs.subList(1, mTotalDurationsNs.size()).clear();
-            mIsJanky.subList(1, mIsJanky.size()).clear();
+        if (mScenarioPreviousFrameIndex.isEmpty()) {
+            TraceEvent.instant("removeUnusedFrames", Integer.toString(mFrameCount));
+            mRemovedFrameCount += mFrameCount - 1;
+            mFrameCount = 1;
             return;
         }
 
-        long firstUsedTimestamp = findFirstUsedTimestamp();
-        // If the earliest timestamp tracked is 0 then that scenario contains every frame
+        int firstUsedIndex = (int) (findFirstUsedFrameIndex() - mRemovedFrameCount);
+        // If the earliest frame tracked is the placeholder then that scenario contains every frame
         // stored, so we shouldn't delete anything.
-        if (firstUsedTimestamp == 0L) {
+        if (firstUsedIndex <= 1) {
             return;
         }
-
-        int firstUsedIndex = mTimestampsNs.indexOf(firstUsedTimestamp);
-        if (firstUsedIndex == -1) {
+        if (firstUsedIndex >= mFrameCount) {
             if (BuildConfig.ENABLE_ASSERTS) {
-                throw new IllegalStateException("Timestamp for tracked scenario not found");
+                throw new IllegalStateException("Frame for tracked scenario not found");
             }
             // This shouldn't happen.
             return;
         }
-        TraceEvent.instant("removeUnusedFrames", Long.toString(firstUsedIndex));
+        TraceEvent.instant("removeUnusedFrames", Integer.toString(firstUsedIndex));
 
-        mTimestampsNs.subList(1, firstUsedIndex).clear();
-        mTotalDurationsNs.subList(1, firstUsedIndex).clear();
-        mIsJanky.subList(1, firstUsedIndex).clear();
+        // Keep the placeholder frame and move the frames still in use right after it.
+        int removedCount = firstUsedIndex - 1;
+        int keptCount = mFrameCount - firstUsedIndex;
+        System.arraycopy(mTimestampsNs, firstUsedIndex, mTimestampsNs, 1, keptCount);
+        System.arraycopy(mTotalDurationsNs, firstUsedIndex, mTotalDurationsNs, 1, keptCount);
+        System.arraycopy(mIsJanky, firstUsedIndex, mIsJanky, 1, keptCount);
+        mFrameCount -= removedCount;
+        mRemovedFrameCount += removedCount;
     }
 
-    private long findFirstUsedTimestamp() {
-        long firstTimestamp = Long.MAX_VALUE;
-        for (long timestamp : mScenarioPreviousFrameTimestampNs.values()) {
-            if (timestamp < firstTimestamp) {
-                firstTimestamp = timestamp;
+    private long findFirstUsedFrameIndex() {
+        long firstIndex = Long.MAX_VALUE;
+        for (long index : mScenarioPreviousFrameIndex.values()) {
+            if (index < firstIndex) {
+                firstIndex = index;
             }
         }
 
-        return firstTimestamp;
-    }
-
-    private JankMetrics convertArraysToJankMetrics(
-            List<Long> longTimestampsNs, List<Long> longDurations, List<Boolean> booleanIsJanky) {
-        long[] timestamps = new long[longTimestampsNs.size()];
-        for (int i = 0; i < longTimestampsNs.size(); i++) {
-            timestamps[i] = longTimestampsNs.get(i).longValue();
-        }
-
-        long[] durations = new long[longDurations.size()];
-        for (int i = 0; i < longDurations.size(); i++) {
-            durations[i] = longDurations.get(i).longValue();
-        }
-
-        boolean[] isJanky = new boolean[booleanIsJanky.size()];
-        for (int i = 0; i < booleanIsJanky.size(); i++) {
-            isJanky[i] = booleanIsJanky.get(i).booleanValue();
-        }
-
-        JankMetrics jankMetrics = new JankMetrics(timestamps, durations, isJanky);
-        return jankMetrics;
+        return firstIndex;
     }
 }
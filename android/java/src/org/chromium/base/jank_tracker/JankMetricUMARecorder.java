@@ -21,9 +21,44 @@ public class JankMetricUMARecorder {
                 reportingIntervalStartTime, reportingIntervalDuration, scenario);
     }
 
+    /**
+     * Records a summary of the frames of a scenario. The histograms recorded are the same as the
+     * ones of {@link #recordJankMetricsToUMA}, but the size of the summary doesn't depend on the
+     * number of frames.
+     */
+    public static void recordJankMetricsSummaryToUMA(
+            JankScenarioAggregator summary,
+            long reportingIntervalStartTime,
+            long reportingIntervalDuration,
+            @JankScenario int scenario) {
+        if (summary == null) {
+            return;
+        }
+        JankMetricUMARecorderJni.get()
+                .recordJankMetricsSummary(
+                        summary.getDurationSamplesMs(),
+                        summary.getDurationCounts(),
+                        summary.getJankyFrameCount(),
+                        summary.getFrameCount() - summary.getJankyFrameCount(),
+                        summary.getMaxConsecutiveJankyFrameCount(),
+                        reportingIntervalStartTime,
+                        reportingIntervalDuration,
+                        scenario);
+    }
+
     @NativeMethods
     public interface Natives {
         void recordJankMetrics(long[] durationsNs, boolean[] jankStatus,
                 long reportingIntervalStartTime, long reportingIntervalDuration, int scenario);
+
+        void recordJankMetricsSummary(
+                int[] durationSamplesMs,
+                int[] durationCounts,
+                int jankyFrameCount,
+                int nonJankyFrameCount,
+                int maxConsecutiveJankyFrameCount,
+                long reportingIntervalStartTime,
+                long reportingIntervalDuration,
+                int scenario);
     }
 }
@@ -29,34 +29,69 @@ class JankReportingRunnable implements Runnable {
         @Override
         public void run() {
             try (TraceEvent e = TraceEvent.scoped("ReportingCUJScenarioData", mScenario)) {
-                JankMetrics metrics;
-                if (mJankEndScenarioTime == null) {
-                    metrics = mMetricsStore.stopTrackingScenario(mScenario);
+                // The per frame metrics are only reported while tracing, otherwise a fixed size
+                // summary of the scenario is reported.
+                if (TraceEvent.enabled()) {
+                    reportPerFrameMetrics();
                 } else {
-                    // Since this is after the timeout we just unconditionally get the metrics.
-                    metrics = mMetricsStore.stopTrackingScenario(
-                            mScenario, mJankEndScenarioTime.endScenarioTimeNs);
+                    reportSummary();
                 }
+            }
+        }
 
-                if (metrics == null || metrics.timestampsNs.length == 0) {
-                    TraceEvent.instant("no metrics");
-                    return;
-                }
+        private void reportPerFrameMetrics() {
+            JankMetrics metrics;
+            if (mJankEndScenarioTime == null) {
+                metrics = mMetricsStore.stopTrackingScenario(mScenario);
+            } else {
+                // Since this is after the timeout we just unconditionally get the metrics.
+                metrics = mMetricsStore.stopTrackingScenario(
+                        mScenario, mJankEndScenarioTime.endScenarioTimeNs);
+            }
+
+            if (metrics == null || metrics.timestampsNs.length == 0) {
+                TraceEvent.instant("no metrics");
+                return;
+            }
 
-                long startTime = metrics.timestampsNs[0] / 1000000;
-                long lastTime = metrics.timestampsNs[metrics.timestampsNs.length - 1] / 1000000;
-                long lastDuration = metrics.durationsNs[metrics.durationsNs.length - 1] / 1000000;
-                // The time that we have metrics covering is from the first VSYNC_TIMESTAMP
-                // (startTime) to the last frame has finished (lastTime + lastDuration).
-                long endTime = lastTime - startTime + lastDuration;
+            long startTime = metrics.timestampsNs[0] / 1000000;
+            long lastTime = metrics.timestampsNs[metrics.timestampsNs.length - 1] / 1000000;
+            long lastDuration = metrics.durationsNs[metrics.durationsNs.length - 1] / 1000000;
+            // The time that we have metrics covering is from the first VSYNC_TIMESTAMP
+            // (startTime) to the last frame has finished (lastTime + lastDuration).
+            long endTime = lastTime - startTime + lastDuration;
 
-                // Confirm that the current call context is valid.
-                // Debug builds will assert and fail; release builds will optimize this out.
-                JankMetricUMARecorderJni.get();
-                // TODO(salg@): Cache metrics in case native takes >30s to initialize.
-                JankMetricUMARecorder.recordJankMetricsToUMA(
-                        metrics, startTime, endTime, mScenario);
+            // Confirm that the current call context is valid.
+            // Debug builds will assert and fail; release builds will optimize this out.
+            JankMetricUMARecorderJni.get();
+            // TODO(salg@): Cache metrics in case native takes >30s to initialize.
+            JankMetricUMARecorder.recordJankMetricsToUMA(metrics, startTime, endTime, mScenario);
+        }
+
+        private void reportSummary() {
+            JankScenarioAggregator summary;
+            if (mJankEndScenarioTime == null) {
+                summary = mMetricsStore.stopTrackingScenarioSummary(mScenario);
+            } else {
+                // Since this is after the timeout we just unconditionally get the metrics.
+                summary = mMetricsStore.stopTrackingScenarioSummary(
+                        mScenario, mJankEndScenarioTime.endScenarioTimeNs);
+            }
+
+            if (summary == null || summary.getFrameCount() == 0) {
+                TraceEvent.instant("no metrics");
+                return;
             }
+
+            long startTime = summary.getFirstTimestampNs() / 1000000;
+            long lastTime = summary.getLastTimestampNs() / 1000000;
+            long lastDuration = summary.getLastDurationNs() / 1000000;
+            // Same reporting interval as the per frame metrics above.
+            long endTime = lastTime - startTime + lastDuration;
+
+            JankMetricUMARecorderJni.get();
+            JankMetricUMARecorder.recordJankMetricsSummaryToUMA(
+                    summary, startTime, endTime, mScenario);
         }
     }
 
@@ -0,0 +1,111 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.jank_tracker;
+
+import org.chromium.base.TimeUtils;
+import org.chromium.base.metrics.HistogramBucketRanges;
+
+/**
+ * Summarizes the frames of a single jank scenario as they arrive: a histogram of frame durations,
+ * the number of janky frames and the longest run of consecutive janky frames. Its size doesn't
+ * depend on the number of frames, so a scenario of any length is reported to native with a fixed
+ * size JNI call.
+ */
+class JankScenarioAggregator {
+    // Bucket lower bounds of the Android.FrameTimelineJank.Duration histograms, which are recorded
+    // with UmaHistogramTimes (1ms to 10s in 50 buckets).
+    private static final int[] DURATION_BUCKET_RANGES_MS =
+            HistogramBucketRanges.exponential("Android.FrameTimelineJank.Duration", 1, 10_000, 50);
+
+    // Number of frames with a duration in each bucket of DURATION_BUCKET_RANGES_MS.
+    private final int[] mDurationCounts = new int[DURATION_BUCKET_RANGES_MS.length];
+    private int mFrameCount;
+    private int mJankyFrameCount;
+    private int mConsecutiveJankyFrameCount;
+    private int mMaxConsecutiveJankyFrameCount;
+    // Timestamps and durations stored in nanoseconds, see FrameMetricsStore.
+    private long mFirstTimestampNs;
+    private long mLastTimestampNs;
+    private long mLastDurationNs;
+
+    /** Adds a frame to the summary, frames must be added in timestamp order. */
+    void addFrame(long totalDurationNs, boolean isJanky, long frameStartVsyncTs) {
+        // Native records durations truncated to milliseconds.
+        long durationMs = totalDurationNs / TimeUtils.NANOSECONDS_PER_MILLISECOND;
+        int sample = (int) Math.min(durationMs, Integer.MAX_VALUE);
+        mDurationCounts[HistogramBucketRanges.getBucketIndex(DURATION_BUCKET_RANGES_MS, sample)]++;
+
+        if (isJanky) {
+            mJankyFrameCount++;
+            mConsecutiveJankyFrameCount++;
+            mMaxConsecutiveJankyFrameCount =
+                    Math.max(mMaxConsecutiveJankyFrameCount, mConsecutiveJankyFrameCount);
+        } else {
+            mConsecutiveJankyFrameCount = 0;
+        }
+
+        if (mFrameCount == 0) {
+            mFirstTimestampNs = frameStartVsyncTs;
+        }
+        mLastTimestampNs = frameStartVsyncTs;
+        mLastDurationNs = totalDurationNs;
+        mFrameCount++;
+    }
+
+    int getFrameCount() {
+        return mFrameCount;
+    }
+
+    int getJankyFrameCount() {
+        return mJankyFrameCount;
+    }
+
+    int getMaxConsecutiveJankyFrameCount() {
+        return mMaxConsecutiveJankyFrameCount;
+    }
+
+    long getFirstTimestampNs() {
+        return mFirstTimestampNs;
+    }
+
+    long getLastTimestampNs() {
+        return mLastTimestampNs;
+    }
+
+    long getLastDurationNs() {
+        return mLastDurationNs;
+    }
+
+    /**
+     * Returns a sample in milliseconds for each non empty bucket of the duration histogram, in the
+     * same order as {@link #getDurationCounts()}. Samples are the lower bound of their bucket.
+     */
+    int[] getDurationSamplesMs() {
+        int[] samples = new int[getNonEmptyBucketCount()];
+        for (int i = 0, j = 0; i < mDurationCounts.length; i++) {
+            if (mDurationCounts[i] == 0) continue;
+            samples[j++] = DURATION_BUCKET_RANGES_MS[i];
+        }
+        return samples;
+    }
+
+    /** Returns the number of frames in each non empty bucket of the duration histogram. */
+    int[] getDurationCounts() {
+        int[] counts = new int[getNonEmptyBucketCount()];
+        for (int i = 0, j = 0; i < mDurationCounts.length; i++) {
+            if (mDurationCounts[i] == 0) continue;
+            counts[j++] = mDurationCounts[i];
+        }
+        return counts;
+    }
+
+    private int getNonEmptyBucketCount() {
+        int count = 0;
+        for (int durationCount : mDurationCounts) {
+            if (durationCount != 0) count++;
+        }
+        return count;
+    }
+}
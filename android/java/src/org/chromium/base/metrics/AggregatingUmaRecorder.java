@@ -0,0 +1,375 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.metrics;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.chromium.base.ApplicationState;
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.Callback;
+import org.chromium.base.task.PostTask;
+import org.chromium.base.task.TaskTraits;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An {@link UmaRecorder} decorator that counts samples of selected histograms locally and forwards
+ * the counts to its delegate periodically, rather than forwarding every sample.
+ * <p>
+ * Meant for histograms recorded at a very high rate, where one JNI call per sample is too costly.
+ * Samples are counted per bucket, using the same bucket layout as the native histogram, in
+ * per-thread counters. Bucket deltas are forwarded every {@code flushIntervalMs}, and when the
+ * application goes to the background. When the delegate is a {@link NativeUmaRecorder}, each
+ * histogram is flushed with a single JNI call.
+ * <p>
+ * Only exponential and linear histograms are aggregated. Other histograms, and histograms that
+ * haven't been registered for aggregation, are forwarded immediately.
+ */
+/* package */ final class AggregatingUmaRecorder
+        implements UmaRecorder, ApplicationStatus.ApplicationStateListener {
+    /** Counts the samples of a single aggregated histogram. */
+    @VisibleForTesting
+    static final class AggregatedHistogram {
+        @CachingUmaRecorder.Histogram.Type private final int mType;
+        private final HistogramHandle mHandle;
+        private final int mMin;
+        private final int mMax;
+        private final int mNumBuckets;
+
+        /** Lower bound of each bucket, including the underflow bucket. */
+        private final int[] mRanges;
+
+        /** Counts of the thread recording into this histogram, indexed by bucket. */
+        private final ThreadLocal<AtomicIntegerArray> mThreadCounts =
+                new ThreadLocal<AtomicIntegerArray>() {
+                    @Override
+                    protected AtomicIntegerArray initialValue() {
+                        AtomicIntegerArray counts = new AtomicIntegerArray(mRanges.length);
+                        mAllCounts.add(counts);
+                        return counts;
+                    }
+                };
+
+        /** Counts of all threads that ever recorded into this histogram. */
+        private final List<AtomicIntegerArray> mAllCounts = new CopyOnWriteArrayList<>();
+
+        AggregatedHistogram(
+                @CachingUmaRecorder.Histogram.Type int type,
+                String name,
+                int min,
+                int max,
+                int numBuckets) {
+            assert type == CachingUmaRecorder.Histogram.Type.EXPONENTIAL
+                    || type == CachingUmaRecorder.Histogram.Type.LINEAR;
+            mType = type;
+            mHandle = new HistogramHandle(name);
+            mMin = min;
+            mMax = max;
+            mNumBuckets = numBuckets;
+            mRanges =
+                    type == CachingUmaRecorder.Histogram.Type.EXPONENTIAL
+                            ? HistogramBucketRanges.exponential(name, min, max, numBuckets)
+                            : HistogramBucketRanges.linear(name, min, max, numBuckets);
+        }
+
+        /** Returns whether this histogram was created with the given definition. */
+        boolean hasDefinition(
+                @CachingUmaRecorder.Histogram.Type int type, int min, int max, int numBuckets) {
+            return mType == type && mMin == min && mMax == max && mNumBuckets == numBuckets;
+        }
+
+        /** Counts {@code sample} in its bucket. */
+        void addSample(int sample) {
+            mThreadCounts.get().incrementAndGet(getBucketIndex(sample));
+        }
+
+        /** Returns the index of the bucket {@code sample} falls in. */
+        @VisibleForTesting
+        int getBucketIndex(int sample) {
+            return HistogramBucketRanges.getBucketIndex(mRanges, sample);
+        }
+
+        /** Returns the lower bound of the bucket at {@code index}. */
+        @VisibleForTesting
+        int getBucketMin(int index) {
+            return mRanges[index];
+        }
+
+        /**
+         * Forwards counts accumulated since the previous flush to {@code recorder} and resets
+         * them.
+         *
+         * @return number of forwarded samples.
+         */
+        int flushTo(UmaRecorder recorder) {
+            int[] counts = new int[mRanges.length];
+            boolean hasSamples = false;
+            for (AtomicIntegerArray threadCounts : mAllCounts) {
+                for (int i = 0; i < counts.length; i++) {
+                    if (threadCounts.get(i) == 0) continue;
+                    counts[i] += threadCounts.getAndSet(i, 0);
+                    hasSamples = true;
+                }
+            }
+            if (!hasSamples) return 0;
+
+            // Only buckets with samples are forwarded, lower bounds stand in for the samples.
+            int bucketCount = 0;
+            int sampleCount = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) bucketCount++;
+            }
+            int[] samples = new int[bucketCount];
+            int[] sampleCounts = new int[bucketCount];
+            for (int i = 0, j = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                samples[j] = mRanges[i];
+                sampleCounts[j] = counts[i];
+                sampleCount += counts[i];
+                j++;
+            }
+
+            if (recorder instanceof NativeUmaRecorder) {
+                ((NativeUmaRecorder) recorder)
+                        .recordHistogramCounts(
+                                mType, mHandle, mMin, mMax, mNumBuckets, samples, sampleCounts);
+                return sampleCount;
+            }
+            for (int i = 0; i < samples.length; i++) {
+                for (int j = 0; j < sampleCounts[i]; j++) {
+                    if (mType == CachingUmaRecorder.Histogram.Type.EXPONENTIAL) {
+                        recorder.recordExponentialHistogram(
+                                mHandle, samples[i], mMin, mMax, mNumBuckets);
+                    } else {
+                        recorder.recordLinearHistogram(
+                                mHandle, samples[i], mMin, mMax, mNumBuckets);
+                    }
+                }
+            }
+            return sampleCount;
+        }
+    }
+
+    private final UmaRecorder mDelegate;
+    private final long mFlushIntervalMs;
+
+    /** Names of histograms to aggregate. */
+    private final Set<String> mAggregatedNames;
+
+    /** Aggregated histograms keyed by name, created when their first sample is recorded. */
+    private final ConcurrentHashMap<String, AggregatedHistogram> mHistogramByName =
+            new ConcurrentHashMap<>();
+
+    /** Whether a flush task is posted. */
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+
+    /**
+     * @param delegate the {@link UmaRecorder} samples are forwarded to.
+     * @param aggregatedNames names of histograms to aggregate.
+     * @param flushIntervalMs maximum delay before aggregated samples are forwarded to {@code
+     *         delegate}.
+     */
+    AggregatingUmaRecorder(
+            UmaRecorder delegate, Collection<String> aggregatedNames, long flushIntervalMs) {
+        assert flushIntervalMs > 0;
+        mDelegate = delegate;
+        mAggregatedNames = new HashSet<>(aggregatedNames);
+        mFlushIntervalMs = flushIntervalMs;
+    }
+
+    /** Returns the {@link UmaRecorder} samples are forwarded to. */
+    UmaRecorder getDelegate() {
+        return mDelegate;
+    }
+
+    /**
+     * Starts flushing aggregated samples when the application goes to the background. Must be
+     * called at most once.
+     */
+    void registerApplicationStateListener() {
+        PostTask.runOrPostTask(
+                TaskTraits.UI_DEFAULT,
+                () -> ApplicationStatus.registerApplicationStateListener(this));
+    }
+
+    @Override
+    public void onApplicationStateChange(@ApplicationState int newState) {
+        if (newState == ApplicationState.HAS_STOPPED_ACTIVITIES
+                || newState == ApplicationState.HAS_DESTROYED_ACTIVITIES) {
+            flush();
+        }
+    }
+
+    /**
+     * Forwards all aggregated samples to the delegate.
+     *
+     * @return number of forwarded samples.
+     */
+    @VisibleForTesting
+    int flush() {
+        int sampleCount = 0;
+        for (AggregatedHistogram histogram : mHistogramByName.values()) {
+            sampleCount += histogram.flushTo(mDelegate);
+        }
+        return sampleCount;
+    }
+
+    /** Posts a task to flush aggregated samples, unless one is already posted. */
+    private void maybeScheduleFlush() {
+        if (mFlushScheduled.get() || !mFlushScheduled.compareAndSet(false, true)) return;
+        PostTask.postDelayedTask(
+                TaskTraits.BEST_EFFORT,
+                () -> {
+                    // Cleared before flushing so that samples recorded during the flush schedule
+                    // another one.
+                    mFlushScheduled.set(false);
+                    flush();
+                },
+                mFlushIntervalMs);
+    }
+
+    /**
+     * Counts a sample if the histogram is aggregated.
+     *
+     * @return {@code false} if the sample needs to be forwarded to the delegate.
+     */
+    private boolean maybeAggregate(
+            @CachingUmaRecorder.Histogram.Type int type,
+            String name,
+            int sample,
+            int min,
+            int max,
+            int numBuckets) {
+        AggregatedHistogram histogram = mHistogramByName.get(name);
+        if (histogram == null) {
+            if (!mAggregatedNames.contains(name)) return false;
+            AggregatedHistogram newHistogram =
+                    new AggregatedHistogram(type, name, min, max, numBuckets);
+            histogram = mHistogramByName.putIfAbsent(name, newHistogram);
+            if (histogram == null) histogram = newHistogram;
+        }
+        if (!histogram.hasDefinition(type, min, max, numBuckets)) {
+            assert false : "Histogram " + name + " recorded with different definitions";
+            return false;
+        }
+        histogram.addSample(sample);
+        maybeScheduleFlush();
+        return true;
+    }
+
+    @Override
+    public void recordBooleanHistogram(String name, boolean sample) {
+        mDelegate.recordBooleanHistogram(name, sample);
+    }
+
+    @Override
+    public void recordExponentialHistogram(
+            String name, int sample, int min, int max, int numBuckets) {
+        if (maybeAggregate(
+                CachingUmaRecorder.Histogram.Type.EXPONENTIAL,
+                name,
+                sample,
+                min,
+                max,
+                numBuckets)) {
+            return;
+        }
+        mDelegate.recordExponentialHistogram(name, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordLinearHistogram(String name, int sample, int min, int max, int numBuckets) {
+        if (maybeAggregate(
+                CachingUmaRecorder.Histogram.Type.LINEAR, name, sample, min, max, numBuckets)) {
+            return;
+        }
+        mDelegate.recordLinearHistogram(name, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordSparseHistogram(String name, int sample) {
+        mDelegate.recordSparseHistogram(name, sample);
+    }
+
+    @Override
+    public void recordBooleanHistogram(HistogramHandle handle, boolean sample) {
+        mDelegate.recordBooleanHistogram(handle, sample);
+    }
+
+    @Override
+    public void recordExponentialHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        if (maybeAggregate(
+                CachingUmaRecorder.Histogram.Type.EXPONENTIAL,
+                handle.getName(),
+                sample,
+                min,
+                max,
+                numBuckets)) {
+            return;
+        }
+        mDelegate.recordExponentialHistogram(handle, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordLinearHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        if (maybeAggregate(
+                CachingUmaRecorder.Histogram.Type.LINEAR,
+                handle.getName(),
+                sample,
+                min,
+                max,
+                numBuckets)) {
+            return;
+        }
+        mDelegate.recordLinearHistogram(handle, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordSparseHistogram(HistogramHandle handle, int sample) {
+        mDelegate.recordSparseHistogram(handle, sample);
+    }
+
+    @Override
+    public void recordUserAction(String name, long elapsedRealtimeMillis) {
+        mDelegate.recordUserAction(name, elapsedRealtimeMillis);
+    }
+
+    @Override
+    public int getHistogramValueCountForTesting(String name, int sample) {
+        flush();
+        return mDelegate.getHistogramValueCountForTesting(name, sample);
+    }
+
+    @Override
+    public int getHistogramTotalCountForTesting(String name) {
+        flush();
+        return mDelegate.getHistogramTotalCountForTesting(name);
+    }
+
+    @Override
+    public List<HistogramBucket> getHistogramSamplesForTesting(String name) {
+        flush();
+        return mDelegate.getHistogramSamplesForTesting(name);
+    }
+
+    @Override
+    public void addUserActionCallbackForTesting(Callback<String> callback) {
+        mDelegate.addUserActionCallbackForTesting(callback);
+    }
+
+    @Override
+    public void removeUserActionCallbackForTesting(Callback<String> callback) {
+        mDelegate.removeUserActionCallbackForTesting(callback);
+    }
+}
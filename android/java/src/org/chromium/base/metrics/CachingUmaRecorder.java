@@ -19,9 +19,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -40,7 +39,8 @@ import javax.annotation.concurrent.GuardedBy;
      * <p>
      * Each sample uses 4 bytes, each histogram uses approx. 12 references (at least 4 bytes each).
      * With {@code MAX_HISTOGRAM_COUNT = 256} and {@code MAX_SAMPLE_COUNT = 256} this limits cache
-     * size to 270KiB. Changing either value by one, adds or removes approx. 1KiB.
+     * size to 270KiB. Changing either value by one, adds or removes approx. 1KiB. Sample buffers
+     * grow on demand, so a histogram with few samples only pays for what it records.
      */
     private static final int MAX_HISTOGRAM_COUNT = 256;
 
@@ -61,6 +61,13 @@ import javax.annotation.concurrent.GuardedBy;
         @VisibleForTesting
         static final int MAX_SAMPLE_COUNT = 256;
 
+        /**
+         * Capacity of the sample buffer of a newly created histogram. Most histograms recorded
+         * before native is loaded only get a handful of samples.
+         */
+        @VisibleForTesting
+        static final int INITIAL_SAMPLE_CAPACITY = 4;
+
         /**
          * Identifies the type of the histogram.
          */
@@ -100,8 +107,25 @@ import javax.annotation.concurrent.GuardedBy;
         private final int mMax;
         private final int mNumBuckets;
 
+        /** Samples of a flushed histogram, which no longer needs a buffer. */
+        private static final int[] NO_SAMPLES = new int[0];
+
+        /**
+         * Generation of the cache this histogram belongs to, or {@code 0}. Used to tell whether a
+         * {@link HistogramHandle} still points at a live cache entry, without referencing the
+         * cache itself: handles live in static fields and would otherwise keep it alive.
+         */
+        private final int mCacheGeneration;
+
+        /**
+         * Cached samples, only the first {@link #mSampleCount} entries are valid. Stored as
+         * primitives to avoid boxing every sample.
+         */
+        @GuardedBy("this")
+        private int[] mSamples;
+
         @GuardedBy("this")
-        private final List<Integer> mSamples;
+        private int mSampleCount;
 
         /**
          * Constructs a {@code Histogram} with the specified definition and no samples.
@@ -114,6 +138,21 @@ import javax.annotation.concurrent.GuardedBy;
          *         histograms.
          */
         Histogram(@Type int type, String name, int min, int max, int numBuckets) {
+            this(type, name, min, max, numBuckets, 0);
+        }
+
+        /**
+         * Constructs a {@code Histogram} stored in a cache.
+         *
+         * @param cacheGeneration generation of the cache this histogram is put in.
+         */
+        Histogram(
+                @Type int type,
+                String name,
+                int min,
+                int max,
+                int numBuckets,
+                int cacheGeneration) {
             assert type == Type.EXPONENTIAL || type == Type.LINEAR
                     || (min == 0 && max == 0 && numBuckets == 0)
                 : "Histogram type " + type + " must have no min/max/buckets set";
@@ -122,8 +161,14 @@ import javax.annotation.concurrent.GuardedBy;
             mMin = min;
             mMax = max;
             mNumBuckets = numBuckets;
+            mCacheGeneration = cacheGeneration;
 
-            mSamples = new ArrayList<>(/*initialCapacity=*/1);
+            mSamples = new int[INITIAL_SAMPLE_CAPACITY];
+        }
+
+        /** Returns whether this histogram was created for the cache of {@code cacheGeneration}. */
+        boolean isInCache(int cacheGeneration) {
+            return mCacheGeneration == cacheGeneration;
         }
 
         /**
@@ -147,53 +192,95 @@ import javax.annotation.concurrent.GuardedBy;
             assert mMin == min;
             assert mMax == max;
             assert mNumBuckets == numBuckets;
-            if (mSamples.size() >= MAX_SAMPLE_COUNT) {
+            if (mSampleCount >= MAX_SAMPLE_COUNT) {
                 // A cache filling up is most likely an indication of a bug.
                 assert false : "Histogram exceeded sample cache size limit";
                 return false;
             }
-            mSamples.add(sample);
+            if (mSampleCount == mSamples.length) {
+                int capacity = Math.max(INITIAL_SAMPLE_CAPACITY, mSamples.length * 2);
+                mSamples = Arrays.copyOf(mSamples, Math.min(capacity, MAX_SAMPLE_COUNT));
+            }
+            mSamples[mSampleCount++] = sample;
             return true;
         }
 
+        /** Returns the number of cached samples. */
+        synchronized int getSampleCount() {
+            return mSampleCount;
+        }
+
+        /** Returns the number of cached samples equal to {@code sample}. */
+        synchronized int getSampleCount(int sample) {
+            int count = 0;
+            for (int i = 0; i < mSampleCount; i++) {
+                if (mSamples[i] == sample) count++;
+            }
+            return count;
+        }
+
+        /** Returns a copy of the cached samples. */
+        synchronized int[] copySamples() {
+            return Arrays.copyOf(mSamples, mSampleCount);
+        }
+
         /**
-         * Writes all histogram samples to {@code recorder}, clears the cache.
+         * Writes all histogram samples to {@code recorder}, clears the cache and releases the
+         * sample buffer, as handles may still reference this histogram.
          *
          * @param recorder destination {@link UmaRecorder}.
          * @return number of flushed histogram samples.
          */
         synchronized int flushTo(UmaRecorder recorder) {
+            if (recorder instanceof NativeUmaRecorder) {
+                // Cross JNI once per histogram rather than once per sample.
+                ((NativeUmaRecorder) recorder)
+                        .recordHistogramSamples(
+                                mType, mName, mMin, mMax, mNumBuckets, mSamples, mSampleCount);
+            } else {
+                flushSamplesOneByOne(recorder);
+            }
+            int count = mSampleCount;
+            mSampleCount = 0;
+            mSamples = NO_SAMPLES;
+            return count;
+        }
+
+        /**
+         * Writes histogram samples to {@code recorder} one at a time.
+         *
+         * @param recorder destination {@link UmaRecorder}.
+         */
+        @GuardedBy("this")
+        private void flushSamplesOneByOne(UmaRecorder recorder) {
             switch (mType) {
                 case Type.BOOLEAN:
-                    for (int i = 0; i < mSamples.size(); i++) {
-                        final int sample = mSamples.get(i);
+                    for (int i = 0; i < mSampleCount; i++) {
+                        final int sample = mSamples[i];
                         recorder.recordBooleanHistogram(mName, sample != 0);
                     }
                     break;
                 case Type.EXPONENTIAL:
-                    for (int i = 0; i < mSamples.size(); i++) {
-                        final int sample = mSamples.get(i);
+                    for (int i = 0; i < mSampleCount; i++) {
+                        final int sample = mSamples[i];
                         recorder.recordExponentialHistogram(mName, sample, mMin, mMax, mNumBuckets);
                     }
                     break;
                 case Type.LINEAR:
-                    for (int i = 0; i < mSamples.size(); i++) {
-                        final int sample = mSamples.get(i);
+                    for (int i = 0; i < mSampleCount; i++) {
+                        final int sample = mSamples[i];
                         recorder.recordLinearHistogram(mName, sample, mMin, mMax, mNumBuckets);
                     }
                     break;
                 case Type.SPARSE:
-                    for (int i = 0; i < mSamples.size(); i++) {
-                        final int sample = mSamples.get(i);
+                    for (int i = 0; i < mSampleCount; i++) {
+                        final int sample = mSamples[i];
                         recorder.recordSparseHistogram(mName, sample);
                     }
                     break;
                 default:
                     assert false : "Unknown histogram type " + mType;
             }
-            int count = mSamples.size();
-            mSamples.clear();
-            return count;
         }
     }
 
@@ -222,9 +309,33 @@ import javax.annotation.concurrent.GuardedBy;
      */
     private final ReentrantReadWriteLock mRwLock = new ReentrantReadWriteLock(/*fair=*/false);
 
-    /** Cached histograms keyed by histogram name. */
+    /**
+     * Cached histograms keyed by histogram name.
+     * <p>
+     * The reference is only replaced with the write lock held. The map itself is concurrent, so
+     * histograms are looked up and inserted while holding only the read lock, which lets threads
+     * recording different histograms proceed without contending on the write lock.
+     */
+    @GuardedBy("mRwLock")
+    private ConcurrentHashMap<String, Histogram> mHistogramByName = new ConcurrentHashMap<>();
+
+    /**
+     * Number of histograms in {@link #mHistogramByName}, including slots reserved by threads that
+     * are about to insert a histogram. Used to enforce {@link #MAX_HISTOGRAM_COUNT} without
+     * holding the write lock.
+     */
+    private final AtomicInteger mHistogramCount = new AtomicInteger();
+
+    /** Last generation given to a histogram cache, by any {@code CachingUmaRecorder}. */
+    private static final AtomicInteger sLastCacheGeneration = new AtomicInteger();
+
+    /**
+     * Generation of {@link #mHistogramByName}, unique across recorders. Changes whenever the
+     * cache is replaced, so that {@link HistogramHandle}s pointing at flushed histograms are
+     * detected.
+     */
     @GuardedBy("mRwLock")
-    private Map<String, Histogram> mHistogramByName = new HashMap<>();
+    private int mCacheGeneration = sLastCacheGeneration.incrementAndGet();
 
     /**
      * Number of histogram samples that couldn't be cached, because some limit of cache size been
@@ -267,7 +378,7 @@ import javax.annotation.concurrent.GuardedBy;
      */
     public UmaRecorder setDelegate(@Nullable final UmaRecorder recorder) {
         UmaRecorder previous;
-        Map<String, Histogram> histogramCache = null;
+        ConcurrentHashMap<String, Histogram> histogramCache = null;
         int droppedHistogramSampleCount = 0;
         List<UserAction> userActionCache = null;
         int droppedUserActionCount = 0;
@@ -284,7 +395,9 @@ import javax.annotation.concurrent.GuardedBy;
             }
             if (!mHistogramByName.isEmpty()) {
                 histogramCache = mHistogramByName;
-                mHistogramByName = new HashMap<>();
+                mHistogramByName = new ConcurrentHashMap<>();
+                mCacheGeneration = sLastCacheGeneration.incrementAndGet();
+                mHistogramCount.set(0);
                 droppedHistogramSampleCount = mDroppedHistogramSampleCount.getAndSet(0);
             }
             if (!mUserActions.isEmpty()) {
@@ -322,13 +435,19 @@ import javax.annotation.concurrent.GuardedBy;
      */
     @GuardedBy("mRwLock")
     private void flushHistogramsAlreadyLocked(
-            Map<String, Histogram> cache, int droppedHistogramSampleCount) {
+            ConcurrentHashMap<String, Histogram> cache, int droppedHistogramSampleCount) {
         assert mDelegate != null : "Unexpected: cache is flushed, but delegate is null";
         assert mRwLock.getReadHoldCount() > 0;
+        // Cached samples are already batched, so they skip aggregation to reach the bulk path of
+        // NativeUmaRecorder.
+        UmaRecorder recorder = mDelegate;
+        if (recorder instanceof AggregatingUmaRecorder) {
+            recorder = ((AggregatingUmaRecorder) recorder).getDelegate();
+        }
         int flushedHistogramSampleCount = 0;
         final int flushedHistogramCount = cache.size();
         for (Histogram histogram : cache.values()) {
-            flushedHistogramSampleCount += histogram.flushTo(mDelegate);
+            flushedHistogramSampleCount += histogram.flushTo(recorder);
         }
         Log.i(TAG, "Flushed %d samples from %d histograms, %d samples were dropped.",
                 flushedHistogramSampleCount, flushedHistogramCount, droppedHistogramSampleCount);
@@ -355,104 +474,102 @@ import javax.annotation.concurrent.GuardedBy;
     /**
      * Forwards or stores a histogram sample. Stores samples iff there is no delegate {@link
      * UmaRecorder} set.
+     * <p>
+     * Only the read lock is taken: new histograms are inserted into the concurrent {@link
+     * #mHistogramByName} and samples are appended under the monitor of their own {@link
+     * Histogram}, so threads recording different histograms don't block each other.
      *
      * @param type histogram type.
      * @param name histogram name.
+     * @param handle handle of the histogram, or {@code null} if it is recorded by name.
      * @param sample sample value.
      * @param min histogram min value.
      * @param max histogram max value.
      * @param numBuckets number of histogram buckets.
      */
     private void cacheOrRecordHistogramSample(
-            @Histogram.Type int type, String name, int sample, int min, int max, int numBuckets) {
-        // Optimistic attempt without creating a Histogram.
-        if (tryAppendOrRecordSample(type, name, sample, min, max, numBuckets)) {
-            return;
-        }
-
-        mRwLock.writeLock().lock();
-        try {
-            if (mDelegate == null) {
-                cacheHistogramSampleAlreadyWriteLocked(type, name, sample, min, max, numBuckets);
-                return; // Skip the lock downgrade.
-            }
-            // Downgrade by acquiring read lock before releasing write lock
-            mRwLock.readLock().lock();
-        } finally {
-            mRwLock.writeLock().unlock();
-        }
-
-        // Downgraded to read lock.
-        // See base/android/java/src/org/chromium/base/metrics/forwarding_synchronization.md
-        try {
-            assert mDelegate != null;
-            recordHistogramSampleAlreadyLocked(type, name, sample, min, max, numBuckets);
-        } finally {
-            mRwLock.readLock().unlock();
-        }
-    }
-
-    /**
-     * Tries to cache or record a histogram sample without creating a new {@link Histogram}.
-     *
-     * @param type histogram type.
-     * @param name histogram name.
-     * @param sample sample value.
-     * @param min histogram min value.
-     * @param max histogram max value.
-     * @param numBuckets number of histogram buckets.
-     * @return {@code false} if the sample needs to be recorded with a write lock.
-     */
-    private boolean tryAppendOrRecordSample(
-            @Histogram.Type int type, String name, int sample, int min, int max, int numBuckets) {
+            @Histogram.Type int type,
+            String name,
+            @Nullable HistogramHandle handle,
+            int sample,
+            int min,
+            int max,
+            int numBuckets) {
         mRwLock.readLock().lock();
         try {
             if (mDelegate != null) {
-                recordHistogramSampleAlreadyLocked(type, name, sample, min, max, numBuckets);
-                return true;
+                recordHistogramSampleAlreadyLocked(
+                        type, name, handle, sample, min, max, numBuckets);
+                return;
             }
-            Histogram histogram = mHistogramByName.get(name);
+            Histogram histogram = handle != null ? getCachedHistogramAlreadyLocked(handle) : null;
             if (histogram == null) {
-                return false;
+                histogram = getOrCreateHistogramAlreadyLocked(type, name, min, max, numBuckets);
+                if (handle != null && histogram != null) handle.setCachedHistogram(histogram);
             }
-            if (!histogram.addSample(type, name, sample, min, max, numBuckets)) {
+            if (histogram == null
+                    || !histogram.addSample(type, name, sample, min, max, numBuckets)) {
                 mDroppedHistogramSampleCount.incrementAndGet();
             }
-            return true;
         } finally {
             mRwLock.readLock().unlock();
         }
     }
 
     /**
-     * Appends a histogram {@code sample} to a cached {@link Histogram}. Creates the {@code
-     * Histogram} if needed. Assumes that the <b>write lock</b> is held by the current thread.
+     * Returns the {@link Histogram} remembered by {@code handle} if it belongs to the current
+     * cache. This lets handles skip the lookup by name. Assumes that a read lock is held by the
+     * current thread.
+     *
+     * @param handle handle of the histogram.
+     * @return the cached histogram, or {@code null} if {@code handle} doesn't remember a histogram
+     *         from the current cache.
+     */
+    @GuardedBy("mRwLock")
+    @Nullable
+    private Histogram getCachedHistogramAlreadyLocked(HistogramHandle handle) {
+        assert mRwLock.getReadHoldCount() > 0;
+        Histogram histogram = handle.getCachedHistogram();
+        // The histogram may come from a cache that has since been flushed, or from another
+        // CachingUmaRecorder.
+        if (histogram == null || !histogram.isInCache(mCacheGeneration)) return null;
+        return histogram;
+    }
+
+    /**
+     * Returns the cached {@link Histogram} for {@code name}, creating it if needed. Assumes that a
+     * read lock is held by the current thread.
      *
      * @param type histogram type.
      * @param name histogram name.
-     * @param sample sample value.
      * @param min histogram min value.
      * @param max histogram max value.
      * @param numBuckets number of histogram buckets.
+     * @return the cached histogram, or {@code null} if the cache has reached {@link
+     *         #MAX_HISTOGRAM_COUNT}.
      */
     @GuardedBy("mRwLock")
-    private void cacheHistogramSampleAlreadyWriteLocked(
-            @Histogram.Type int type, String name, int sample, int min, int max, int numBuckets) {
-        assert mRwLock.isWriteLockedByCurrentThread();
+    @Nullable
+    private Histogram getOrCreateHistogramAlreadyLocked(
+            @Histogram.Type int type, String name, int min, int max, int numBuckets) {
+        assert mRwLock.getReadHoldCount() > 0;
         Histogram histogram = mHistogramByName.get(name);
-        if (histogram == null) {
-            if (mHistogramByName.size() >= MAX_HISTOGRAM_COUNT) {
-                // A cache filling up is most likely an indication of a bug.
-                assert false : "Too many histograms in cache";
-                mDroppedHistogramSampleCount.incrementAndGet();
-                return;
-            }
-            histogram = new Histogram(type, name, min, max, numBuckets);
-            mHistogramByName.put(name, histogram);
+        if (histogram != null) return histogram;
+
+        if (mHistogramCount.incrementAndGet() > MAX_HISTOGRAM_COUNT) {
+            mHistogramCount.decrementAndGet();
+            // A cache filling up is most likely an indication of a bug.
+            assert false : "Too many histograms in cache";
+            return null;
         }
-        if (!histogram.addSample(type, name, sample, min, max, numBuckets)) {
-            mDroppedHistogramSampleCount.incrementAndGet();
+        Histogram newHistogram = new Histogram(type, name, min, max, numBuckets, mCacheGeneration);
+        histogram = mHistogramByName.putIfAbsent(name, newHistogram);
+        if (histogram != null) {
+            // Another thread created the histogram first, release the reserved slot.
+            mHistogramCount.decrementAndGet();
+            return histogram;
         }
+        return newHistogram;
     }
 
     /**
@@ -461,6 +578,7 @@ import javax.annotation.concurrent.GuardedBy;
      *
      * @param type histogram type.
      * @param name histogram name.
+     * @param handle handle of the histogram, or {@code null} if it is recorded by name.
      * @param sample sample value.
      * @param min histogram min value.
      * @param max histogram max value.
@@ -468,10 +586,23 @@ import javax.annotation.concurrent.GuardedBy;
      */
     @GuardedBy("mRwLock")
     private void recordHistogramSampleAlreadyLocked(
-            @Histogram.Type int type, String name, int sample, int min, int max, int numBuckets) {
+            @Histogram.Type int type,
+            String name,
+            @Nullable HistogramHandle handle,
+            int sample,
+            int min,
+            int max,
+            int numBuckets) {
         assert mRwLock.getReadHoldCount() > 0;
         assert !mRwLock.isWriteLockedByCurrentThread();
         assert mDelegate != null : "recordSampleAlreadyLocked called with no delegate to record to";
+        if (handle != null) {
+            // The cache was flushed, the handle no longer needs its histogram.
+            if (handle.getCachedHistogram() != null) handle.clearCachedHistogram();
+            recordHistogramSampleWithHandleAlreadyLocked(
+                    type, handle, sample, min, max, numBuckets);
+            return;
+        }
         switch (type) {
             case Histogram.Type.BOOLEAN:
                 mDelegate.recordBooleanHistogram(name, sample != 0);
@@ -490,25 +621,57 @@ import javax.annotation.concurrent.GuardedBy;
         }
     }
 
+    /**
+     * Forwards a histogram sample identified by a {@link HistogramHandle} to the delegate. Assumes
+     * that a read lock is held by the current thread.
+     */
+    @GuardedBy("mRwLock")
+    private void recordHistogramSampleWithHandleAlreadyLocked(
+            @Histogram.Type int type,
+            HistogramHandle handle,
+            int sample,
+            int min,
+            int max,
+            int numBuckets) {
+        switch (type) {
+            case Histogram.Type.BOOLEAN:
+                mDelegate.recordBooleanHistogram(handle, sample != 0);
+                break;
+            case Histogram.Type.EXPONENTIAL:
+                mDelegate.recordExponentialHistogram(handle, sample, min, max, numBuckets);
+                break;
+            case Histogram.Type.LINEAR:
+                mDelegate.recordLinearHistogram(handle, sample, min, max, numBuckets);
+                break;
+            case Histogram.Type.SPARSE:
+                mDelegate.recordSparseHistogram(handle, sample);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown histogram type " + type);
+        }
+    }
+
     @Override
     public void recordBooleanHistogram(String name, boolean boolSample) {
         final int sample = boolSample ? 1 : 0;
         final int min = 0;
         final int max = 0;
         final int numBuckets = 0;
-        cacheOrRecordHistogramSample(Histogram.Type.BOOLEAN, name, sample, min, max, numBuckets);
+        cacheOrRecordHistogramSample(
+                Histogram.Type.BOOLEAN, name, null, sample, min, max, numBuckets);
     }
 
     @Override
     public void recordExponentialHistogram(
             String name, int sample, int min, int max, int numBuckets) {
         cacheOrRecordHistogramSample(
-                Histogram.Type.EXPONENTIAL, name, sample, min, max, numBuckets);
+                Histogram.Type.EXPONENTIAL, name, null, sample, min, max, numBuckets);
     }
 
     @Override
     public void recordLinearHistogram(String name, int sample, int min, int max, int numBuckets) {
-        cacheOrRecordHistogramSample(Histogram.Type.LINEAR, name, sample, min, max, numBuckets);
+        cacheOrRecordHistogramSample(
+                Histogram.Type.LINEAR, name, null, sample, min, max, numBuckets);
     }
 
     @Override
@@ -516,7 +679,41 @@ import javax.annotation.concurrent.GuardedBy;
         final int min = 0;
         final int max = 0;
         final int numBuckets = 0;
-        cacheOrRecordHistogramSample(Histogram.Type.SPARSE, name, sample, min, max, numBuckets);
+        cacheOrRecordHistogramSample(
+                Histogram.Type.SPARSE, name, null, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordBooleanHistogram(HistogramHandle handle, boolean boolSample) {
+        final int sample = boolSample ? 1 : 0;
+        final int min = 0;
+        final int max = 0;
+        final int numBuckets = 0;
+        cacheOrRecordHistogramSample(
+                Histogram.Type.BOOLEAN, handle.getName(), handle, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordExponentialHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        cacheOrRecordHistogramSample(
+                Histogram.Type.EXPONENTIAL, handle.getName(), handle, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordLinearHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        cacheOrRecordHistogramSample(
+                Histogram.Type.LINEAR, handle.getName(), handle, sample, min, max, numBuckets);
+    }
+
+    @Override
+    public void recordSparseHistogram(HistogramHandle handle, int sample) {
+        final int min = 0;
+        final int max = 0;
+        final int numBuckets = 0;
+        cacheOrRecordHistogramSample(
+                Histogram.Type.SPARSE, handle.getName(), handle, sample, min, max, numBuckets);
     }
 
     @Override
@@ -572,13 +769,7 @@ import javax.annotation.concurrent.GuardedBy;
 
             Histogram histogram = mHistogramByName.get(name);
             if (histogram == null) return 0;
-            int sampleCount = 0;
-            synchronized (histogram) {
-                for (int i = 0; i < histogram.mSamples.size(); i++) {
-                    if (histogram.mSamples.get(i) == sample) sampleCount++;
-                }
-            }
-            return sampleCount;
+            return histogram.getSampleCount(sample);
         } finally {
             mRwLock.readLock().unlock();
         }
@@ -593,9 +784,7 @@ import javax.annotation.concurrent.GuardedBy;
 
             Histogram histogram = mHistogramByName.get(name);
             if (histogram == null) return 0;
-            synchronized (histogram) {
-                return histogram.mSamples.size();
-            }
+            return histogram.getSampleCount();
         } finally {
             mRwLock.readLock().unlock();
         }
@@ -610,10 +799,7 @@ import javax.annotation.concurrent.GuardedBy;
 
             Histogram histogram = mHistogramByName.get(name);
             if (histogram == null) return Collections.emptyList();
-            Integer[] samplesCopy;
-            synchronized (histogram) {
-                samplesCopy = histogram.mSamples.toArray(new Integer[0]);
-            }
+            int[] samplesCopy = histogram.copySamples();
             Arrays.sort(samplesCopy);
             List<HistogramBucket> buckets = new ArrayList<>();
             for (int i = 0; i < samplesCopy.length;) {
@@ -0,0 +1,108 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.metrics;
+
+/**
+ * Computes the bucket layout of native histograms, for code that counts samples in Java before
+ * sending the counts to native.
+ * <p>
+ * Ranges are returned as the lower bound of each bucket, starting with the underflow bucket.
+ * They match the ranges computed by {@code Histogram::InitializeBucketRanges} and {@code
+ * LinearHistogram::InitializeBucketRanges}, after the argument adjustments of {@code
+ * Histogram::InspectConstructionArguments}.
+ */
+public final class HistogramBucketRanges {
+    /** Largest value that can be recorded in a native histogram, {@code kSampleType_MAX}. */
+    private static final int SAMPLE_TYPE_MAX = Integer.MAX_VALUE;
+
+    /** Largest supported number of buckets, {@code Histogram::kBucketCount_MAX}. */
+    private static final int BUCKET_COUNT_MAX = 1002;
+
+    /**
+     * Number of buckets of histograms created with more than {@link #BUCKET_COUNT_MAX}: 100,
+     * plus the underflow and overflow buckets.
+     */
+    private static final int OVERSIZE_BUCKET_COUNT = 102;
+
+    /** Prefix of the histograms allowed more than {@link #BUCKET_COUNT_MAX} buckets. */
+    private static final String OVERSIZE_HISTOGRAM_PREFIX = "Blink.UseCounter";
+
+    private HistogramBucketRanges() {}
+
+    /**
+     * Returns the bucket lower bounds of an exponential histogram. The name is needed as native
+     * limits the number of buckets of most histograms, see {@link #OVERSIZE_HISTOGRAM_PREFIX}.
+     */
+    public static int[] exponential(String name, int min, int max, int numBuckets) {
+        return compute(/* linear= */ false, name, min, max, numBuckets);
+    }
+
+    /** Returns the bucket lower bounds of a linear histogram, see {@link #exponential}. */
+    public static int[] linear(String name, int min, int max, int numBuckets) {
+        return compute(/* linear= */ true, name, min, max, numBuckets);
+    }
+
+    /**
+     * Returns the index of the bucket {@code sample} falls in. Negative samples are counted in the
+     * underflow bucket.
+     *
+     * @param ranges bucket lower bounds, as returned by {@link #exponential} or {@link #linear}.
+     */
+    public static int getBucketIndex(int[] ranges, int sample) {
+        int low = 0;
+        int high = ranges.length - 1;
+        // Find the last bucket with a lower bound not larger than sample.
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (ranges[mid] <= sample) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static int[] compute(boolean linear, String name, int min, int max, int numBuckets) {
+        if (min > max) {
+            int swap = min;
+            min = max;
+            max = swap;
+        }
+        if (min < 1) {
+            min = 1;
+            if (max < 1) max = 1;
+        }
+        if (max >= SAMPLE_TYPE_MAX) max = SAMPLE_TYPE_MAX - 1;
+        if (numBuckets > BUCKET_COUNT_MAX && !name.startsWith(OVERSIZE_HISTOGRAM_PREFIX)) {
+            numBuckets = OVERSIZE_BUCKET_COUNT;
+        }
+        if (max == min) max = min + 1;
+        if (numBuckets < 3) numBuckets = 3;
+        if ((long) numBuckets > (long) max - min + 2) numBuckets = max - min + 2;
+
+        int[] ranges = new int[numBuckets];
+        if (linear) {
+            for (int i = 1; i < numBuckets; i++) {
+                double linearRange =
+                        ((double) min * (numBuckets - 1 - i) + (double) max * (i - 1))
+                                / (numBuckets - 2);
+                ranges[i] = (int) (linearRange + 0.5);
+            }
+            return ranges;
+        }
+        double logMax = Math.log(max);
+        int current = min;
+        ranges[1] = current;
+        for (int i = 2; i < numBuckets; i++) {
+            double logCurrent = Math.log(current);
+            double logNext = logCurrent + (logMax - logCurrent) / (numBuckets - i);
+            int next = (int) Math.round(Math.exp(logNext));
+            current = next > current ? next : current + 1;
+            ranges[i] = current;
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.metrics;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Identifies a histogram by name and remembers the native histogram once it is known.
+ * <p>
+ * Recording through a handle skips looking the histogram up by name, both on the Java side and in
+ * native code. Code recording the same histogram often should keep the handle in a {@code static
+ * final} field:
+ *
+ * <pre>
+ * private static final HistogramHandle SCROLL_HISTOGRAM = new HistogramHandle("Foo.Scroll");
+ * ...
+ * RecordHistogram.recordSparseHistogram(SCROLL_HISTOGRAM, sample);
+ * </pre>
+ *
+ * A handle only identifies a histogram; the histogram type and bucket layout are still passed on
+ * each record call and must be the same for every call.
+ */
+public final class HistogramHandle {
+    private final String mName;
+
+    /**
+     * Pointer to the native histogram, or {@code 0} if it isn't known yet. Native histograms are
+     * never freed, so once set the value stays valid for the lifetime of the process. Racing
+     * writers store the same pointer, so a volatile field is enough.
+     */
+    private volatile long mNativeHint;
+
+    /**
+     * Histogram cached by {@link CachingUmaRecorder} before native is loaded. Lets samples be
+     * appended without looking the histogram up by name. {@link CachingUmaRecorder} checks that
+     * the histogram still belongs to its current cache before using it, and clears it once samples
+     * are forwarded. A flushed histogram holds no samples nor a reference to its cache.
+     */
+    @Nullable private volatile CachingUmaRecorder.Histogram mCachedHistogram;
+
+    /**
+     * @param name name of the histogram.
+     */
+    public HistogramHandle(String name) {
+        assert name != null;
+        mName = name;
+    }
+
+    /** Returns the name of the histogram. */
+    public String getName() {
+        return mName;
+    }
+
+    /** Returns the native histogram pointer, or {@code 0} if it isn't known yet. */
+    /* package */ long getNativeHint() {
+        return mNativeHint;
+    }
+
+    /** Stores the native histogram pointer returned from native code. */
+    /* package */ void setNativeHint(long nativeHint) {
+        mNativeHint = nativeHint;
+    }
+
+    /** Returns the histogram last cached by {@link CachingUmaRecorder}, if any. */
+    @Nullable
+    /* package */ CachingUmaRecorder.Histogram getCachedHistogram() {
+        return mCachedHistogram;
+    }
+
+    /** Remembers the histogram cached by {@link CachingUmaRecorder} for this handle. */
+    /* package */ void setCachedHistogram(CachingUmaRecorder.Histogram histogram) {
+        mCachedHistogram = histogram;
+    }
+
+    /** Forgets the histogram cached by {@link CachingUmaRecorder}. */
+    /* package */ void clearCachedHistogram() {
+        mCachedHistogram = null;
+    }
+}
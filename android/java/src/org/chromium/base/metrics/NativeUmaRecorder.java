@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An implementation of {@link UmaRecorder} which forwards all calls through JNI.
@@ -29,40 +30,142 @@ import java.util.Map;
      * values (converted to long). This is safe to do because C++ Histogram objects
      * are never freed. Caching them on the Java side prevents needing to do costly
      * Java String to C++ string conversions on the C++ side during lookup.
+     * <p>
+     * Pointers are held in {@link HistogramHandle}s, so a lookup doesn't take a lock and recording
+     * a known histogram doesn't allocate.
      */
-    private final Map<String, Long> mNativeHints =
-            Collections.synchronizedMap(new HashMap<String, Long>());
+    private final ConcurrentHashMap<String, HistogramHandle> mHandlesByName =
+            new ConcurrentHashMap<>();
     private Map<Callback<String>, Long> mUserActionTestingCallbackNativePtrs;
 
     @Override
     public void recordBooleanHistogram(String name, boolean sample) {
-        long oldHint = getNativeHint(name);
-        long newHint = NativeUmaRecorderJni.get().recordBooleanHistogram(name, oldHint, sample);
-        maybeUpdateNativeHint(name, oldHint, newHint);
+        recordBooleanHistogram(getHandle(name), sample);
     }
 
     @Override
     public void recordExponentialHistogram(
             String name, int sample, int min, int max, int numBuckets) {
-        long oldHint = getNativeHint(name);
-        long newHint = NativeUmaRecorderJni.get().recordExponentialHistogram(
-                name, oldHint, sample, min, max, numBuckets);
-        maybeUpdateNativeHint(name, oldHint, newHint);
+        recordExponentialHistogram(getHandle(name), sample, min, max, numBuckets);
     }
 
     @Override
     public void recordLinearHistogram(String name, int sample, int min, int max, int numBuckets) {
-        long oldHint = getNativeHint(name);
-        long newHint = NativeUmaRecorderJni.get().recordLinearHistogram(
-                name, oldHint, sample, min, max, numBuckets);
-        maybeUpdateNativeHint(name, oldHint, newHint);
+        recordLinearHistogram(getHandle(name), sample, min, max, numBuckets);
     }
 
     @Override
     public void recordSparseHistogram(String name, int sample) {
-        long oldHint = getNativeHint(name);
-        long newHint = NativeUmaRecorderJni.get().recordSparseHistogram(name, oldHint, sample);
-        maybeUpdateNativeHint(name, oldHint, newHint);
+        recordSparseHistogram(getHandle(name), sample);
+    }
+
+    @Override
+    public void recordBooleanHistogram(HistogramHandle handle, boolean sample) {
+        long oldHint = handle.getNativeHint();
+        long newHint =
+                NativeUmaRecorderJni.get()
+                        .recordBooleanHistogram(handle.getName(), oldHint, sample);
+        maybeUpdateNativeHint(handle, oldHint, newHint);
+    }
+
+    @Override
+    public void recordExponentialHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        long oldHint = handle.getNativeHint();
+        long newHint =
+                NativeUmaRecorderJni.get()
+                        .recordExponentialHistogram(
+                                handle.getName(), oldHint, sample, min, max, numBuckets);
+        maybeUpdateNativeHint(handle, oldHint, newHint);
+    }
+
+    @Override
+    public void recordLinearHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        long oldHint = handle.getNativeHint();
+        long newHint =
+                NativeUmaRecorderJni.get()
+                        .recordLinearHistogram(
+                                handle.getName(), oldHint, sample, min, max, numBuckets);
+        maybeUpdateNativeHint(handle, oldHint, newHint);
+    }
+
+    @Override
+    public void recordSparseHistogram(HistogramHandle handle, int sample) {
+        long oldHint = handle.getNativeHint();
+        long newHint =
+                NativeUmaRecorderJni.get().recordSparseHistogram(handle.getName(), oldHint, sample);
+        maybeUpdateNativeHint(handle, oldHint, newHint);
+    }
+
+    /**
+     * Records a batch of samples of a single histogram with one JNI call. Used when flushing
+     * samples cached by {@link CachingUmaRecorder}, where the per-sample methods would cross JNI
+     * once per sample.
+     *
+     * @param type histogram type, one of {@link CachingUmaRecorder.Histogram.Type}.
+     * @param name histogram name.
+     * @param min histogram min value. Must be {@code 0} for boolean or sparse histograms.
+     * @param max histogram max value. Must be {@code 0} for boolean or sparse histograms.
+     * @param numBuckets number of histogram buckets. Must be {@code 0} for boolean or sparse
+     *         histograms.
+     * @param samples array holding the samples to record.
+     * @param sampleCount number of samples to record, from the start of {@code samples}.
+     */
+    /* package */ void recordHistogramSamples(
+            @CachingUmaRecorder.Histogram.Type int type,
+            String name,
+            int min,
+            int max,
+            int numBuckets,
+            int[] samples,
+            int sampleCount) {
+        if (sampleCount == 0) return;
+        HistogramHandle handle = getHandle(name);
+        long oldHint = handle.getNativeHint();
+        long newHint =
+                NativeUmaRecorderJni.get()
+                        .recordHistogramSamples(
+                                name, oldHint, type, min, max, numBuckets, samples, sampleCount);
+        maybeUpdateNativeHint(handle, oldHint, newHint);
+    }
+
+    /**
+     * Records counts of samples of a single histogram with one JNI call. Used to forward samples
+     * aggregated by {@link AggregatingUmaRecorder}.
+     *
+     * @param type histogram type, one of {@link CachingUmaRecorder.Histogram.Type}.
+     * @param handle handle of the histogram.
+     * @param min histogram min value.
+     * @param max histogram max value.
+     * @param numBuckets number of histogram buckets.
+     * @param samples sample values to record.
+     * @param counts number of times to record the sample with the same index in {@code
+     *         samples}.
+     */
+    /* package */ void recordHistogramCounts(
+            @CachingUmaRecorder.Histogram.Type int type,
+            HistogramHandle handle,
+            int min,
+            int max,
+            int numBuckets,
+            int[] samples,
+            int[] counts) {
+        assert samples.length == counts.length;
+        if (samples.length == 0) return;
+        long oldHint = handle.getNativeHint();
+        long newHint =
+                NativeUmaRecorderJni.get()
+                        .recordHistogramCounts(
+                                handle.getName(),
+                                oldHint,
+                                type,
+                                min,
+                                max,
+                                numBuckets,
+                                samples,
+                                counts);
+        maybeUpdateNativeHint(handle, oldHint, newHint);
     }
 
     @Override
@@ -120,18 +223,23 @@ import java.util.Map;
         NativeUmaRecorderJni.get().removeActionCallbackForTesting(ptr);
     }
 
-    private long getNativeHint(String name) {
-        Long hint = mNativeHints.get(name);
-        // Note: If key is null, we don't have it cached. In that case, pass 0
-        // to the native code, which gets converted to a null histogram pointer
-        // which will cause the native code to look up the object on the native
-        // side.
-        return (hint == null ? 0 : hint);
+    /**
+     * Returns the {@link HistogramHandle} used to cache the native hint of {@code name}. A new
+     * handle has a hint of 0, which gets converted to a null histogram pointer which will cause
+     * the native code to look up the object on the native side.
+     */
+    private HistogramHandle getHandle(String name) {
+        HistogramHandle handle = mHandlesByName.get(name);
+        if (handle != null) return handle;
+        HistogramHandle newHandle = new HistogramHandle(name);
+        handle = mHandlesByName.putIfAbsent(name, newHandle);
+        return handle != null ? handle : newHandle;
     }
 
-    private void maybeUpdateNativeHint(String name, long oldHint, long newHint) {
+    private static void maybeUpdateNativeHint(
+            HistogramHandle handle, long oldHint, long newHint) {
         if (oldHint != newHint) {
-            mNativeHints.put(name, newHint);
+            handle.setNativeHint(newHint);
         }
     }
 
@@ -145,6 +253,40 @@ import java.util.Map;
                 String name, long nativeHint, int sample, int min, int max, int numBuckets);
         long recordSparseHistogram(String name, long nativeHint, int sample);
 
+        /**
+         * Records the first {@code sampleCount} values of {@code samples} into a single
+         * histogram.
+         *
+         * @param type histogram type, one of {@link CachingUmaRecorder.Histogram.Type}.
+         * @return the native hint of the histogram.
+         */
+        long recordHistogramSamples(
+                String name,
+                long nativeHint,
+                int type,
+                int min,
+                int max,
+                int numBuckets,
+                int[] samples,
+                int sampleCount);
+
+        /**
+         * Records each value of {@code samples} into a single histogram as many times as given by
+         * the matching entry of {@code counts}.
+         *
+         * @param type histogram type, one of {@link CachingUmaRecorder.Histogram.Type}.
+         * @return the native hint of the histogram.
+         */
+        long recordHistogramCounts(
+                String name,
+                long nativeHint,
+                int type,
+                int min,
+                int max,
+                int numBuckets,
+                int[] samples,
+                int[] counts);
+
         /**
          * Records that the user performed an action. See {@code base::RecordComputedActionAt}.
          * <p>
@@ -24,6 +24,17 @@ public class RecordHistogram {
         UmaRecorderHolder.get().recordBooleanHistogram(name, sample);
     }
 
+    /**
+     * Records a sample in a boolean UMA histogram identified by a {@link HistogramHandle}. See
+     * {@link #recordBooleanHistogram(String, boolean)}.
+     *
+     * @param handle handle of the histogram, should be kept in a {@code static final} field
+     * @param sample sample to be recorded, either true or false
+     */
+    public static void recordBooleanHistogram(HistogramHandle handle, boolean sample) {
+        UmaRecorderHolder.get().recordBooleanHistogram(handle, sample);
+    }
+
     /**
      * Records a sample in an enumerated histogram of the given name and boundary. Note that
      * {@code max} identifies the histogram - it should be the same at every invocation. This is the
@@ -98,6 +109,22 @@ public class RecordHistogram {
         UmaRecorderHolder.get().recordExponentialHistogram(name, sample, min, max, numBuckets);
     }
 
+    /**
+     * Records a sample in a count histogram identified by a {@link HistogramHandle}. See {@link
+     * #recordCustomCountHistogram(String, int, int, int, int)}.
+     *
+     * @param handle handle of the histogram, should be kept in a {@code static final} field
+     * @param sample sample to be recorded, expected to fall in range {@code [min, max)}
+     * @param min the smallest expected sample value; at least 1
+     * @param max the smallest sample value that will be recorded in overflow bucket
+     * @param numBuckets the number of buckets including underflow ({@code [0, min)}) and overflow
+     *                   ({@code [max, inf)}) buckets; at most 100
+     */
+    public static void recordCustomCountHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        UmaRecorderHolder.get().recordExponentialHistogram(handle, sample, min, max, numBuckets);
+    }
+
     /**
      * Records a sample in a linear histogram. This is the Java equivalent for using
      * {@code base::LinearHistogram}.
@@ -114,6 +141,22 @@ public class RecordHistogram {
         UmaRecorderHolder.get().recordLinearHistogram(name, sample, min, max, numBuckets);
     }
 
+    /**
+     * Records a sample in a linear histogram identified by a {@link HistogramHandle}. See {@link
+     * #recordLinearCountHistogram(String, int, int, int, int)}.
+     *
+     * @param handle handle of the histogram, should be kept in a {@code static final} field
+     * @param sample sample to be recorded, expected to fall in range {@code [min, max)}
+     * @param min the smallest expected sample value; at least 1
+     * @param max the smallest sample value that will be recorded in overflow bucket
+     * @param numBuckets the number of buckets including underflow ({@code [0, min)}) and overflow
+     *                   ({@code [max, inf)}) buckets; at most 100
+     */
+    public static void recordLinearCountHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        UmaRecorderHolder.get().recordLinearHistogram(handle, sample, min, max, numBuckets);
+    }
+
     /**
      * Records a sample in a percentage histogram. This is the Java equivalent of the
      * UMA_HISTOGRAM_PERCENTAGE C++ macro.
@@ -137,6 +180,17 @@ public class RecordHistogram {
         UmaRecorderHolder.get().recordSparseHistogram(name, sample);
     }
 
+    /**
+     * Records a sparse histogram identified by a {@link HistogramHandle}. See {@link
+     * #recordSparseHistogram(String, int)}.
+     *
+     * @param handle handle of the histogram, should be kept in a {@code static final} field
+     * @param sample sample to be recorded, all values are valid
+     */
+    public static void recordSparseHistogram(HistogramHandle handle, int sample) {
+        UmaRecorderHolder.get().recordSparseHistogram(handle, sample);
+    }
+
     /**
      * Records a sample in a histogram of times. Useful for recording short durations. This is the
      * Java equivalent of the UMA_HISTOGRAM_TIMES C++ macro.
@@ -252,6 +306,71 @@ public class RecordHistogram {
         UmaRecorderHolder.get().recordLinearHistogram(name, sample, min, max, numBuckets);
     }
 
+    /**
+     * Returns a {@link ResolvedHistogram} for a histogram with exponentially scaled buckets, see
+     * {@link #recordCustomCountHistogram(String, int, int, int, int)}. The returned instance
+     * should be kept in a {@code static final} field.
+     *
+     * @param name name of the histogram
+     * @param min the smallest expected sample value; at least 1
+     * @param max the smallest sample value that will be recorded in overflow bucket
+     * @param numBuckets the number of buckets including underflow ({@code [0, min)}) and overflow
+     *                   ({@code [max, inf)}) buckets; at most 100
+     */
+    public static ResolvedHistogram exponential(String name, int min, int max, int numBuckets) {
+        return new ResolvedHistogram(
+                CachingUmaRecorder.Histogram.Type.EXPONENTIAL, name, min, max, numBuckets);
+    }
+
+    /**
+     * Returns a {@link ResolvedHistogram} for a histogram with evenly spaced buckets, see {@link
+     * #recordLinearCountHistogram(String, int, int, int, int)}. The returned instance should be
+     * kept in a {@code static final} field.
+     *
+     * @param name name of the histogram
+     * @param min the smallest expected sample value; at least 1
+     * @param max the smallest sample value that will be recorded in overflow bucket
+     * @param numBuckets the number of buckets including underflow ({@code [0, min)}) and overflow
+     *                   ({@code [max, inf)}) buckets; at most 100
+     */
+    public static ResolvedHistogram linear(String name, int min, int max, int numBuckets) {
+        return new ResolvedHistogram(
+                CachingUmaRecorder.Histogram.Type.LINEAR, name, min, max, numBuckets);
+    }
+
+    /**
+     * Returns a {@link ResolvedHistogram} for a linear histogram where each bucket in range {@code
+     * [0, max)} counts exactly a single value, see {@link #recordExactLinearHistogram(String, int,
+     * int)}. Also suitable for enumerated histograms.
+     *
+     * @param name name of the histogram
+     * @param max the smallest value counted in the overflow bucket, shouldn't be larger than 100
+     */
+    public static ResolvedHistogram exactLinear(String name, int max) {
+        return linear(name, 1, max, max + 1);
+    }
+
+    /**
+     * Returns a {@link ResolvedHistogram} for a sparse histogram, see {@link
+     * #recordSparseHistogram(String, int)}.
+     *
+     * @param name name of the histogram
+     */
+    public static ResolvedHistogram sparse(String name) {
+        return new ResolvedHistogram(CachingUmaRecorder.Histogram.Type.SPARSE, name, 0, 0, 0);
+    }
+
+    /**
+     * Returns a {@link ResolvedHistogram} for a boolean histogram, see {@link
+     * #recordBooleanHistogram(String, boolean)}. Record with {@link
+     * ResolvedHistogram#record(boolean)}.
+     *
+     * @param name name of the histogram
+     */
+    public static ResolvedHistogram booleanHistogram(String name) {
+        return new ResolvedHistogram(CachingUmaRecorder.Histogram.Type.BOOLEAN, name, 0, 0, 0);
+    }
+
     private static int clampToInt(long value) {
         if (value > Integer.MAX_VALUE) return Integer.MAX_VALUE;
         // Note: Clamping to MIN_VALUE rather than 0, to let base/ histograms code do its own
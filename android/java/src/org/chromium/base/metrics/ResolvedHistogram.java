@@ -0,0 +1,110 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.metrics;
+
+/**
+ * A histogram with a fixed definition, resolved once and then recorded to without passing the name
+ * or bucket layout again. Obtained from {@link RecordHistogram#exponential}, {@link
+ * RecordHistogram#linear}, {@link RecordHistogram#exactLinear}, {@link RecordHistogram#sparse} or
+ * {@link RecordHistogram#booleanHistogram}.
+ * <p>
+ * Intended for histograms recorded at a high rate, which should keep the instance in a {@code
+ * static final} field:
+ *
+ * <pre>
+ * private static final ResolvedHistogram FRAME_TIME_HISTOGRAM =
+ *         RecordHistogram.exponential("Foo.FrameTime", 1, 1000, 50);
+ * ...
+ * FRAME_TIME_HISTOGRAM.record(frameTimeMs);
+ * </pre>
+ *
+ * Before native is loaded, samples are appended to the histogram cached for this instance by
+ * {@link CachingUmaRecorder}. Afterwards, they are recorded directly into the native histogram.
+ * Neither path looks the histogram up by name after the first sample.
+ */
+public final class ResolvedHistogram {
+    @CachingUmaRecorder.Histogram.Type private final int mType;
+    private final HistogramHandle mHandle;
+    private final int mMin;
+    private final int mMax;
+    private final int mNumBuckets;
+
+    /**
+     * Constructs a {@code ResolvedHistogram} and validates its definition.
+     *
+     * @param type histogram type.
+     * @param name histogram name.
+     * @param min histogram min value. Must be {@code 0} for boolean or sparse histograms.
+     * @param max histogram max value. Must be {@code 0} for boolean or sparse histograms.
+     * @param numBuckets number of histogram buckets. Must be {@code 0} for boolean or sparse
+     *         histograms.
+     */
+    /* package */ ResolvedHistogram(
+            @CachingUmaRecorder.Histogram.Type int type,
+            String name,
+            int min,
+            int max,
+            int numBuckets) {
+        switch (type) {
+            case CachingUmaRecorder.Histogram.Type.EXPONENTIAL:
+                assert min >= 1 : "The min expected sample must be >= 1 for " + name;
+                // Fall through.
+            case CachingUmaRecorder.Histogram.Type.LINEAR:
+                assert min < max : "Histogram " + name + " must have min < max";
+                assert numBuckets >= 3 : "Histogram " + name + " must have at least 3 buckets";
+                break;
+            case CachingUmaRecorder.Histogram.Type.BOOLEAN:
+            case CachingUmaRecorder.Histogram.Type.SPARSE:
+                assert min == 0 && max == 0 && numBuckets == 0
+                    : "Histogram " + name + " must have no min/max/buckets set";
+                break;
+            default:
+                assert false : "Unknown histogram type " + type;
+        }
+        mType = type;
+        mHandle = new HistogramHandle(name);
+        mMin = min;
+        mMax = max;
+        mNumBuckets = numBuckets;
+    }
+
+    /** Returns the name of the histogram. */
+    public String getName() {
+        return mHandle.getName();
+    }
+
+    /**
+     * Records a sample. Must not be used with boolean histograms, use {@link #record(boolean)}.
+     *
+     * @param sample sample to be recorded.
+     */
+    public void record(int sample) {
+        UmaRecorder recorder = UmaRecorderHolder.get();
+        switch (mType) {
+            case CachingUmaRecorder.Histogram.Type.EXPONENTIAL:
+                recorder.recordExponentialHistogram(mHandle, sample, mMin, mMax, mNumBuckets);
+                break;
+            case CachingUmaRecorder.Histogram.Type.LINEAR:
+                recorder.recordLinearHistogram(mHandle, sample, mMin, mMax, mNumBuckets);
+                break;
+            case CachingUmaRecorder.Histogram.Type.SPARSE:
+                recorder.recordSparseHistogram(mHandle, sample);
+                break;
+            default:
+                assert false : "Use record(boolean) for boolean histogram " + getName();
+        }
+    }
+
+    /**
+     * Records a sample of a boolean histogram.
+     *
+     * @param sample sample to be recorded.
+     */
+    public void record(boolean sample) {
+        assert mType == CachingUmaRecorder.Histogram.Type.BOOLEAN
+            : "Use record(int) for non-boolean histogram " + getName();
+        UmaRecorderHolder.get().recordBooleanHistogram(mHandle, sample);
+    }
+}
@@ -55,6 +55,40 @@ public interface UmaRecorder {
      */
     void recordSparseHistogram(String name, int sample);
 
+    /**
+     * Records a single sample of a boolean histogram identified by a {@link HistogramHandle}.
+     * Implementations can use the handle to skip looking the histogram up by name.
+     */
+    default void recordBooleanHistogram(HistogramHandle handle, boolean sample) {
+        recordBooleanHistogram(handle.getName(), sample);
+    }
+
+    /**
+     * Records a single sample of a histogram with exponentially scaled buckets identified by a
+     * {@link HistogramHandle}. See {@link #recordExponentialHistogram(String, int, int, int, int)}.
+     */
+    default void recordExponentialHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        recordExponentialHistogram(handle.getName(), sample, min, max, numBuckets);
+    }
+
+    /**
+     * Records a single sample of a histogram with evenly spaced buckets identified by a {@link
+     * HistogramHandle}. See {@link #recordLinearHistogram(String, int, int, int, int)}.
+     */
+    default void recordLinearHistogram(
+            HistogramHandle handle, int sample, int min, int max, int numBuckets) {
+        recordLinearHistogram(handle.getName(), sample, min, max, numBuckets);
+    }
+
+    /**
+     * Records a single sample of a sparse histogram identified by a {@link HistogramHandle}. See
+     * {@link #recordSparseHistogram(String, int)}.
+     */
+    default void recordSparseHistogram(HistogramHandle handle, int sample) {
+        recordSparseHistogram(handle.getName(), sample);
+    }
+
     /**
      * Records a user action. Action names must be documented in {@code actions.xml}. See {@link
      * https://source.chromium.org/chromium/chromium/src/+/main:tools/metrics/actions/README.md}
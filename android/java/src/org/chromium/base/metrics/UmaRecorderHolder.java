@@ -4,6 +4,9 @@
 
 package org.chromium.base.metrics;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 /** Holds the {@link CachingUmaRecorder} used by {@link RecordHistogram}. */
 public class UmaRecorderHolder {
     private UmaRecorderHolder() {}
@@ -17,6 +20,12 @@ public class UmaRecorderHolder {
     /** Whether onLibraryLoaded() was called. */
     private static boolean sNativeInitialized;
 
+    /** Names of histograms aggregated by {@link AggregatingUmaRecorder}, if enabled. */
+    private static Collection<String> sAggregatedHistogramNames;
+
+    /** Flush interval of {@link AggregatingUmaRecorder}, if enabled. */
+    private static long sAggregationFlushIntervalMs;
+
     /** Returns the held {@link UmaRecorder}. */
     public static UmaRecorder get() {
         return sRecorder;
@@ -33,8 +42,9 @@ public class UmaRecorderHolder {
      */
     public static void setNonNativeDelegate(UmaRecorder recorder) {
         UmaRecorder previous = sRecorder.setDelegate(recorder);
-        assert !(previous instanceof NativeUmaRecorder)
-            : "A NativeUmaRecorder has already been set";
+        assert !(previous instanceof NativeUmaRecorder
+                        || previous instanceof AggregatingUmaRecorder)
+            : "A native UmaRecorder has already been set";
     }
 
     /**
@@ -46,6 +56,23 @@ public class UmaRecorderHolder {
         sSetUpNativeUmaRecorder = setUpNativeUmaRecorder;
     }
 
+    /**
+     * Aggregates samples of the given histograms in Java and forwards them to native code in
+     * batches, rather than crossing JNI for every sample. Meant for histograms recorded at a very
+     * high rate. Only exponential and linear histograms are aggregated. Must be called before
+     * {@link #onLibraryLoaded()}.
+     *
+     * @param flushIntervalMs maximum delay before aggregated samples are forwarded to native code.
+     *         Samples are also forwarded when the application goes to the background.
+     * @param histogramNames names of the histograms to aggregate.
+     */
+    public static void enableHistogramAggregation(long flushIntervalMs, String... histogramNames) {
+        assert !sNativeInitialized : "Histogram aggregation must be enabled before native init";
+        assert flushIntervalMs > 0;
+        sAggregatedHistogramNames = Arrays.asList(histogramNames);
+        sAggregationFlushIntervalMs = flushIntervalMs;
+    }
+
     /**
      * Starts forwarding metrics to the native code. Returns after the cache has been flushed.
      */
@@ -54,7 +81,17 @@ public class UmaRecorderHolder {
 
         assert !sNativeInitialized;
         sNativeInitialized = true;
-        sRecorder.setDelegate(new NativeUmaRecorder());
+        UmaRecorder nativeRecorder = new NativeUmaRecorder();
+        if (sAggregatedHistogramNames != null) {
+            AggregatingUmaRecorder aggregatingRecorder =
+                    new AggregatingUmaRecorder(
+                            nativeRecorder,
+                            sAggregatedHistogramNames,
+                            sAggregationFlushIntervalMs);
+            aggregatingRecorder.registerApplicationStateListener();
+            nativeRecorder = aggregatingRecorder;
+        }
+        sRecorder.setDelegate(nativeRecorder);
     }
 
     /**
@@ -31,6 +31,7 @@ import org.chromium.base.EarlyTraceEvent;
 import org.chromium.base.Log;
 import org.chromium.base.MemoryPressureLevel;
 import org.chromium.base.ThreadUtils;
+import org.chromium.base.TraceEvent;
 import org.chromium.base.compat.ApiHelperForN;
 import org.chromium.base.library_loader.LibraryLoader;
 import org.chromium.base.memory.MemoryPressureMonitor;
@@ -270,6 +271,7 @@ public class ChildProcessService {
                     }
 
                     EarlyTraceEvent.onCommandLineAvailableInChildProcess();
+                    TraceEvent.maybeEnableJavaTraceSink();
                     mDelegate.loadNativeLibrary(getApplicationContext());
 
                     synchronized (mLibraryInitializedLock) {
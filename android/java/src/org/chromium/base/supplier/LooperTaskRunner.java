@@ -0,0 +1,47 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.supplier;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.chromium.base.task.TaskRunner;
+
+/**
+ * A {@link TaskRunner} posting to the {@link Looper} of a thread. A single instance is shared by
+ * all the suppliers of a thread, rather than each supplier creating its own {@link Handler}.
+ */
+/* package */ final class LooperTaskRunner implements TaskRunner {
+    private static final ThreadLocal<LooperTaskRunner> sTaskRunners = new ThreadLocal<>();
+
+    private final Handler mHandler;
+
+    private LooperTaskRunner(Looper looper) {
+        mHandler = new Handler(looper);
+    }
+
+    /** Returns the instance posting to the Looper of the current thread, which must have one. */
+    static LooperTaskRunner forCurrentThread() {
+        Looper looper = Looper.myLooper();
+        assert looper != null : "The current thread must have a Looper.";
+        LooperTaskRunner taskRunner = sTaskRunners.get();
+        // Tests can replace the Looper of a thread.
+        if (taskRunner == null || taskRunner.mHandler.getLooper() != looper) {
+            taskRunner = new LooperTaskRunner(looper);
+            sTaskRunners.set(taskRunner);
+        }
+        return taskRunner;
+    }
+
+    @Override
+    public void postTask(Runnable task) {
+        mHandler.post(task);
+    }
+
+    @Override
+    public void postDelayedTask(Runnable task, long delay) {
+        mHandler.postDelayed(task, delay);
+    }
+}
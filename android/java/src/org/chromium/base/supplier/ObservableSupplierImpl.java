@@ -4,8 +4,6 @@
 
 package org.chromium.base.supplier;
 
-import android.os.Handler;
-
 import androidx.annotation.Nullable;
 
 import org.chromium.base.Callback;
@@ -25,16 +23,24 @@ import java.util.Objects;
  *   2. Call {@link #set(Object)} when the real object becomes available. {@link #set(Object)} may
  *      be called multiple times. Observers will be notified each time a new object is set.
  *
+ * With {@link #enableNotificationCoalescing()}, observers are instead notified once per message
+ * loop turn with the latest object. See {@link ThreadSafeObservableSupplierImpl} for a supplier
+ * that can be used from any thread.
+ *
  * @param <E> The type of the wrapped object.
  */
 public class ObservableSupplierImpl<E> implements ObservableSupplier<E> {
     private static boolean sIgnoreThreadChecksForTesting;
 
     private final Thread mThread = Thread.currentThread();
-    private final Handler mHandler = new Handler();
 
     private E mObject;
     private final ObserverList<Callback<E>> mObservers = new ObserverList<>();
+    // Incremented each time the observers are notified.
+    private int mNotificationCount;
+    // Set when notifications are coalesced.
+    private @Nullable Runnable mNotifyObserversRunnable;
+    private boolean mNotificationPending;
 
     public ObservableSupplierImpl() {}
 
@@ -49,10 +55,18 @@ public class ObservableSupplierImpl<E> implements ObservableSupplier<E> {
 
         if (mObject != null) {
             final E currentObject = mObject;
-            mHandler.post(() -> {
-                if (mObject != currentObject || !mObservers.hasObserver(obs)) return;
-                obs.onResult(mObject);
-            });
+            final int notificationCount = mNotificationCount;
+            LooperTaskRunner.forCurrentThread()
+                    .postTask(
+                            () -> {
+                                // Observers that were notified since then already have the object.
+                                if (mObject != currentObject
+                                        || mNotificationCount != notificationCount
+                                        || !mObservers.hasObserver(obs)) {
+                                    return;
+                                }
+                                obs.onResult(mObject);
+                            });
         }
 
         return mObject;
@@ -78,7 +92,34 @@ public class ObservableSupplierImpl<E> implements ObservableSupplier<E> {
         }
 
         mObject = object;
+        if (mObservers.isEmpty()) return;
+
+        if (mNotifyObserversRunnable == null) {
+            notifyObservers();
+        } else if (!mNotificationPending) {
+            mNotificationPending = true;
+            LooperTaskRunner.forCurrentThread().postTask(mNotifyObserversRunnable);
+        }
+    }
+
+    /**
+     * Makes {@link #set(Object)} notify the observers at the end of the current message loop turn
+     * rather than synchronously. Objects set within the same turn result in a single notification
+     * with the latest object, which avoids cascades of notifications when many objects are set in
+     * a burst.
+     */
+    public void enableNotificationCoalescing() {
+        checkThread();
+        if (mNotifyObserversRunnable != null) return;
+        mNotifyObserversRunnable =
+                () -> {
+                    mNotificationPending = false;
+                    notifyObservers();
+                };
+    }
 
+    private void notifyObservers() {
+        mNotificationCount++;
         for (Callback<E> observer : mObservers) {
             observer.onResult(mObject);
         }
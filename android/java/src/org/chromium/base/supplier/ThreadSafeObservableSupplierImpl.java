@@ -0,0 +1,100 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.supplier;
+
+import androidx.annotation.Nullable;
+
+import org.chromium.base.Callback;
+import org.chromium.base.ObserverListThreadSafe;
+import org.chromium.base.task.TaskRunner;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An implementation of {@link ObservableSupplier} that can be used from any thread.
+ *
+ * The object is published without locking, so {@link #get()} and {@link #set(Object)} can be
+ * called from any thread. Observers are notified on the {@link TaskRunner} they were added with,
+ * or on the thread they were added from, and always asynchronously. As notifications are posted,
+ * observers are notified with the latest object when the notification runs, and may be notified
+ * more than once with the same object. Observers on the same thread are notified by a single post.
+ *
+ * @param <E> The type of the wrapped object.
+ */
+public class ThreadSafeObservableSupplierImpl<E> implements ObservableSupplier<E> {
+    private final AtomicReference<E> mObject;
+    private final ObserverListThreadSafe<Callback<E>> mObservers = new ObserverListThreadSafe<>();
+
+    public ThreadSafeObservableSupplierImpl() {
+        this(null);
+    }
+
+    public ThreadSafeObservableSupplierImpl(@Nullable E initialValue) {
+        mObject = new AtomicReference<>(initialValue);
+    }
+
+    /**
+     * Adds an observer notified on the current thread, which must have a {@link
+     * android.os.Looper}.
+     */
+    @Override
+    public E addObserver(Callback<E> obs) {
+        return addObserver(obs, LooperTaskRunner.forCurrentThread());
+    }
+
+    /**
+     * @param obs An observer to be notified when the object owned by this supplier is available.
+     *     If the object is already available, the callback will be posted to {@code taskRunner}
+     *     (so long as the object hasn't changed).
+     * @param taskRunner The TaskRunner to notify {@code obs} on.
+     * @return The current object or null if it hasn't been set yet.
+     */
+    public E addObserver(Callback<E> obs, TaskRunner taskRunner) {
+        mObservers.addObserver(obs, taskRunner);
+
+        final E currentObject = mObject.get();
+        if (currentObject != null) {
+            taskRunner.postTask(
+                    () -> {
+                        if (mObject.get() != currentObject || !mObservers.hasObserver(obs)) return;
+                        obs.onResult(currentObject);
+                    });
+        }
+        return currentObject;
+    }
+
+    @Override
+    public void removeObserver(Callback<E> obs) {
+        mObservers.removeObserver(obs);
+    }
+
+    /**
+     * Set the object supplied by this supplier. This will notify registered callbacks that the
+     * dependency is available if the object changes. Object equality is used when deciding if the
+     * object has changed, not reference equality.
+     *
+     * @param object The object to supply.
+     */
+    public void set(E object) {
+        while (true) {
+            E currentObject = mObject.get();
+            if (Objects.equals(object, currentObject)) return;
+            if (mObject.compareAndSet(currentObject, object)) break;
+        }
+        if (mObservers.isEmpty()) return;
+        mObservers.notifyObservers(obs -> obs.onResult(mObject.get()));
+    }
+
+    @Override
+    public @Nullable E get() {
+        return mObject.get();
+    }
+
+    /** Returns if there are any observers currently. */
+    public boolean hasObservers() {
+        return !mObservers.isEmpty();
+    }
+}
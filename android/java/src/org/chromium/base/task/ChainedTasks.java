@@ -4,11 +4,12 @@
 
 package org.chromium.base.task;
 
-import android.util.Pair;
-
 import org.chromium.base.TraceEvent;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -21,35 +22,75 @@ import javax.annotation.concurrent.GuardedBy;
  * (e.g. input events). As such, this class really only makes sense when submitting tasks to
  * SingleThreadTaskRunners.
  *
+ * By default each task is posted on its own. With {@link #setFrameTimeBudget(long)}, consecutive
+ * tasks with the same TaskTraits run in the same post until the budget is spent, so that cheap
+ * tasks don't each wait for a post while expensive ones still leave room for the framework.
+ *
  * Threading:
  * - This class is threadsafe and all methods may be called from any thread.
  * - Tasks may run with arbitrary TaskTraits, unless tasks are coalesced, in which case all tasks
  *   must run on the same thread.
  */
 public class ChainedTasks {
-    private final LinkedList<Pair<Integer, Runnable>> mTasks = new LinkedList<>();
-    @GuardedBy("mTasks")
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Trace event names of the tasks, computed once per class.
+    private static final Map<Class<?>, String> sTraceEventNames = new ConcurrentHashMap<>();
+
+    private final Object mLock = new Object();
+    // The tasks that didn't run yet are at [mNextIndex, mSize) of these arrays. Tasks are released
+    // as they run, and all of them are released when cancelled.
+    @GuardedBy("mLock")
+    private int[] mTraits = new int[INITIAL_CAPACITY];
+    @GuardedBy("mLock")
+    private Runnable[] mTasks = new Runnable[INITIAL_CAPACITY];
+    @GuardedBy("mLock")
+    private int mSize;
+    @GuardedBy("mLock")
+    private int mNextIndex;
+    @GuardedBy("mLock")
     private boolean mFinalized;
-    private volatile boolean mCanceled;
+    @GuardedBy("mLock")
+    private boolean mCanceled;
+    // Only written before start().
+    private long mFrameTimeBudgetNs;
     private int mIterationIdForTesting = PostTask.sTestIterationForTesting;
 
-    private final Runnable mRunAndPost = new Runnable() {
-        @Override
-        @SuppressWarnings("NoDynamicStringsInTraceEventCheck")
-        public void run() {
-            if (mIterationIdForTesting != PostTask.sTestIterationForTesting) {
-                cancel();
-            }
-            if (mCanceled) return;
-
-            Pair<Integer, Runnable> pair = mTasks.pop();
-            try (TraceEvent e = TraceEvent.scoped(
-                         "ChainedTask.run: " + pair.second.getClass().getName())) {
-                pair.second.run();
-            }
-            if (!mTasks.isEmpty()) PostTask.postTask(mTasks.peek().first, this);
-        }
-    };
+    private final Runnable mRunAndPost =
+            new Runnable() {
+                @Override
+                public void run() {
+                    if (mIterationIdForTesting != PostTask.sTestIterationForTesting) {
+                        cancel();
+                    }
+                    long deadlineNs = System.nanoTime() + mFrameTimeBudgetNs;
+                    @TaskTraits int postedTraits;
+                    Runnable task;
+                    synchronized (mLock) {
+                        if (mCanceled || mNextIndex == mSize) return;
+                        postedTraits = mTraits[mNextIndex];
+                        task = pollTask();
+                    }
+                    while (true) {
+                        runTask(task);
+                        @TaskTraits int nextTraits;
+                        synchronized (mLock) {
+                            if (mCanceled || mNextIndex == mSize) return;
+                            nextTraits = mTraits[mNextIndex];
+                            // Tasks with other traits may need to run elsewhere, and are posted.
+                            if (nextTraits != postedTraits || System.nanoTime() >= deadlineNs) {
+                                task = null;
+                            } else {
+                                task = pollTask();
+                            }
+                        }
+                        if (task == null) {
+                            PostTask.postTask(nextTraits, this);
+                            return;
+                        }
+                    }
+                }
+            };
 
     /**
      * Adds a task to the list of tasks to run. Cannot be called once {@link start()} has been
@@ -58,19 +99,41 @@ public class ChainedTasks {
     public void add(@TaskTraits int traits, Runnable task) {
         assert mIterationIdForTesting == PostTask.sTestIterationForTesting;
 
-        synchronized (mTasks) {
+        synchronized (mLock) {
             assert !mFinalized : "Must not call add() after start()";
-            mTasks.add(new Pair<>(traits, task));
+            if (mCanceled) return;
+            if (mSize == mTasks.length) {
+                mTraits = Arrays.copyOf(mTraits, mSize * 2);
+                mTasks = Arrays.copyOf(mTasks, mSize * 2);
+            }
+            mTraits[mSize] = traits;
+            mTasks[mSize] = task;
+            mSize++;
         }
     }
 
     /**
-     * Cancels the remaining tasks.
+     * Lets consecutive tasks with the same TaskTraits run in the same post, as long as the post
+     * ran for less than {@code budgetMs}. Defaults to 0, where each task is posted on its own.
+     * Only applies to tasks that aren't coalesced, and cannot be called once {@link start()} has
+     * been called.
+     */
+    public void setFrameTimeBudget(long budgetMs) {
+        synchronized (mLock) {
+            assert !mFinalized : "Must not call setFrameTimeBudget() after start()";
+        }
+        mFrameTimeBudgetNs = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+    }
+
+    /**
+     * Cancels the remaining tasks, and releases them.
      */
     public void cancel() {
-        synchronized (mTasks) {
+        synchronized (mLock) {
             mFinalized = true;
             mCanceled = true;
+            Arrays.fill(mTasks, mNextIndex, mSize, null);
+            mNextIndex = mSize;
         }
     }
 
@@ -81,23 +144,52 @@ public class ChainedTasks {
      * called on the thread matching the TaskTraits, will block and run all tasks synchronously.
      */
     public void start(final boolean coalesceTasks) {
-        synchronized (mTasks) {
-            assert !mFinalized :"Cannot call start() several times";
+        @TaskTraits int traits;
+        synchronized (mLock) {
+            assert !mFinalized : "Cannot call start() several times";
             mFinalized = true;
+            if (mNextIndex == mSize) return;
+            traits = mTraits[mNextIndex];
         }
-        if (mTasks.isEmpty()) return;
         if (coalesceTasks) {
-            @TaskTraits
-            int traits = mTasks.peek().first;
-            PostTask.runOrPostTask(traits, () -> {
-                for (Pair<Integer, Runnable> pair : mTasks) {
-                    assert PostTask.canRunTaskImmediately(pair.first);
-                    pair.second.run();
-                    if (mCanceled) return;
-                }
-            });
+            PostTask.runOrPostTask(
+                    traits,
+                    () -> {
+                        while (true) {
+                            Runnable task;
+                            synchronized (mLock) {
+                                if (mCanceled || mNextIndex == mSize) return;
+                                assert PostTask.canRunTaskImmediately(mTraits[mNextIndex]);
+                                task = pollTask();
+                            }
+                            task.run();
+                        }
+                    });
         } else {
-            PostTask.postTask(mTasks.peek().first, mRunAndPost);
+            PostTask.postTask(traits, mRunAndPost);
+        }
+    }
+
+    /** Removes the next task, so that it's released once it ran. */
+    @GuardedBy("mLock")
+    private Runnable pollTask() {
+        Runnable task = mTasks[mNextIndex];
+        mTasks[mNextIndex] = null;
+        mNextIndex++;
+        return task;
+    }
+
+    // The trace event name is derived from a string literal.
+    @SuppressWarnings("NoDynamicStringsInTraceEventCheck")
+    private static void runTask(Runnable task) {
+        Class<?> taskClass = task.getClass();
+        String traceEventName = sTraceEventNames.get(taskClass);
+        if (traceEventName == null) {
+            traceEventName = "ChainedTask.run: " + taskClass.getName();
+            sTraceEventNames.put(taskClass, traceEventName);
+        }
+        try (TraceEvent e = TraceEvent.scoped(traceEventName)) {
+            task.run();
         }
     }
 }
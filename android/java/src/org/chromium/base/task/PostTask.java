@@ -6,6 +6,8 @@ package org.chromium.base.task;
 
 import android.os.Handler;
 
+import androidx.annotation.Nullable;
+
 import org.jni_zero.CalledByNative;
 import org.jni_zero.JNINamespace;
 
@@ -14,7 +16,10 @@ import org.chromium.base.ResettersForTesting;
 import org.chromium.base.ThreadUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
@@ -26,6 +31,9 @@ import javax.annotation.concurrent.GuardedBy;
  * Java interface to the native chromium scheduler.  Note tasks can be posted before native
  * initialization, but task prioritization is extremely limited. Once the native scheduler
  * is ready, tasks will be migrated over.
+ *
+ * Processes that never load native can call {@link #enableJavaOnlyScheduler()} to keep running
+ * their tasks in Java for the lifetime of the process.
  */
 @JNINamespace("base")
 public class PostTask {
@@ -33,14 +41,20 @@ public class PostTask {
     private static final Object sPreNativeTaskRunnerLock = new Object();
     @GuardedBy("sPreNativeTaskRunnerLock")
     private static List<TaskRunnerImpl> sPreNativeTaskRunners = new ArrayList<>();
+    // Replaces sPreNativeTaskRunners once the Java-only scheduler is enabled. Its task runners are
+    // never migrated to native, so they're only weakly held for flushJobsAndResetForTesting().
+    @GuardedBy("sPreNativeTaskRunnerLock")
+    private static Set<TaskRunnerImpl> sJavaOnlyTaskRunners;
+    private static volatile boolean sJavaOnlySchedulerEnabled;
 
     // Volatile is sufficient for synchronization here since we never need to read-write. This is a
     // one-way switch (outside of testing) and volatile makes writes to it immediately visible to
     // other threads.
     private static volatile boolean sNativeInitialized;
-    private static ChromeThreadPoolExecutor sPrenativeThreadPoolExecutor =
-            new ChromeThreadPoolExecutor();
+    private static PreNativeThreadPoolExecutor sPrenativeThreadPoolExecutor =
+            new PreNativeThreadPoolExecutor();
     private static volatile Executor sPrenativeThreadPoolExecutorForTesting;
+    private static volatile ThreadPoolExecutorProvider sThreadPoolExecutorProvider;
 
     private static final ThreadPoolTaskExecutor sThreadPoolTaskExecutor =
             new ThreadPoolTaskExecutor();
@@ -194,15 +208,70 @@ public class PostTask {
     }
 
     /**
-     * @return The current Executor that PrenativeThreadPool tasks should run on.
+     * Lets thread pool tasks run on the Executors of {@code provider} rather than on the
+     * pre-native thread pool, until native is initialized or for the lifetime of the process with
+     * the Java-only scheduler. For example, JVM tools can run blocking tasks on virtual threads
+     * with {@link VirtualThreadExecutorProvider}.
+     *
+     * @param provider The provider of the Executors, or null to use the pre-native thread pool.
+     */
+    public static void setThreadPoolExecutorProvider(
+            @Nullable ThreadPoolExecutorProvider provider) {
+        sThreadPoolExecutorProvider = provider;
+    }
+
+    /**
+     * @param traits The TaskTraits of the tasks to run.
+     * @return The current Executor that PrenativeThreadPool tasks with {@code traits} should run
+     *         on.
      */
-    static Executor getPrenativeThreadPoolExecutor() {
+    static Executor getPrenativeThreadPoolExecutor(@TaskTraits int traits) {
         if (sPrenativeThreadPoolExecutorForTesting != null) {
             return sPrenativeThreadPoolExecutorForTesting;
         }
+        ThreadPoolExecutorProvider provider = sThreadPoolExecutorProvider;
+        if (provider != null) {
+            Executor executor = provider.getExecutor(traits);
+            if (executor != null) return executor;
+        }
         return sPrenativeThreadPoolExecutor;
     }
 
+    /**
+     * Makes the Java scheduler the only scheduler of this process, for processes that never load
+     * native. Task runners keep running their tasks in Java instead of waiting to be migrated to
+     * the native scheduler: thread pool tasks run in priority order on the pre-native thread pool,
+     * delayed tasks run once their delay expires, and single thread task runners run their tasks
+     * on a thread shared by all the runners with the same thread pool traits, i.e. one thread per
+     * priority and may-block pair.
+     *
+     * Must be called before native is initialized, and should be called before tasks are posted.
+     */
+    public static void enableJavaOnlyScheduler() {
+        assert !sNativeInitialized;
+        synchronized (sPreNativeTaskRunnerLock) {
+            if (sJavaOnlySchedulerEnabled) return;
+            sJavaOnlyTaskRunners = Collections.newSetFromMap(new WeakHashMap<>());
+            sJavaOnlyTaskRunners.addAll(sPreNativeTaskRunners);
+            sPreNativeTaskRunners = null;
+            sJavaOnlySchedulerEnabled = true;
+        }
+    }
+
+    /** Returns whether {@link #enableJavaOnlyScheduler()} was called. */
+    static boolean isJavaOnlySchedulerEnabled() {
+        return sJavaOnlySchedulerEnabled;
+    }
+
+    public static void resetJavaOnlySchedulerForTesting() {
+        synchronized (sPreNativeTaskRunnerLock) {
+            if (!sJavaOnlySchedulerEnabled) return;
+            sPreNativeTaskRunners = new ArrayList<>(sJavaOnlyTaskRunners);
+            sJavaOnlyTaskRunners = null;
+            sJavaOnlySchedulerEnabled = false;
+        }
+    }
+
     /**
      * Called by every TaskRunnerImpl on its creation, attempts to register this TaskRunner as
      * pre-native, unless the native scheduler has been initialized already, and informs the caller
@@ -213,6 +282,10 @@ public class PostTask {
      */
     static boolean registerPreNativeTaskRunner(TaskRunnerImpl taskRunner) {
         synchronized (sPreNativeTaskRunnerLock) {
+            if (sJavaOnlySchedulerEnabled) {
+                sJavaOnlyTaskRunners.add(taskRunner);
+                return true;
+            }
             if (sPreNativeTaskRunners == null) return false;
             sPreNativeTaskRunners.add(taskRunner);
             return true;
@@ -232,6 +305,10 @@ public class PostTask {
     private static void onNativeSchedulerReady() {
         // Unit tests call this multiple times.
         if (sNativeInitialized) return;
+        // Task runners of the Java-only scheduler can't move to native, single thread task runners
+        // would change threads.
+        assert !sJavaOnlySchedulerEnabled : "Native loaded with the Java-only scheduler enabled";
+        if (sJavaOnlySchedulerEnabled) return;
         sNativeInitialized = true;
         List<TaskRunnerImpl> preNativeTaskRunners;
         synchronized (sPreNativeTaskRunnerLock) {
@@ -245,25 +322,26 @@ public class PostTask {
 
     /** Drops all queued pre-native tasks. */
     public static void flushJobsAndResetForTesting() throws InterruptedException {
-        ChromeThreadPoolExecutor executor = sPrenativeThreadPoolExecutor;
+        PreNativeThreadPoolExecutor executor = sPrenativeThreadPoolExecutor;
         // Potential race condition, but by checking queue size first we overcount if anything.
-        int taskCount = executor.getQueue().size() + executor.getActiveCount();
+        int taskCount = executor.getQueuedTaskCount() + executor.getActiveCount();
         if (taskCount > 0) {
             executor.shutdownNow();
             executor.awaitTermination(1, TimeUnit.SECONDS);
-            sPrenativeThreadPoolExecutor = new ChromeThreadPoolExecutor();
+            sPrenativeThreadPoolExecutor = new PreNativeThreadPoolExecutor();
         }
         synchronized (sPreNativeTaskRunnerLock) {
             // Clear rather than rely on sTestIterationForTesting in case there are task runners
             // that are stored in static fields (re-used between tests).
-            if (sPreNativeTaskRunners != null) {
-                for (TaskRunnerImpl taskRunner : sPreNativeTaskRunners) {
-                    // Clearing would not reliably work in non-robolectric environments since
-                    // a currently running background task could post a new task after the queue
-                    // is cleared. However, Robolectric controls executors to prevent actual
-                    // concurrency, so this approach should work fine.
-                    taskCount += taskRunner.clearTaskQueueForTesting();
-                }
+            List<TaskRunnerImpl> taskRunners = new ArrayList<>();
+            if (sPreNativeTaskRunners != null) taskRunners.addAll(sPreNativeTaskRunners);
+            if (sJavaOnlyTaskRunners != null) taskRunners.addAll(sJavaOnlyTaskRunners);
+            for (TaskRunnerImpl taskRunner : taskRunners) {
+                // Clearing would not reliably work in non-robolectric environments since
+                // a currently running background task could post a new task after the queue
+                // is cleared. However, Robolectric controls executors to prevent actual
+                // concurrency, so this approach should work fine.
+                taskCount += taskRunner.clearTaskQueueForTesting();
             }
             sTestIterationForTesting++;
         }
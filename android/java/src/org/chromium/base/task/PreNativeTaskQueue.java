@@ -0,0 +1,125 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue of the tasks posted to a {@link TaskRunnerImpl} before native is initialized.
+ *
+ * Any thread can offer tasks, and any thread can poll them. Offering appends a node by swinging
+ * the tail, and polling removes the first node by swinging the head, so neither takes a lock.
+ * Once the queue is closed, offers fail and the remaining tasks are handed over in posting order,
+ * which lets {@link TaskRunnerImpl#initNativeTaskRunner()} migrate them to the native task runner
+ * without losing a concurrently posted task.
+ */
+/* package */ final class PreNativeTaskQueue {
+    /** Receives the tasks left in the queue when it is closed. */
+    interface TaskConsumer {
+        void accept(Runnable task, long delay);
+    }
+
+    private static final class Node {
+        // Only read by the thread that removed the node from the queue.
+        @Nullable Runnable mTask;
+        final long mDelay;
+        // Null until the next node is linked, which happens right after it becomes the tail.
+        volatile Node mNext;
+
+        Node(@Nullable Runnable task, long delay) {
+            mTask = task;
+            mDelay = delay;
+        }
+    }
+
+    // Last node of a closed queue, no node is ever linked after it.
+    private static final Node CLOSED = new Node(null, 0);
+
+    // The first node is a dummy, the first task is in its successor.
+    private final AtomicReference<Node> mHead;
+    private final AtomicReference<Node> mTail;
+
+    PreNativeTaskQueue() {
+        Node dummy = new Node(null, 0);
+        mHead = new AtomicReference<>(dummy);
+        mTail = new AtomicReference<>(dummy);
+    }
+
+    /**
+     * Adds a task at the end of the queue.
+     *
+     * @return false if the queue is closed, in which case the task wasn't added.
+     */
+    boolean offer(Runnable task, long delay) {
+        Node node = new Node(task, delay);
+        while (true) {
+            Node tail = mTail.get();
+            if (tail == CLOSED) return false;
+            if (mTail.compareAndSet(tail, node)) {
+                tail.mNext = node;
+                return true;
+            }
+        }
+    }
+
+    /** Removes and returns the first task, or null if the queue is empty or closed. */
+    @Nullable
+    Runnable poll() {
+        Node node = pollNode();
+        return node == null ? null : takeTask(node);
+    }
+
+    /**
+     * Closes the queue and passes the tasks it still holds to {@code consumer}, in posting order.
+     * Has no effect if the queue is already closed.
+     */
+    void close(TaskConsumer consumer) {
+        while (true) {
+            Node tail = mTail.get();
+            if (tail == CLOSED) return;
+            if (mTail.compareAndSet(tail, CLOSED)) {
+                tail.mNext = CLOSED;
+                break;
+            }
+        }
+        Node node;
+        while ((node = pollNode()) != null) {
+            long delay = node.mDelay;
+            consumer.accept(takeTask(node), delay);
+        }
+    }
+
+    /** Removes all the tasks and returns how many there were. */
+    int clear() {
+        int taskCount = 0;
+        while (poll() != null) taskCount++;
+        return taskCount;
+    }
+
+    @Nullable
+    private Node pollNode() {
+        while (true) {
+            Node head = mHead.get();
+            Node next = head.mNext;
+            if (next == CLOSED) return null;
+            if (next == null) {
+                if (mTail.get() == head) return null;
+                // A node was made the tail but isn't linked yet, which takes a few instructions.
+                Thread.yield();
+                continue;
+            }
+            if (mHead.compareAndSet(head, next)) return next;
+        }
+    }
+
+    private static Runnable takeTask(Node node) {
+        // The node is the new dummy, drop the task so it can be collected once it has run.
+        Runnable task = node.mTask;
+        node.mTask = null;
+        return task;
+    }
+}
@@ -0,0 +1,425 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.chromium.base.Log;
+import org.chromium.base.ThreadUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * The thread pool running thread pool tasks before native is initialized.
+ *
+ * Tasks are queued by priority, rather than in a single FIFO, so that USER_BLOCKING tasks don't
+ * wait behind BEST_EFFORT startup work. The threads only receive an anonymous "run the next task"
+ * runnable for each task, and the task to run is picked when a thread becomes available: the
+ * oldest task of the highest priority, unless a lower priority task has waited longer than the
+ * aging threshold, in which case the task that waited the longest runs first.
+ *
+ * Picking by priority needs a view of every queued task, so the queues are shared by the threads
+ * rather than split into per-thread deques. The threads are the workers of a {@link ForkJoinPool}
+ * so that tasks that may block run as a {@link ForkJoinPool.ManagedBlocker}: the pool adds a
+ * thread while they run, so that a few blocked threads don't stall the other tasks. At most
+ * {@link #PARALLELISM} of them run with an extra thread at once, so that the number of threads
+ * stays bounded.
+ *
+ * Past {@link #MAX_QUEUED_TASK_COUNT} queued tasks, tasks are admitted as follows rather than
+ * rejected:
+ * - BEST_EFFORT tasks are held back, and only queued once the queues drop below the limit.
+ * - Other posters wait for the queues to drop below the limit, for up to {@link
+ *   #DEFAULT_ADMISSION_TIMEOUT_MS}. The UI thread and the threads of the pool never wait, as they
+ *   would respectively jank and stop draining the queues.
+ * The classes posting the most tasks are logged once per overload. Queued tasks are counted by
+ * class as they are posted and run, so finding these classes doesn't walk the queues.
+ */
+class PreNativeThreadPoolExecutor implements Executor {
+    private static final String TAG = "PreNativeThreadPool";
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    // Same number of threads as the core pool of ChromeThreadPoolExecutor.
+    private static final int PARALLELISM = Math.max(2, Math.min(CPU_COUNT - 1, 4));
+
+    // Thread pool tasks are mapped to these priorities, see getPriority().
+    private static final int PRIORITY_BEST_EFFORT = 0;
+    private static final int PRIORITY_USER_VISIBLE = 1;
+    private static final int PRIORITY_USER_BLOCKING = 2;
+    private static final int PRIORITY_COUNT = 3;
+
+    // Lower priority tasks that waited this long run before higher priority tasks, so they can't
+    // be starved.
+    private static final long DEFAULT_AGING_THRESHOLD_MS = 250;
+
+    // Number of queued tasks past which the pool is considered overloaded, and new tasks are
+    // held back or delayed.
+    private static final int MAX_QUEUED_TASK_COUNT = 128;
+
+    // Longest time a poster waits for the queues to drop below the limit.
+    private static final long DEFAULT_ADMISSION_TIMEOUT_MS = 50;
+
+    // Only classes with more queued tasks than this are reported when the pool is overloaded.
+    private static final int RUNNABLE_WARNING_COUNT = 32;
+
+    private static final ForkJoinPool.ForkJoinWorkerThreadFactory sThreadFactory =
+            new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger(1);
+
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                    ForkJoinWorkerThread thread =
+                            ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("CrAsyncTask #" + mCount.getAndIncrement());
+                    return thread;
+                }
+            };
+
+    private static class QueuedTask {
+        final Runnable mTask;
+        final Class<?> mBlamedClass;
+        final boolean mMayBlock;
+        final long mEnqueueTimeNs;
+
+        QueuedTask(Runnable task, boolean mayBlock, long enqueueTimeNs) {
+            mTask = task;
+            mBlamedClass = getBlamedClass(task);
+            mMayBlock = mayBlock;
+            mEnqueueTimeNs = enqueueTimeNs;
+        }
+    }
+
+    /** Runs a task that may block, letting the pool add a thread while it runs. */
+    private static class MayBlockTask implements ForkJoinPool.ManagedBlocker {
+        private final Runnable mTask;
+        private boolean mDone;
+
+        MayBlockTask(Runnable task) {
+            mTask = task;
+        }
+
+        @Override
+        public boolean block() {
+            mTask.run();
+            mDone = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return mDone;
+        }
+    }
+
+    private final ForkJoinPool mPool;
+    private final int mMaxQueuedTaskCount;
+    private final long mAdmissionTimeoutNs;
+    private final int mMaxCompensatedTaskCount;
+    // Number of tasks that may block running with an extra thread.
+    private final AtomicInteger mCompensatedTaskCount = new AtomicInteger();
+    private final long mAgingThresholdNs;
+    private final Runnable mRunNextTask = this::runNextTask;
+
+    private final Object mLock = new Object();
+    // Queued tasks of each priority, in posting order.
+    @GuardedBy("mLock")
+    private final List<ArrayDeque<QueuedTask>> mQueuedTasks = new ArrayList<>(PRIORITY_COUNT);
+    @GuardedBy("mLock")
+    private int mQueuedTaskCount;
+    // BEST_EFFORT tasks held back while the queues are full, in posting order.
+    @GuardedBy("mLock")
+    private final ArrayDeque<QueuedTask> mDeferredTasks = new ArrayDeque<>();
+    // Number of posters waiting for the queues to drop below the limit.
+    @GuardedBy("mLock")
+    private int mWaitingPosterCount;
+    // Number of queued and deferred tasks of each class, classes without tasks are removed.
+    @GuardedBy("mLock")
+    private final Map<Class<?>, int[]> mQueuedTaskCountByClass = new HashMap<>();
+    // Whether the current overload was already logged.
+    @GuardedBy("mLock")
+    private boolean mOverloadReported;
+
+    PreNativeThreadPoolExecutor() {
+        this(
+                PARALLELISM,
+                MAX_QUEUED_TASK_COUNT,
+                DEFAULT_ADMISSION_TIMEOUT_MS,
+                PARALLELISM,
+                DEFAULT_AGING_THRESHOLD_MS);
+    }
+
+    @VisibleForTesting
+    PreNativeThreadPoolExecutor(
+            int parallelism,
+            int maxQueuedTaskCount,
+            long admissionTimeoutMs,
+            int maxCompensatedTaskCount,
+            long agingThresholdMs) {
+        // Async mode runs the submitted dispatch runnables in FIFO order, which suits tasks that
+        // are never joined.
+        mPool = new ForkJoinPool(parallelism, sThreadFactory, null, /* asyncMode= */ true);
+        mMaxQueuedTaskCount = maxQueuedTaskCount;
+        mAdmissionTimeoutNs = TimeUnit.MILLISECONDS.toNanos(admissionTimeoutMs);
+        mMaxCompensatedTaskCount = maxCompensatedTaskCount;
+        mAgingThresholdNs = TimeUnit.MILLISECONDS.toNanos(agingThresholdMs);
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            mQueuedTasks.add(new ArrayDeque<>());
+        }
+    }
+
+    private static int getPriority(@TaskTraits int traits) {
+        switch (traits) {
+            case TaskTraits.BEST_EFFORT:
+            case TaskTraits.BEST_EFFORT_MAY_BLOCK:
+                return PRIORITY_BEST_EFFORT;
+            case TaskTraits.USER_BLOCKING:
+            case TaskTraits.USER_BLOCKING_MAY_BLOCK:
+                return PRIORITY_USER_BLOCKING;
+            default:
+                return PRIORITY_USER_VISIBLE;
+        }
+    }
+
+    @SuppressWarnings("NoAndroidAsyncTaskCheck")
+    private static Class<?> getBlamedClass(Runnable task) {
+        if (task instanceof AsyncTask.NamedFutureTask) {
+            return ((AsyncTask.NamedFutureTask) task).getBlamedClass();
+        }
+        return task.getClass();
+    }
+
+    private static boolean mayBlock(@TaskTraits int traits) {
+        return traits == TaskTraits.BEST_EFFORT_MAY_BLOCK
+                || traits == TaskTraits.USER_VISIBLE_MAY_BLOCK
+                || traits == TaskTraits.USER_BLOCKING_MAY_BLOCK;
+    }
+
+    /** Runs {@code task} at the priority of {@code traits}. */
+    void execute(Runnable task, @TaskTraits int traits) {
+        int priority = getPriority(traits);
+        QueuedTask queuedTask = new QueuedTask(task, mayBlock(traits), System.nanoTime());
+        boolean deferred = false;
+        String overloadingClassNames = null;
+        synchronized (mLock) {
+            updateClassTaskCount(queuedTask.mBlamedClass, 1);
+            if (mQueuedTaskCount >= mMaxQueuedTaskCount && !mOverloadReported) {
+                mOverloadReported = true;
+                overloadingClassNames = findClassNamesWithTooManyRunnables();
+            }
+            if (priority == PRIORITY_BEST_EFFORT) {
+                // Queued behind the deferred tasks, so that BEST_EFFORT tasks keep their order.
+                deferred = mQueuedTaskCount >= mMaxQueuedTaskCount || !mDeferredTasks.isEmpty();
+            } else if (mQueuedTaskCount >= mMaxQueuedTaskCount && canPosterWait()) {
+                waitForRoom();
+            }
+            if (deferred) {
+                mDeferredTasks.addLast(queuedTask);
+            } else {
+                mQueuedTasks.get(priority).addLast(queuedTask);
+                mQueuedTaskCount++;
+            }
+        }
+        if (overloadingClassNames != null) {
+            Log.w(
+                    TAG,
+                    "More than %d queued tasks, prominent classes: %s",
+                    mMaxQueuedTaskCount,
+                    overloadingClassNames);
+        }
+        if (!deferred) mPool.execute(mRunNextTask);
+    }
+
+    /** Returns whether the current thread can wait for the queues to drop below the limit. */
+    private boolean canPosterWait() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) thread).getPool() == mPool) {
+            return false;
+        }
+        return !ThreadUtils.runningOnUiThread();
+    }
+
+    /** Waits until the queues drop below the limit, or until the admission timeout expires. */
+    @GuardedBy("mLock")
+    private void waitForRoom() {
+        long deadlineNs = System.nanoTime() + mAdmissionTimeoutNs;
+        mWaitingPosterCount++;
+        try {
+            while (mQueuedTaskCount >= mMaxQueuedTaskCount) {
+                long remainingNs = deadlineNs - System.nanoTime();
+                if (remainingNs <= 0) return;
+                TimeUnit.NANOSECONDS.timedWait(mLock, remainingNs);
+            }
+        } catch (InterruptedException e) {
+            // The task is admitted without waiting any longer.
+            Thread.currentThread().interrupt();
+        } finally {
+            mWaitingPosterCount--;
+        }
+    }
+
+    /** Runs {@code task} at USER_VISIBLE priority. */
+    @Override
+    public void execute(Runnable task) {
+        execute(task, TaskTraits.USER_VISIBLE);
+    }
+
+    /** Returns the number of tasks waiting for a thread, including the deferred ones. */
+    int getQueuedTaskCount() {
+        synchronized (mLock) {
+            return mQueuedTaskCount + mDeferredTasks.size();
+        }
+    }
+
+    int getDeferredTaskCountForTesting() {
+        synchronized (mLock) {
+            return mDeferredTasks.size();
+        }
+    }
+
+    int getWaitingPosterCountForTesting() {
+        synchronized (mLock) {
+            return mWaitingPosterCount;
+        }
+    }
+
+    /** Returns an estimate of the number of threads running tasks. */
+    int getActiveCount() {
+        return mPool.getActiveThreadCount();
+    }
+
+    /** Drops the queued tasks and interrupts the running ones. */
+    void shutdownNow() {
+        synchronized (mLock) {
+            for (ArrayDeque<QueuedTask> queue : mQueuedTasks) {
+                queue.clear();
+            }
+            mQueuedTaskCount = 0;
+            mDeferredTasks.clear();
+            mQueuedTaskCountByClass.clear();
+            mOverloadReported = false;
+            mLock.notifyAll();
+        }
+        mPool.shutdownNow();
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return mPool.awaitTermination(timeout, unit);
+    }
+
+    @GuardedBy("mLock")
+    private void updateClassTaskCount(Class<?> blamedClass, int delta) {
+        int[] classCount = mQueuedTaskCountByClass.get(blamedClass);
+        if (classCount == null) {
+            classCount = new int[1];
+            mQueuedTaskCountByClass.put(blamedClass, classCount);
+        }
+        classCount[0] += delta;
+        if (classCount[0] == 0) mQueuedTaskCountByClass.remove(blamedClass);
+    }
+
+    /** Returns the classes with more than {@link #RUNNABLE_WARNING_COUNT} queued tasks. */
+    @VisibleForTesting
+    String findClassNamesWithTooManyRunnables() {
+        // Only the classes past RUNNABLE_WARNING_COUNT are reported so that reports of the same
+        // overload group up together, see ChromeThreadPoolExecutor.
+        StringBuilder classesWithTooManyRunnables = new StringBuilder();
+        synchronized (mLock) {
+            for (Map.Entry<Class<?>, int[]> entry : mQueuedTaskCountByClass.entrySet()) {
+                if (entry.getValue()[0] > RUNNABLE_WARNING_COUNT) {
+                    classesWithTooManyRunnables.append(entry.getKey().getName()).append(' ');
+                }
+            }
+        }
+        if (classesWithTooManyRunnables.length() == 0) {
+            return "NO CLASSES FOUND";
+        }
+        return classesWithTooManyRunnables.toString();
+    }
+
+    private void runNextTask() {
+        QueuedTask next;
+        boolean admittedDeferredTask = false;
+        synchronized (mLock) {
+            next = pollNextTask(System.nanoTime());
+            // Null if the queues were cleared by shutdownNow().
+            if (next == null) return;
+            mQueuedTaskCount--;
+            updateClassTaskCount(next.mBlamedClass, -1);
+            if (mQueuedTaskCount < mMaxQueuedTaskCount) {
+                // Waiting posters come first, they admit a task and so run this again later.
+                if (mWaitingPosterCount > 0) {
+                    mLock.notify();
+                } else if (!mDeferredTasks.isEmpty()) {
+                    mQueuedTasks.get(PRIORITY_BEST_EFFORT).addLast(mDeferredTasks.pollFirst());
+                    mQueuedTaskCount++;
+                    admittedDeferredTask = true;
+                }
+            }
+            // Report the next overload once the queues have drained.
+            if (mQueuedTaskCount + mDeferredTasks.size() <= mMaxQueuedTaskCount / 2) {
+                mOverloadReported = false;
+            }
+        }
+        if (admittedDeferredTask) mPool.execute(mRunNextTask);
+        if (next.mMayBlock && tryStartCompensatedTask()) {
+            try {
+                ForkJoinPool.managedBlock(new MayBlockTask(next.mTask));
+            } catch (InterruptedException e) {
+                // Not thrown, as MayBlockTask.block() doesn't wait.
+                throw new AssertionError(e);
+            } finally {
+                mCompensatedTaskCount.decrementAndGet();
+            }
+        } else {
+            next.mTask.run();
+        }
+    }
+
+    /** Returns whether a task that may block can run with an extra thread. */
+    private boolean tryStartCompensatedTask() {
+        while (true) {
+            int count = mCompensatedTaskCount.get();
+            if (count >= mMaxCompensatedTaskCount) return false;
+            if (mCompensatedTaskCount.compareAndSet(count, count + 1)) return true;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private QueuedTask pollNextTask(long nowNs) {
+        boolean hasAgedTask = false;
+        for (int priority = 0; priority < PRIORITY_COUNT - 1; priority++) {
+            QueuedTask head = mQueuedTasks.get(priority).peekFirst();
+            if (head != null && nowNs - head.mEnqueueTimeNs >= mAgingThresholdNs) {
+                hasAgedTask = true;
+            }
+        }
+
+        // While a lower priority task waited for too long, tasks run in posting order regardless
+        // of their priority.
+        ArrayDeque<QueuedTask> nextQueue = null;
+        long nextEnqueueTimeNs = Long.MAX_VALUE;
+        for (int priority = PRIORITY_COUNT - 1; priority >= 0; priority--) {
+            QueuedTask head = mQueuedTasks.get(priority).peekFirst();
+            if (head == null) continue;
+            if (!hasAgedTask) return mQueuedTasks.get(priority).pollFirst();
+            if (head.mEnqueueTimeNs < nextEnqueueTimeNs) {
+                nextQueue = mQueuedTasks.get(priority);
+                nextEnqueueTimeNs = head.mEnqueueTimeNs;
+            }
+        }
+        return nextQueue == null ? null : nextQueue.pollFirst();
+    }
+}
@@ -0,0 +1,273 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.chromium.base.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Runs the delayed tasks posted to task runners before native is initialized.
+ *
+ * Timers are kept in a hashed timer wheel: a ring of buckets, each holding the timers due on the
+ * ticks that map to it. A single thread sleeps until the tick of the earliest pending timer, and
+ * posts the tasks of the expired timers to their task runner. Ticks without timers are skipped, so
+ * a timer costs a single wake-up whatever its delay. The thread exits once no timer is left, so a
+ * process where native never loads doesn't keep it around.
+ *
+ * Timers that haven't fired when native is initialized are cancelled by {@link
+ * TaskRunnerImpl#initNativeTaskRunner()}, and posted to the native task runner with their
+ * remaining delay.
+ */
+/* package */ final class PreNativeTimerWheel {
+    private static final long DEFAULT_TICK_MS = 10;
+    // Number of buckets, a power of two. The wheel turns once every 5 seconds.
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final PreNativeTimerWheel sInstance =
+            new PreNativeTimerWheel(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+
+    /** A delayed task, linked in the circular list of its bucket. */
+    private static final class Timer {
+        final TaskRunner mTaskRunner;
+        final Runnable mTask;
+        final long mDeadlineNs;
+        final long mDeadlineTick;
+        Timer mPrevious;
+        Timer mNext;
+
+        Timer(TaskRunner taskRunner, Runnable task, long deadlineNs, long deadlineTick) {
+            mTaskRunner = taskRunner;
+            mTask = task;
+            mDeadlineNs = deadlineNs;
+            mDeadlineTick = deadlineTick;
+        }
+
+        /** Creates the sentinel of an empty bucket. */
+        Timer() {
+            this(null, null, 0, 0);
+            mPrevious = this;
+            mNext = this;
+        }
+
+        void unlink() {
+            mPrevious.mNext = mNext;
+            mNext.mPrevious = mPrevious;
+            mPrevious = null;
+            mNext = null;
+        }
+    }
+
+    private final long mTickNs;
+    private final int mMask;
+    // Ticks are counted from this time.
+    private final long mOriginNs = System.nanoTime();
+
+    private final Object mLock = new Object();
+    // Sentinels of the circular list of each bucket, timers are appended in posting order.
+    @GuardedBy("mLock")
+    private final Timer[] mBuckets;
+    @GuardedBy("mLock")
+    private int mTimerCount;
+    // Timers due up to this tick have been posted.
+    @GuardedBy("mLock")
+    private long mProcessedTick;
+    // No timer is due before this tick. It can be earlier than the earliest timer once timers are
+    // cancelled, which only causes an early wake-up.
+    @GuardedBy("mLock")
+    private long mNextDeadlineTick = Long.MAX_VALUE;
+    @GuardedBy("mLock")
+    private int mWakeUpCount;
+    // Null while no timer is pending.
+    @GuardedBy("mLock")
+    private Thread mThread;
+
+    static PreNativeTimerWheel getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PreNativeTimerWheel(long tickMs, int wheelSize) {
+        assert Integer.bitCount(wheelSize) == 1;
+        mTickNs = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        mMask = wheelSize - 1;
+        mBuckets = new Timer[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            mBuckets[i] = new Timer();
+        }
+    }
+
+    /** Posts {@code task} to {@code taskRunner} once {@code delay} milliseconds have passed. */
+    void schedule(TaskRunner taskRunner, Runnable task, long delay) {
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        // Rounded up, so that tasks never run early.
+        long deadlineTick = (deadlineNs - mOriginNs + mTickNs - 1) / mTickNs;
+        synchronized (mLock) {
+            if (mTimerCount == 0) {
+                mProcessedTick = getCurrentTick();
+                mNextDeadlineTick = Long.MAX_VALUE;
+            }
+            Timer timer =
+                    new Timer(
+                            taskRunner,
+                            task,
+                            deadlineNs,
+                            Math.max(deadlineTick, mProcessedTick + 1));
+            Timer bucket = mBuckets[(int) (timer.mDeadlineTick & mMask)];
+            timer.mPrevious = bucket.mPrevious;
+            timer.mNext = bucket;
+            bucket.mPrevious.mNext = timer;
+            bucket.mPrevious = timer;
+            mTimerCount++;
+
+            if (timer.mDeadlineTick < mNextDeadlineTick) {
+                mNextDeadlineTick = timer.mDeadlineTick;
+                // Wakes up the thread if it is sleeping until a later tick.
+                mLock.notify();
+            }
+            if (mThread == null) {
+                mThread = new Thread(this::runTimers, "CrPreNativeTimer");
+                mThread.setDaemon(true);
+                mThread.start();
+            }
+        }
+    }
+
+    /**
+     * Cancels the timers of {@code taskRunner} that haven't fired yet, and passes their tasks to
+     * {@code consumer} with their remaining delay in milliseconds, in the order they're due.
+     *
+     * @return The number of cancelled timers.
+     */
+    int cancelTimers(TaskRunner taskRunner, PreNativeTaskQueue.TaskConsumer consumer) {
+        List<Timer> cancelled = new ArrayList<>();
+        synchronized (mLock) {
+            for (Timer bucket : mBuckets) {
+                Timer timer = bucket.mNext;
+                while (timer != bucket) {
+                    Timer next = timer.mNext;
+                    if (timer.mTaskRunner == taskRunner) {
+                        timer.unlink();
+                        cancelled.add(timer);
+                    }
+                    timer = next;
+                }
+            }
+            mTimerCount -= cancelled.size();
+            // Lets the thread exit without waiting for the cancelled timers.
+            if (mTimerCount == 0) mLock.notify();
+        }
+        // The sort is stable, timers due at the same time stay in posting order within a bucket.
+        Collections.sort(cancelled, (a, b) -> Long.compare(a.mDeadlineNs, b.mDeadlineNs));
+        long nowNs = System.nanoTime();
+        for (Timer timer : cancelled) {
+            long remainingNs = Math.max(0, timer.mDeadlineNs - nowNs);
+            // Rounded up, so that tasks never run early.
+            long remainingMs =
+                    (remainingNs + TimeUtils.NANOSECONDS_PER_MILLISECOND - 1)
+                            / TimeUtils.NANOSECONDS_PER_MILLISECOND;
+            consumer.accept(timer.mTask, remainingMs);
+        }
+        return cancelled.size();
+    }
+
+    int getTimerCountForTesting() {
+        synchronized (mLock) {
+            return mTimerCount;
+        }
+    }
+
+    /** Returns the number of times the thread woke up to check for expired timers. */
+    int getWakeUpCountForTesting() {
+        synchronized (mLock) {
+            return mWakeUpCount;
+        }
+    }
+
+    private long getCurrentTick() {
+        return (System.nanoTime() - mOriginNs) / mTickNs;
+    }
+
+    private void runTimers() {
+        List<Timer> expired = new ArrayList<>();
+        while (true) {
+            synchronized (mLock) {
+                while (true) {
+                    if (mTimerCount == 0) {
+                        mThread = null;
+                        return;
+                    }
+                    long currentTick = getCurrentTick();
+                    if (currentTick >= mNextDeadlineTick) {
+                        expireTimers(currentTick, expired);
+                        if (!expired.isEmpty()) break;
+                        continue;
+                    }
+                    long deadlineNs = mOriginNs + mNextDeadlineTick * mTickNs;
+                    long waitNs = Math.max(1, deadlineNs - System.nanoTime());
+                    mWakeUpCount++;
+                    try {
+                        mLock.wait(
+                                waitNs / TimeUtils.NANOSECONDS_PER_MILLISECOND,
+                                (int) (waitNs % TimeUtils.NANOSECONDS_PER_MILLISECOND));
+                    } catch (InterruptedException e) {
+                        // Keep running, pending timers would never fire otherwise.
+                    }
+                }
+            }
+            // Posted outside of the lock, as posting can take the lock of the task runner, which
+            // is held while cancelling its timers.
+            for (Timer timer : expired) {
+                timer.mTaskRunner.postTask(timer.mTask);
+            }
+            expired.clear();
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void expireTimers(long currentTick, List<Timer> expired) {
+        // If the thread fell a whole turn behind, every bucket needs to be visited once.
+        long tickCount = Math.min(currentTick - mProcessedTick, mBuckets.length);
+        for (long i = 1; i <= tickCount; i++) {
+            Timer bucket = mBuckets[(int) ((mProcessedTick + i) & mMask)];
+            Timer timer = bucket.mNext;
+            while (timer != bucket) {
+                Timer next = timer.mNext;
+                if (timer.mDeadlineTick <= currentTick) {
+                    timer.unlink();
+                    expired.add(timer);
+                }
+                timer = next;
+            }
+        }
+        mTimerCount -= expired.size();
+        mProcessedTick = currentTick;
+        mNextDeadlineTick = findNextDeadlineTick();
+    }
+
+    /** Returns the tick of the earliest pending timer, or Long.MAX_VALUE if there is none. */
+    @GuardedBy("mLock")
+    private long findNextDeadlineTick() {
+        long nextDeadlineTick = Long.MAX_VALUE;
+        if (mTimerCount == 0) return nextDeadlineTick;
+        // Buckets are visited in tick order, so the first timer due on the tick of its bucket is
+        // the earliest. Timers due in later turns are only found by visiting every bucket.
+        for (long tick = mProcessedTick + 1; tick <= mProcessedTick + mBuckets.length; tick++) {
+            Timer bucket = mBuckets[(int) (tick & mMask)];
+            for (Timer timer = bucket.mNext; timer != bucket; timer = timer.mNext) {
+                if (timer.mDeadlineTick == tick) return tick;
+                nextDeadlineTick = Math.min(nextDeadlineTick, timer.mDeadlineTick);
+            }
+        }
+        return nextDeadlineTick;
+    }
+}
@@ -4,33 +4,85 @@
 
 package org.chromium.base.task;
 
+import androidx.annotation.VisibleForTesting;
+
 import java.util.ArrayDeque;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
 
+/**
+ * Runs tasks one at a time, in submission order, on the thread pool.
+ *
+ * Rather than dispatching each task to the pool, a single dispatch runs the queued tasks one after
+ * the other, until the queue is empty or a budget of tasks or time is spent. The remaining tasks
+ * are then dispatched again, so other thread pool tasks can run in between.
+ */
 class SerialExecutor implements Executor {
-    final ArrayDeque<Runnable> mTasks = new ArrayDeque<Runnable>();
-    Runnable mActive;
+    // Budget of a single dispatch, once either is spent the remaining tasks are dispatched again.
+    private static final int MAX_TASKS_PER_DISPATCH = 32;
+    private static final long MAX_TIME_PER_DISPATCH_MS = 10;
+
+    private final Executor mExecutor;
+    private final int mMaxTasksPerDispatch;
+    private final long mMaxTimePerDispatchNs;
+    private final Runnable mRunTasks = this::runTasks;
+
+    @GuardedBy("this")
+    private final ArrayDeque<Runnable> mTasks = new ArrayDeque<Runnable>();
+    // Whether mRunTasks is dispatched or running. Only that dispatch polls mTasks, which keeps
+    // the tasks serial.
+    @GuardedBy("this")
+    private boolean mDispatched;
+
+    SerialExecutor() {
+        this(AsyncTask.THREAD_POOL_EXECUTOR, MAX_TASKS_PER_DISPATCH, MAX_TIME_PER_DISPATCH_MS);
+    }
+
+    @VisibleForTesting
+    SerialExecutor(Executor executor, int maxTasksPerDispatch, long maxTimePerDispatchMs) {
+        mExecutor = executor;
+        mMaxTasksPerDispatch = maxTasksPerDispatch;
+        mMaxTimePerDispatchNs = TimeUnit.MILLISECONDS.toNanos(maxTimePerDispatchMs);
+    }
 
     @Override
-    public synchronized void execute(final Runnable r) {
-        mTasks.offer(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    r.run();
-                } finally {
-                    scheduleNext();
-                }
-            }
-        });
-        if (mActive == null) {
-            scheduleNext();
+    public void execute(Runnable task) {
+        Runnable queuedTask =
+                TaskInstrumentation.wrap(
+                        task,
+                        TaskInstrumentation.QUEUE_SERIAL_EXECUTOR,
+                        TaskTraits.BEST_EFFORT_MAY_BLOCK);
+        synchronized (this) {
+            mTasks.offer(queuedTask);
+            if (mDispatched) return;
+            mDispatched = true;
         }
+        mExecutor.execute(mRunTasks);
     }
 
-    protected synchronized void scheduleNext() {
-        if ((mActive = mTasks.poll()) != null) {
-            AsyncTask.THREAD_POOL_EXECUTOR.execute(mActive);
+    private void runTasks() {
+        long deadlineNs = System.nanoTime() + mMaxTimePerDispatchNs;
+        boolean drained = false;
+        try {
+            for (int i = 0; i < mMaxTasksPerDispatch; i++) {
+                Runnable task;
+                synchronized (this) {
+                    task = mTasks.poll();
+                    if (task == null) {
+                        mDispatched = false;
+                        drained = true;
+                        return;
+                    }
+                }
+                // Tasks run without holding the monitor, so they can be submitted concurrently.
+                task.run();
+                if (System.nanoTime() >= deadlineNs) break;
+            }
+        } finally {
+            // Also dispatched again when a task throws, so the next tasks still run.
+            if (!drained) mExecutor.execute(mRunTasks);
         }
     }
 }
@@ -0,0 +1,244 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import org.chromium.base.TimeUtils;
+import org.chromium.base.metrics.RecordHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Opt-in instrumentation of the tasks queued in Java: tasks posted to task runners before native
+ * is initialized, and tasks posted to {@link AsyncTask#SERIAL_EXECUTOR}. Once native is
+ * initialized, tasks are queued and instrumented by the native scheduler.
+ *
+ * While enabled, every such task is wrapped when posted, which lets it record:
+ * <ul>
+ * <li>How long it waited to run, and how long it ran, in histograms per queue and TaskTraits.
+ * <li>The number of tasks posted by each class.
+ * <li>The slowest tasks among the last {@link #RECENT_TASK_COUNT} ones that ran.
+ * </ul>
+ * While disabled, posting a task only reads a volatile boolean.
+ */
+public final class TaskInstrumentation {
+    /** Tasks posted to a task runner before native is initialized. */
+    static final int QUEUE_PRE_NATIVE = 0;
+
+    /** Tasks posted to {@link AsyncTask#SERIAL_EXECUTOR}. */
+    static final int QUEUE_SERIAL_EXECUTOR = 1;
+
+    // Number of tasks whose record is kept for getSlowestRecentTasks().
+    static final int RECENT_TASK_COUNT = 64;
+
+    private static final String[] QUEUE_NAMES = {"PreNative", "SerialExecutor"};
+
+    // Indexed by TaskTraits.
+    private static final String[] TRAITS_NAMES = {
+        "BestEffort",
+        "BestEffortMayBlock",
+        "UserVisible",
+        "UserVisibleMayBlock",
+        "UserBlocking",
+        "UserBlockingMayBlock",
+        "UiBestEffort",
+        "UiUserVisible",
+        "UiUserBlocking"
+    };
+
+    // Histogram names indexed by queue and TaskTraits, so that recording doesn't build strings.
+    private static final String[][] QUEUEING_DELAY_HISTOGRAMS = getHistogramNames("QueueingDelay");
+    private static final String[][] RUN_TIME_HISTOGRAMS = getHistogramNames("RunTime");
+
+    private static volatile boolean sEnabled;
+
+    private static final Map<Class<?>, AtomicInteger> sPostCounts = new ConcurrentHashMap<>();
+
+    private static final Object sLock = new Object();
+    // Ring buffer of the records of the last tasks that ran.
+    @GuardedBy("sLock")
+    private static final TaskRecord[] sRecentTasks = new TaskRecord[RECENT_TASK_COUNT];
+    @GuardedBy("sLock")
+    private static int sNextRecentTaskIndex;
+
+    /** The record of a task that ran. */
+    public static final class TaskRecord {
+        /** The name of the class that posted the task. */
+        public final String className;
+
+        /** The TaskTraits the task was posted with. */
+        public final @TaskTraits int taskTraits;
+
+        /** How long the task waited to run, in milliseconds. */
+        public final long queueingDelayMs;
+
+        /** How long the task ran, in milliseconds. */
+        public final long runTimeMs;
+
+        TaskRecord(
+                String className,
+                @TaskTraits int taskTraits,
+                long queueingDelayMs,
+                long runTimeMs) {
+            this.className = className;
+            this.taskTraits = taskTraits;
+            this.queueingDelayMs = queueingDelayMs;
+            this.runTimeMs = runTimeMs;
+        }
+    }
+
+    private static final class InstrumentedTask implements Runnable {
+        final Runnable mTask;
+        final Class<?> mPostingClass;
+        final int mQueue;
+        final @TaskTraits int mTaskTraits;
+        final long mPostTimeNs;
+
+        InstrumentedTask(
+                Runnable task, Class<?> postingClass, int queue, @TaskTraits int taskTraits) {
+            mTask = task;
+            mPostingClass = postingClass;
+            mQueue = queue;
+            mTaskTraits = taskTraits;
+            mPostTimeNs = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startTimeNs = System.nanoTime();
+            try {
+                mTask.run();
+            } finally {
+                recordTask(this, startTimeNs, System.nanoTime());
+            }
+        }
+    }
+
+    private TaskInstrumentation() {}
+
+    /**
+     * Enables or disables the instrumentation. Tasks posted while enabled are recorded when they
+     * run, even if the instrumentation was disabled since.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Returns the slowest of the last {@link #RECENT_TASK_COUNT} tasks that ran, slowest first.
+     *
+     * @param maxCount The maximum number of records to return.
+     */
+    public static List<TaskRecord> getSlowestRecentTasks(int maxCount) {
+        List<TaskRecord> records = new ArrayList<>(RECENT_TASK_COUNT);
+        synchronized (sLock) {
+            for (TaskRecord record : sRecentTasks) {
+                if (record != null) records.add(record);
+            }
+        }
+        Collections.sort(records, (a, b) -> Long.compare(b.runTimeMs, a.runTimeMs));
+        return records.subList(0, Math.min(maxCount, records.size()));
+    }
+
+    /** Returns the number of tasks posted while enabled, by the name of the posting class. */
+    public static Map<String, Integer> getPostCountsByClassName() {
+        Map<String, Integer> postCounts = new HashMap<>();
+        for (Map.Entry<Class<?>, AtomicInteger> entry : sPostCounts.entrySet()) {
+            postCounts.put(entry.getKey().getName(), entry.getValue().get());
+        }
+        return postCounts;
+    }
+
+    public static void resetForTesting() {
+        sEnabled = false;
+        sPostCounts.clear();
+        synchronized (sLock) {
+            for (int i = 0; i < RECENT_TASK_COUNT; i++) {
+                sRecentTasks[i] = null;
+            }
+            sNextRecentTaskIndex = 0;
+        }
+    }
+
+    /**
+     * Returns a task recording {@code task} when it runs, or {@code task} itself if the
+     * instrumentation is disabled.
+     *
+     * @param queue The queue the task is posted to, one of the QUEUE_* constants.
+     */
+    static Runnable wrap(Runnable task, int queue, @TaskTraits int taskTraits) {
+        if (!sEnabled) return task;
+        Class<?> postingClass = getPostingClass(task);
+        AtomicInteger postCount = sPostCounts.get(postingClass);
+        if (postCount == null) {
+            AtomicInteger newPostCount = new AtomicInteger();
+            postCount = sPostCounts.putIfAbsent(postingClass, newPostCount);
+            if (postCount == null) postCount = newPostCount;
+        }
+        postCount.incrementAndGet();
+        return new InstrumentedTask(task, postingClass, queue, taskTraits);
+    }
+
+    /** Returns the task wrapped by {@link #wrap}, or {@code task} if it isn't wrapped. */
+    static Runnable unwrap(Runnable task) {
+        return task instanceof InstrumentedTask ? ((InstrumentedTask) task).mTask : task;
+    }
+
+    @SuppressWarnings("NoAndroidAsyncTaskCheck")
+    private static Class<?> getPostingClass(Runnable task) {
+        if (task instanceof AsyncTask.NamedFutureTask) {
+            return ((AsyncTask.NamedFutureTask) task).getBlamedClass();
+        }
+        return task.getClass();
+    }
+
+    private static void recordTask(InstrumentedTask task, long startTimeNs, long endTimeNs) {
+        long queueingDelayMs =
+                (startTimeNs - task.mPostTimeNs) / TimeUtils.NANOSECONDS_PER_MILLISECOND;
+        long runTimeMs = (endTimeNs - startTimeNs) / TimeUtils.NANOSECONDS_PER_MILLISECOND;
+        RecordHistogram.recordTimesHistogram(
+                QUEUEING_DELAY_HISTOGRAMS[task.mQueue][task.mTaskTraits], queueingDelayMs);
+        RecordHistogram.recordTimesHistogram(
+                RUN_TIME_HISTOGRAMS[task.mQueue][task.mTaskTraits], runTimeMs);
+
+        TaskRecord record =
+                new TaskRecord(
+                        task.mPostingClass.getName(),
+                        task.mTaskTraits,
+                        queueingDelayMs,
+                        runTimeMs);
+        synchronized (sLock) {
+            sRecentTasks[sNextRecentTaskIndex] = record;
+            sNextRecentTaskIndex = (sNextRecentTaskIndex + 1) % RECENT_TASK_COUNT;
+        }
+    }
+
+    private static String[][] getHistogramNames(String metric) {
+        String[][] names = new String[QUEUE_NAMES.length][TRAITS_NAMES.length];
+        for (int queue = 0; queue < QUEUE_NAMES.length; queue++) {
+            for (int traits = 0; traits < TRAITS_NAMES.length; traits++) {
+                names[queue][traits] =
+                        "Android.TaskScheduler."
+                                + QUEUE_NAMES[queue]
+                                + "."
+                                + metric
+                                + "."
+                                + TRAITS_NAMES[traits];
+            }
+        }
+        return names;
+    }
+}
@@ -4,6 +4,8 @@
 
 package org.chromium.base.task;
 
+import java.util.List;
+
 /**
  * A task queue that posts Java tasks onto the C++ browser scheduler, if loaded. Otherwise this
  * will be backed by an {@link android.os.Handler} or the java thread pool. The TaskQueue interface
@@ -26,4 +28,16 @@ public interface TaskRunner {
      * @param delay The delay in milliseconds before the task can be run.
      */
     void postDelayedTask(Runnable task, long delay);
+
+    /**
+     * Posts several tasks to run immediately, as if posted one by one in list order. Task runners
+     * backed by the C++ scheduler hand the whole list over at once.
+     *
+     * @param tasks The tasks to be run immediately.
+     */
+    default void postTasks(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            postTask(task);
+        }
+    }
 }
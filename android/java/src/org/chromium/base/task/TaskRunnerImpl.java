@@ -5,7 +5,6 @@
 package org.chromium.base.task;
 
 import android.os.Process;
-import android.util.Pair;
 
 import androidx.annotation.Nullable;
 
@@ -16,11 +15,12 @@ import org.chromium.base.TraceEvent;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -37,6 +37,8 @@ public class TaskRunnerImpl implements TaskRunner {
     // TaskRunnerImpl they're weakly referencing does.
     @GuardedBy("sCleaners")
     private static final Set<TaskRunnerCleaner> sCleaners = new HashSet<>();
+    // Class names passed to native along with each task, computed once per class.
+    private static final Map<Class<?>, String> sRunnableClassNames = new ConcurrentHashMap<>();
 
     private final @TaskTraits int mTaskTraits;
     private final String mTraceEvent;
@@ -48,23 +50,24 @@ public class TaskRunnerImpl implements TaskRunner {
     private volatile long mNativeTaskRunnerAndroid;
     protected final Runnable mRunPreNativeTaskClosure = this::runPreNativeTask;
 
+    // Pre-native tasks are posted and run without taking this lock. It guards the one time
+    // initialization, and the migration of pre-native tasks to the native task runner.
     private final Object mPreNativeTaskLock = new Object();
-    @GuardedBy("mPreNativeTaskLock")
-    private boolean mDidOneTimeInitialization;
-    @Nullable
-    @GuardedBy("mPreNativeTaskLock")
-    private LinkedList<Runnable> mPreNativeTasks;
-    @Nullable
-    @GuardedBy("mPreNativeTaskLock")
-    private List<Pair<Runnable, Long>> mPreNativeDelayedTasks;
+    // Written once the pre-native task queues are created, volatile so that posting can check it
+    // without taking mPreNativeTaskLock.
+    private volatile boolean mDidOneTimeInitialization;
+    // Created by the one time initialization if native isn't initialized yet. Closed once their
+    // tasks have been migrated to the native task runner.
+    @Nullable private PreNativeTaskQueue mPreNativeTasks;
+    @Nullable private PreNativeTaskQueue mPreNativeDelayedTasks;
 
     int clearTaskQueueForTesting() {
         int taskCount = 0;
         synchronized (mPreNativeTaskLock) {
             if (mPreNativeTasks != null) {
-                taskCount = mPreNativeTasks.size() + mPreNativeDelayedTasks.size();
-                mPreNativeTasks.clear();
-                mPreNativeDelayedTasks.clear();
+                taskCount = mPreNativeTasks.clear() + mPreNativeDelayedTasks.clear();
+                taskCount +=
+                        PreNativeTimerWheel.getInstance().cancelTimers(this, (task, delay) -> {});
             }
         }
         return taskCount;
@@ -145,28 +148,64 @@ public class TaskRunnerImpl implements TaskRunner {
         // Lock-free path when native is initialized.
         if (mNativeTaskRunnerAndroid != 0) {
             TaskRunnerImplJni.get().postDelayedTask(
-                    mNativeTaskRunnerAndroid, task, delay, task.getClass().getName());
+                    mNativeTaskRunnerAndroid, task, delay, getRunnableClassName(task));
             return;
         }
-        synchronized (mPreNativeTaskLock) {
-            oneTimeInitialization();
-            if (mNativeTaskRunnerAndroid != 0) {
-                TaskRunnerImplJni.get().postDelayedTask(
-                        mNativeTaskRunnerAndroid, task, delay, task.getClass().getName());
-                return;
-            }
-            // We don't expect a whole lot of these, if that changes consider pooling them.
+        ensureOneTimeInitialization();
+        if (mNativeTaskRunnerAndroid == 0) {
             // If a task is scheduled for immediate execution, we post it on the
-            // pre-native task runner. Tasks scheduled to run with a delay will
-            // wait until the native task runner is initialised.
+            // pre-native task runner. Tasks scheduled to run with a delay are
+            // posted to it when their delay expires, or wait until the native task
+            // runner is initialised if the subclass doesn't support them.
             if (delay == 0) {
-                mPreNativeTasks.add(task);
-                schedulePreNativeTask();
-            } else if (!schedulePreNativeDelayedTask(task, delay)) {
-                Pair<Runnable, Long> preNativeDelayedTask = new Pair<>(task, delay);
-                mPreNativeDelayedTasks.add(preNativeDelayedTask);
+                Runnable queuedTask =
+                        TaskInstrumentation.wrap(
+                                task, TaskInstrumentation.QUEUE_PRE_NATIVE, mTaskTraits);
+                if (mPreNativeTasks.offer(queuedTask, 0)) {
+                    schedulePreNativeTask();
+                    return;
+                }
+            } else if (schedulePreNativeDelayedTask(task, delay)
+                    || mPreNativeDelayedTasks.offer(task, delay)) {
+                return;
+            }
+            // The queues were closed by initNativeTaskRunner(), which holds the lock until the
+            // native task runner is set. Posting the task after it keeps the posting order.
+            synchronized (mPreNativeTaskLock) {
+                assert mNativeTaskRunnerAndroid != 0;
             }
         }
+        TaskRunnerImplJni.get().postDelayedTask(
+                mNativeTaskRunnerAndroid, task, delay, getRunnableClassName(task));
+    }
+
+    @Override
+    public void postTasks(List<Runnable> tasks) {
+        // Posting to the native task runner takes a single JNI call for all the tasks.
+        long nativeTaskRunnerAndroid = mNativeTaskRunnerAndroid;
+        if (nativeTaskRunnerAndroid != 0) {
+            Runnable[] taskArray = tasks.toArray(new Runnable[0]);
+            String[] runnableClassNames = new String[taskArray.length];
+            for (int i = 0; i < taskArray.length; i++) {
+                runnableClassNames[i] = getRunnableClassName(taskArray[i]);
+            }
+            TaskRunnerImplJni.get()
+                    .postTasks(nativeTaskRunnerAndroid, taskArray, runnableClassNames);
+            return;
+        }
+        for (Runnable task : tasks) {
+            postDelayedTask(task, 0);
+        }
+    }
+
+    private static String getRunnableClassName(Runnable task) {
+        Class<?> taskClass = task.getClass();
+        String className = sRunnableClassNames.get(taskClass);
+        if (className == null) {
+            className = taskClass.getName();
+            sRunnableClassNames.put(taskClass, className);
+        }
+        return className;
     }
 
     protected Boolean belongsToCurrentThreadInternal() {
@@ -174,22 +213,23 @@ public class TaskRunnerImpl implements TaskRunner {
         // by derived classes (eg. SingleThreadTaskRunner) until it is moved there, as TaskRunner
         // has no notion of belonging to a thread.
         assert !getClass().equals(TaskRunnerImpl.class);
-        synchronized (mPreNativeTaskLock) {
-            oneTimeInitialization();
-        }
+        ensureOneTimeInitialization();
         if (mNativeTaskRunnerAndroid == 0) return null;
         return TaskRunnerImplJni.get().belongsToCurrentThread(mNativeTaskRunnerAndroid);
     }
 
-    @GuardedBy("mPreNativeTaskLock")
-    private void oneTimeInitialization() {
+    private void ensureOneTimeInitialization() {
         if (mDidOneTimeInitialization) return;
-        mDidOneTimeInitialization = true;
-        if (!PostTask.registerPreNativeTaskRunner(this)) {
-            initNativeTaskRunner();
-        } else {
-            mPreNativeTasks = new LinkedList<>();
-            mPreNativeDelayedTasks = new ArrayList<>();
+        synchronized (mPreNativeTaskLock) {
+            if (mDidOneTimeInitialization) return;
+            if (!PostTask.registerPreNativeTaskRunner(this)) {
+                initNativeTaskRunner();
+            } else {
+                mPreNativeTasks = new PreNativeTaskQueue();
+                mPreNativeDelayedTasks = new PreNativeTaskQueue();
+            }
+            // Either the native task runner or the queues are set before this is.
+            mDidOneTimeInitialization = true;
         }
     }
 
@@ -198,17 +238,25 @@ public class TaskRunnerImpl implements TaskRunner {
      * time.
      */
     protected void schedulePreNativeTask() {
-        PostTask.getPrenativeThreadPoolExecutor().execute(mRunPreNativeTaskClosure);
+        Executor executor = PostTask.getPrenativeThreadPoolExecutor(mTaskTraits);
+        if (executor instanceof PreNativeThreadPoolExecutor) {
+            ((PreNativeThreadPoolExecutor) executor).execute(mRunPreNativeTaskClosure, mTaskTraits);
+        } else {
+            executor.execute(mRunPreNativeTaskClosure);
+        }
     }
 
     /**
-     * Overridden in subclasses that support Delayed tasks pre-native.
+     * Schedules a delayed task pre-native. By default the task is posted to this task runner by
+     * {@link PreNativeTimerWheel} once its delay expires, can be overridden in subclasses that
+     * run pre-native tasks elsewhere.
      *
      * @return true if the task has been scheduled and does not need to be forwarded to the native
      *         task runner.
      */
     protected boolean schedulePreNativeDelayedTask(Runnable task, long delay) {
-        return false;
+        PreNativeTimerWheel.getInstance().schedule(this, task, delay);
+        return true;
     }
 
     /**
@@ -218,11 +266,9 @@ public class TaskRunnerImpl implements TaskRunner {
     @SuppressWarnings("NoDynamicStringsInTraceEventCheck")
     protected void runPreNativeTask() {
         try (TraceEvent te = TraceEvent.scoped(mTraceEvent)) {
-            Runnable task;
-            synchronized (mPreNativeTaskLock) {
-                if (mPreNativeTasks == null) return;
-                task = mPreNativeTasks.poll();
-            }
+            // Null if the task was migrated to the native task runner.
+            Runnable task = mPreNativeTasks.poll();
+            if (task == null) return;
             switch (mTaskTraits) {
                 case TaskTraits.BEST_EFFORT:
                 case TaskTraits.BEST_EFFORT_MAY_BLOCK:
@@ -256,20 +302,26 @@ public class TaskRunnerImpl implements TaskRunner {
      */
     /* package */ void initNativeTaskRunner() {
         long nativeTaskRunnerAndroid = TaskRunnerImplJni.get().init(mTaskRunnerType, mTaskTraits);
+        // Instrumented tasks are unwrapped, so that native is passed the class name of the task.
+        PreNativeTaskQueue.TaskConsumer postToNative =
+                (task, delay) -> {
+                    Runnable nativeTask = TaskInstrumentation.unwrap(task);
+                    TaskRunnerImplJni.get()
+                            .postDelayedTask(
+                                    nativeTaskRunnerAndroid,
+                                    nativeTask,
+                                    delay,
+                                    getRunnableClassName(nativeTask));
+                };
         synchronized (mPreNativeTaskLock) {
+            // Closing the queues makes concurrent posts wait for the lock, so they are posted to
+            // the native task runner after the migrated tasks.
             if (mPreNativeTasks != null) {
-                for (Runnable task : mPreNativeTasks) {
-                    TaskRunnerImplJni.get().postDelayedTask(
-                            nativeTaskRunnerAndroid, task, 0, task.getClass().getName());
-                }
-                mPreNativeTasks = null;
-            }
-            if (mPreNativeDelayedTasks != null) {
-                for (Pair<Runnable, Long> task : mPreNativeDelayedTasks) {
-                    TaskRunnerImplJni.get().postDelayedTask(nativeTaskRunnerAndroid, task.first,
-                            task.second, task.getClass().getName());
-                }
-                mPreNativeDelayedTasks = null;
+                mPreNativeTasks.close(postToNative);
+                mPreNativeDelayedTasks.close(postToNative);
+                // Timers firing from now on post their task to the native task runner, as the
+                // queues are closed.
+                PreNativeTimerWheel.getInstance().cancelTimers(this, postToNative);
             }
 
             // mNativeTaskRunnerAndroid is volatile and setting this indicates we've have migrated
@@ -293,6 +345,8 @@ public class TaskRunnerImpl implements TaskRunner {
         void destroy(long nativeTaskRunnerAndroid);
         void postDelayedTask(
                 long nativeTaskRunnerAndroid, Runnable task, long delay, String runnableClassName);
+        void postTasks(
+                long nativeTaskRunnerAndroid, Runnable[] tasks, String[] runnableClassNames);
         boolean belongsToCurrentThread(long nativeTaskRunnerAndroid);
     }
 }
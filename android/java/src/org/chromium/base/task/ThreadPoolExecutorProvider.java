@@ -0,0 +1,23 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Provides the Executors running thread pool tasks in Java, which can replace the pre-native
+ * thread pool for some TaskTraits. Set with {@link PostTask#setThreadPoolExecutorProvider}.
+ */
+public interface ThreadPoolExecutorProvider {
+    /**
+     * @param traits The TaskTraits of the tasks to run.
+     * @return The Executor running tasks with these traits, or null to run them on the pre-native
+     *         thread pool.
+     */
+    @Nullable
+    Executor getExecutor(@TaskTraits int traits);
+}
@@ -4,6 +4,12 @@
 
 package org.chromium.base.task;
 
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import javax.annotation.concurrent.GuardedBy;
+
 /**
  * The {@link TaskExecutor} for ThreadPool tasks.
  * TODO(crbug.com/1026641): Provide direct Java APIs for ThreadPool vs UI thread
@@ -14,6 +20,12 @@ class ThreadPoolTaskExecutor implements TaskExecutor {
             TaskTraits.THREAD_POOL_TRAITS_END - TaskTraits.THREAD_POOL_TRAITS_START + 1;
     private final TaskRunner mTraitsToRunnerMap[] = new TaskRunner[TRAITS_COUNT];
 
+    // Threads of the single thread task runners of the Java-only scheduler, indexed like
+    // |mTraitsToRunnerMap|. They are shared by the task runners of the same priority and
+    // may-block trait, so that tasks that may block don't delay the others, and created on demand.
+    @GuardedBy("mJavaOnlyThreadHandlers")
+    private final Handler mJavaOnlyThreadHandlers[] = new Handler[TRAITS_COUNT];
+
     public ThreadPoolTaskExecutor() {
         for (int i = 0; i < TRAITS_COUNT; i++) {
             mTraitsToRunnerMap[i] = createTaskRunner(TaskTraits.THREAD_POOL_TRAITS_START + i);
@@ -37,10 +49,54 @@ class ThreadPoolTaskExecutor implements TaskExecutor {
      */
     @Override
     public SingleThreadTaskRunner createSingleThreadTaskRunner(@TaskTraits int taskTraits) {
+        if (PostTask.isJavaOnlySchedulerEnabled()) {
+            return new SingleThreadTaskRunnerImpl(getJavaOnlyThreadHandler(taskTraits), taskTraits);
+        }
         // Tasks posted via this API will not execute until after native has started.
         return new SingleThreadTaskRunnerImpl(null, taskTraits);
     }
 
+    private Handler getJavaOnlyThreadHandler(@TaskTraits int taskTraits) {
+        int index = taskTraits - TaskTraits.THREAD_POOL_TRAITS_START;
+        String name;
+        int priority;
+        switch (taskTraits) {
+            case TaskTraits.BEST_EFFORT:
+                name = "CrBestEffortThread";
+                priority = Process.THREAD_PRIORITY_BACKGROUND;
+                break;
+            case TaskTraits.BEST_EFFORT_MAY_BLOCK:
+                name = "CrBestEffortMayBlockThread";
+                priority = Process.THREAD_PRIORITY_BACKGROUND;
+                break;
+            case TaskTraits.USER_BLOCKING:
+                name = "CrUserBlockingThread";
+                priority = Process.THREAD_PRIORITY_MORE_FAVORABLE;
+                break;
+            case TaskTraits.USER_BLOCKING_MAY_BLOCK:
+                name = "CrUserBlockingMayBlockThread";
+                priority = Process.THREAD_PRIORITY_MORE_FAVORABLE;
+                break;
+            case TaskTraits.USER_VISIBLE_MAY_BLOCK:
+                name = "CrUserVisibleMayBlockThread";
+                priority = Process.THREAD_PRIORITY_DEFAULT;
+                break;
+            default:
+                index = TaskTraits.USER_VISIBLE - TaskTraits.THREAD_POOL_TRAITS_START;
+                name = "CrUserVisibleThread";
+                priority = Process.THREAD_PRIORITY_DEFAULT;
+                break;
+        }
+        synchronized (mJavaOnlyThreadHandlers) {
+            if (mJavaOnlyThreadHandlers[index] == null) {
+                HandlerThread thread = new HandlerThread(name, priority);
+                thread.start();
+                mJavaOnlyThreadHandlers[index] = new Handler(thread.getLooper());
+            }
+            return mJavaOnlyThreadHandlers[index];
+        }
+    }
+
     @Override
     public void postDelayedTask(@TaskTraits int taskTraits, Runnable task, long delay) {
         int index = taskTraits - TaskTraits.THREAD_POOL_TRAITS_START;
@@ -0,0 +1,79 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs *_MAY_BLOCK thread pool tasks on virtual threads, for JVM tools and Robolectric tests whose
+ * tasks block on I/O. Tasks blocking on a virtual thread don't hold a platform thread, so these
+ * tasks don't wait for a thread of the pre-native thread pool.
+ *
+ * Virtual threads are only available on JVMs, {@link #createIfSupported(int)} returns null on
+ * Android.
+ */
+public final class VirtualThreadExecutorProvider implements ThreadPoolExecutorProvider {
+    private final Executor mVirtualThreadExecutor;
+    // Limits the number of tasks running at once, tasks beyond it wait in FIFO order.
+    private final Semaphore mRunningTaskPermits;
+    private final Executor mExecutor = this::execute;
+
+    @VisibleForTesting
+    VirtualThreadExecutorProvider(Executor virtualThreadExecutor, int maxRunningTasks) {
+        mVirtualThreadExecutor = virtualThreadExecutor;
+        mRunningTaskPermits = new Semaphore(maxRunningTasks, /* fair= */ true);
+    }
+
+    /**
+     * @param maxRunningTasks The maximum number of *_MAY_BLOCK tasks running at once.
+     * @return A provider running *_MAY_BLOCK tasks on virtual threads, or null if virtual threads
+     *         aren't supported.
+     */
+    public static @Nullable VirtualThreadExecutorProvider createIfSupported(int maxRunningTasks) {
+        assert maxRunningTasks > 0;
+        Executor virtualThreadExecutor;
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() was added in Java 21.
+            virtualThreadExecutor =
+                    (Executor)
+                            Executors.class
+                                    .getMethod("newVirtualThreadPerTaskExecutor")
+                                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+        return new VirtualThreadExecutorProvider(virtualThreadExecutor, maxRunningTasks);
+    }
+
+    @Override
+    public @Nullable Executor getExecutor(@TaskTraits int traits) {
+        switch (traits) {
+            case TaskTraits.BEST_EFFORT_MAY_BLOCK:
+            case TaskTraits.USER_VISIBLE_MAY_BLOCK:
+            case TaskTraits.USER_BLOCKING_MAY_BLOCK:
+                return mExecutor;
+            default:
+                return null;
+        }
+    }
+
+    private void execute(Runnable task) {
+        mVirtualThreadExecutor.execute(
+                () -> {
+                    // Waiting for a permit parks the virtual thread without holding its carrier.
+                    mRunningTaskPermits.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        mRunningTaskPermits.release();
+                    }
+                });
+    }
+}
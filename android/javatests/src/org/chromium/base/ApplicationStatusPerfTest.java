@@ -0,0 +1,251 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base;
+
+import static org.mockito.Mockito.mock;
+
+import android.app.Activity;
+import android.app.Application;
+import android.view.ActionMode;
+import android.view.KeyEvent;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.SearchEvent;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+import android.view.accessibility.AccessibilityEvent;
+
+import androidx.annotation.RequiresApi;
+import androidx.test.filters.MediumTest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.chromium.base.test.BaseJUnit4ClassRunner;
+import org.chromium.base.test.util.Feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Performance tests for {@link ApplicationStatus}. They only log the measured costs. */
+@RunWith(BaseJUnit4ClassRunner.class)
+public class ApplicationStatusPerfTest {
+    private static final String TAG = "AppStatusPerfTest";
+
+    /** Handles key events, the other methods do nothing. */
+    private static class KeyEventCallback implements Window.Callback {
+        @Override
+        public boolean dispatchKeyEvent(KeyEvent event) {
+            return true;
+        }
+
+        @Override
+        public boolean dispatchKeyShortcutEvent(KeyEvent event) {
+            return false;
+        }
+
+        @Override
+        public boolean dispatchTouchEvent(MotionEvent event) {
+            return false;
+        }
+
+        @Override
+        public boolean dispatchTrackballEvent(MotionEvent event) {
+            return false;
+        }
+
+        @Override
+        public boolean dispatchGenericMotionEvent(MotionEvent event) {
+            return false;
+        }
+
+        @Override
+        public boolean dispatchPopulateAccessibilityEvent(AccessibilityEvent event) {
+            return false;
+        }
+
+        @Override
+        public View onCreatePanelView(int featureId) {
+            return null;
+        }
+
+        @Override
+        public boolean onCreatePanelMenu(int featureId, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onPreparePanel(int featureId, View view, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onMenuOpened(int featureId, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onMenuItemSelected(int featureId, MenuItem item) {
+            return false;
+        }
+
+        @Override
+        public void onWindowAttributesChanged(WindowManager.LayoutParams attrs) {}
+
+        @Override
+        public void onContentChanged() {}
+
+        @Override
+        public void onWindowFocusChanged(boolean hasFocus) {}
+
+        @Override
+        public void onAttachedToWindow() {}
+
+        @Override
+        public void onDetachedFromWindow() {}
+
+        @Override
+        public void onPanelClosed(int featureId, Menu menu) {}
+
+        @Override
+        public boolean onSearchRequested() {
+            return false;
+        }
+
+        @RequiresApi(23)
+        @Override
+        public boolean onSearchRequested(SearchEvent searchEvent) {
+            return false;
+        }
+
+        @Override
+        public ActionMode onWindowStartingActionMode(ActionMode.Callback callback) {
+            return null;
+        }
+
+        @RequiresApi(23)
+        @Override
+        public ActionMode onWindowStartingActionMode(ActionMode.Callback callback, int type) {
+            return null;
+        }
+
+        @Override
+        public void onActionModeStarted(ActionMode mode) {}
+
+        @Override
+        public void onActionModeFinished(ActionMode mode) {}
+    }
+
+    /** Compares the cost of dispatching an input event through both Window.Callback wrappers. */
+    @Test
+    @MediumTest
+    @Feature({"Android-AppBase"})
+    public void testDispatchKeyEventPerformance() {
+        final int laps = 200000;
+        final int runs = 5;
+        Window.Callback callback = new KeyEventCallback();
+        Activity activity = mock(Activity.class);
+        Window.Callback forwarder = new WindowCallbackForwarder(activity, callback);
+        Window.Callback proxy =
+                ApplicationStatus.createReflectiveWindowCallbackProxy(activity, callback);
+        KeyEvent event = new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_A);
+
+        // The first runs warm up both implementations, keep the best run of each.
+        long forwarderNs = Long.MAX_VALUE;
+        long proxyNs = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            forwarderNs = Math.min(forwarderNs, measureDispatchKeyEvent(forwarder, event, laps));
+            proxyNs = Math.min(proxyNs, measureDispatchKeyEvent(proxy, event, laps));
+        }
+
+        Log.i(
+                TAG,
+                "dispatchKeyEvent time per event: %.1f ns with WindowCallbackForwarder, "
+                        + "%.1f ns with a reflective proxy",
+                (double) forwarderNs / laps,
+                (double) proxyNs / laps);
+    }
+
+    /** Measures the throughput of the state getters while another thread changes the state. */
+    @Test
+    @MediumTest
+    @Feature({"Android-AppBase"})
+    public void testReadsDuringStateChangesPerformance() throws InterruptedException {
+        final int stateChangeCount = 20000;
+        final int maxReaderCount = 4;
+        Activity activity = mock(Activity.class);
+        ThreadUtils.runOnUiThreadBlocking(
+                () -> {
+                    if (!ApplicationStatus.isInitialized()) {
+                        ApplicationStatus.initialize(
+                                (Application) ContextUtils.getApplicationContext());
+                    }
+                    ApplicationStatus.onStateChangeForTesting(activity, ActivityState.CREATED);
+                });
+
+        for (int readerCount = 1; readerCount <= maxReaderCount; readerCount *= 2) {
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicLong readCount = new AtomicLong();
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < readerCount; i++) {
+                readers.add(
+                        new Thread(
+                                () -> {
+                                    long reads = 0;
+                                    while (!done.get()) {
+                                        ApplicationStatus.getStateForActivity(activity);
+                                        ApplicationStatus.getStateForApplication();
+                                        ApplicationStatus.getRunningActivities();
+                                        reads++;
+                                    }
+                                    readCount.addAndGet(reads);
+                                }));
+            }
+
+            long startNs = System.nanoTime();
+            for (Thread reader : readers) reader.start();
+            ThreadUtils.runOnUiThreadBlocking(
+                    () -> {
+                        int[] states = {
+                            ActivityState.STARTED,
+                            ActivityState.RESUMED,
+                            ActivityState.PAUSED,
+                            ActivityState.STOPPED
+                        };
+                        for (int i = 0; i < stateChangeCount; i++) {
+                            ApplicationStatus.onStateChangeForTesting(
+                                    activity, states[i % states.length]);
+                        }
+                    });
+            done.set(true);
+            for (Thread reader : readers) reader.join();
+            long elapsedNs = System.nanoTime() - startNs;
+
+            Log.i(
+                    TAG,
+                    "reads during %d state changes with %d reader threads: %.2f reads/us",
+                    stateChangeCount,
+                    readerCount,
+                    readCount.get() * 1000.0 / elapsedNs);
+        }
+
+        ThreadUtils.runOnUiThreadBlocking(
+                () -> ApplicationStatus.onStateChangeForTesting(activity, ActivityState.DESTROYED));
+    }
+
+    private static long measureDispatchKeyEvent(
+            Window.Callback callback, KeyEvent event, int laps) {
+        long startNs = System.nanoTime();
+        for (int i = 0; i < laps; i++) {
+            if (!callback.dispatchKeyEvent(event)) Assert.fail();
+        }
+        return System.nanoTime() - startNs;
+    }
+}
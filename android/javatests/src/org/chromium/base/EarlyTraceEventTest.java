@@ -20,7 +20,6 @@ import org.chromium.base.library_loader.LibraryLoader;
 import org.chromium.base.test.BaseJUnit4ClassRunner;
 import org.chromium.base.test.util.Feature;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -81,14 +80,8 @@ public class EarlyTraceEventTest {
         EarlyTraceEvent.finishAsync(EVENT_NAME, EVENT_ID);
         long afterNanos = System.nanoTime();
 
-        List<AsyncEvent> matchingEvents = new ArrayList<AsyncEvent>();
-        synchronized (EarlyTraceEvent.sLock) {
-            for (AsyncEvent evt : EarlyTraceEvent.sAsyncEvents) {
-                if (evt.mName.equals(EVENT_NAME)) {
-                    matchingEvents.add(evt);
-                }
-            }
-        }
+        List<AsyncEvent> matchingEvents =
+                EarlyTraceEvent.getMatchingAsyncEventsForTesting(EVENT_NAME);
         Assert.assertEquals(2, matchingEvents.size());
         AsyncEvent eventStart = matchingEvents.get(0);
         AsyncEvent eventEnd = matchingEvents.get(1);
@@ -151,7 +144,7 @@ public class EarlyTraceEventTest {
             // Required comment to pass presubmit checks.
         }
         synchronized (EarlyTraceEvent.sLock) {
-            Assert.assertNull(EarlyTraceEvent.sEvents);
+            Assert.assertNull(EarlyTraceEvent.sThreadBuffers);
         }
     }
 
@@ -162,7 +155,7 @@ public class EarlyTraceEventTest {
         EarlyTraceEvent.startAsync(EVENT_NAME, EVENT_ID);
         EarlyTraceEvent.finishAsync(EVENT_NAME, EVENT_ID);
         synchronized (EarlyTraceEvent.sLock) {
-            Assert.assertNull(EarlyTraceEvent.sAsyncEvents);
+            Assert.assertNull(EarlyTraceEvent.sThreadBuffers);
         }
     }
 
@@ -208,6 +201,90 @@ public class EarlyTraceEventTest {
         Assert.assertEquals(threadId[0], endEvent.mThreadId);
     }
 
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testEventsFromThreadsAreMergedByTime() throws Exception {
+        EarlyTraceEvent.enable();
+        EarlyTraceEvent.begin(EVENT_NAME, /* isToplevel= */ false);
+        Thread thread =
+                new Thread() {
+                    @Override
+                    public void run() {
+                        EarlyTraceEvent.begin(EVENT_NAME, /* isToplevel= */ false);
+                        EarlyTraceEvent.end(EVENT_NAME, /* isToplevel= */ false);
+                    }
+                };
+        thread.start();
+        thread.join();
+        EarlyTraceEvent.end(EVENT_NAME, /* isToplevel= */ false);
+
+        List<Event> matchingEvents =
+                EarlyTraceEvent.getMatchingCompletedEventsForTesting(EVENT_NAME);
+        Assert.assertEquals(4, matchingEvents.size());
+        Assert.assertEquals(Process.myTid(), matchingEvents.get(0).mThreadId);
+        Assert.assertNotEquals(Process.myTid(), matchingEvents.get(1).mThreadId);
+        Assert.assertNotEquals(Process.myTid(), matchingEvents.get(2).mThreadId);
+        Assert.assertEquals(Process.myTid(), matchingEvents.get(3).mThreadId);
+        for (int i = 1; i < matchingEvents.size(); i++) {
+            Assert.assertTrue(
+                    matchingEvents.get(i - 1).mTimeNanos <= matchingEvents.get(i).mTimeNanos);
+        }
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testNewestEventsDroppedWhenBufferIsFull() {
+        EarlyTraceEvent.enable();
+        EarlyTraceEvent.begin(EVENT_NAME2, /* isToplevel= */ false);
+        for (int i = 0; i < EarlyTraceEvent.THREAD_BUFFER_CAPACITY - 1; i++) {
+            EarlyTraceEvent.begin(EVENT_NAME, /* isToplevel= */ false);
+        }
+        Assert.assertEquals(0, EarlyTraceEvent.getDroppedEventCountForTesting());
+
+        EarlyTraceEvent.end(EVENT_NAME2, /* isToplevel= */ false);
+        EarlyTraceEvent.end(EVENT_NAME, /* isToplevel= */ false);
+        Assert.assertEquals(2, EarlyTraceEvent.getDroppedEventCountForTesting());
+        List<Event> matchingEvents =
+                EarlyTraceEvent.getMatchingCompletedEventsForTesting(EVENT_NAME2);
+        Assert.assertEquals(1, matchingEvents.size());
+        Assert.assertTrue(matchingEvents.get(0).mIsStart);
+        Assert.assertEquals(
+                EarlyTraceEvent.THREAD_BUFFER_CAPACITY - 1,
+                EarlyTraceEvent.getMatchingCompletedEventsForTesting(EVENT_NAME).size());
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testThreadBufferGrowsUpToCapacity() {
+        EarlyTraceEvent.ThreadBuffer buffer =
+                new EarlyTraceEvent.ThreadBuffer(
+                        0,
+                        EarlyTraceEvent.INITIAL_THREAD_BUFFER_CAPACITY,
+                        EarlyTraceEvent.THREAD_BUFFER_CAPACITY);
+        Assert.assertEquals(EarlyTraceEvent.INITIAL_THREAD_BUFFER_CAPACITY, buffer.getCapacity());
+
+        for (int i = 0; i <= EarlyTraceEvent.INITIAL_THREAD_BUFFER_CAPACITY; i++) {
+            buffer.append(i, (byte) 0, i, i);
+        }
+        Assert.assertEquals(
+                2 * EarlyTraceEvent.INITIAL_THREAD_BUFFER_CAPACITY, buffer.getCapacity());
+
+        for (int i = buffer.getEventCount(); i <= EarlyTraceEvent.THREAD_BUFFER_CAPACITY; i++) {
+            buffer.append(i, (byte) 0, i, i);
+        }
+        Assert.assertEquals(EarlyTraceEvent.THREAD_BUFFER_CAPACITY, buffer.getCapacity());
+        Assert.assertEquals(EarlyTraceEvent.THREAD_BUFFER_CAPACITY, buffer.getEventCount());
+        Assert.assertEquals(1, buffer.getDroppedCount());
+        // The events stored before the buffer grew are kept.
+        for (int i = 0; i < buffer.getEventCount(); i++) {
+            Assert.assertEquals(i, buffer.getNameId(i));
+            Assert.assertEquals(i, buffer.getTimeNanos(i));
+        }
+    }
+
     @Test
     @SmallTest
     @Feature({"Android-AppBase"})
@@ -267,7 +344,7 @@ public class EarlyTraceEventTest {
         EarlyTraceEvent.onCommandLineAvailableInChildProcess();
         Assert.assertFalse(EarlyTraceEvent.enabled());
         synchronized (EarlyTraceEvent.sLock) {
-            Assert.assertNull(EarlyTraceEvent.sEvents);
+            Assert.assertNull(EarlyTraceEvent.sThreadBuffers);
         }
     }
 }
@@ -4,6 +4,7 @@
 
 package org.chromium.base;
 
+import androidx.test.filters.MediumTest;
 import androidx.test.filters.SmallTest;
 
 import org.junit.Assert;
@@ -13,8 +14,10 @@ import org.junit.runner.RunWith;
 import org.chromium.base.test.BaseJUnit4ClassRunner;
 import org.chromium.base.test.util.Feature;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -22,6 +25,8 @@ import java.util.NoSuchElementException;
  */
 @RunWith(BaseJUnit4ClassRunner.class)
 public class ObserverListTest {
+    private static final String TAG = "ObserverListTest";
+
     interface Observer {
         void observe(int x);
     }
@@ -210,13 +215,13 @@ public class ObserverListTest {
         Assert.assertEquals(10, (int) it.next());
         Assert.assertTrue(it.hasNext());
         Assert.assertEquals(15, (int) it.next());
-        Assert.assertEquals(5, (int) observerList.mObservers.get(0));
+        Assert.assertEquals(5, observerList.mObservers[0]);
         observerList.removeObserver(5);
-        Assert.assertEquals(null, observerList.mObservers.get(0));
+        Assert.assertEquals(null, observerList.mObservers[0]);
 
         it.rewind();
 
-        Assert.assertEquals(10, (int) observerList.mObservers.get(0));
+        Assert.assertEquals(10, observerList.mObservers[0]);
         Assert.assertTrue(it.hasNext());
         Assert.assertEquals(10, (int) it.next());
         Assert.assertTrue(it.hasNext());
@@ -337,4 +342,166 @@ public class ObserverListTest {
         Assert.assertEquals(0, observerList.size());
         Assert.assertTrue(observerList.isEmpty());
     }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testForEach() {
+        ObserverList<Observer> observerList = new ObserverList<Observer>();
+        Foo a = new Foo(1);
+        Foo b = new Foo(-1);
+        Foo c = new Foo(1);
+        Foo d = new Foo(1);
+        FooRemover remover = new FooRemover(observerList, b);
+        FooAdder adder = new FooAdder(observerList, d);
+
+        observerList.addObserver(a);
+        observerList.addObserver(remover);
+        observerList.addObserver(b);
+        observerList.addObserver(adder);
+        observerList.addObserver(c);
+
+        observerList.forEach(obs -> obs.observe(10));
+
+        Assert.assertEquals(10, a.mTotal);
+        // b was removed before it got notified.
+        Assert.assertEquals(0, b.mTotal);
+        Assert.assertEquals(10, c.mTotal);
+        // d was added during the notification, and is only notified by the next one.
+        Assert.assertEquals(0, d.mTotal);
+        Assert.assertEquals(5, observerList.size());
+        // The removed observer was compacted away once the notification ended.
+        Assert.assertEquals(a, observerList.mObservers[0]);
+        Assert.assertEquals(remover, observerList.mObservers[1]);
+        Assert.assertEquals(adder, observerList.mObservers[2]);
+
+        observerList.forEach(obs -> obs.observe(10));
+        Assert.assertEquals(10, d.mTotal);
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testLargeList() {
+        ObserverList<Object> observerList = new ObserverList<Object>();
+        List<Object> observers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Object obs = new Object();
+            observers.add(obs);
+            Assert.assertTrue(observerList.addObserver(obs));
+            Assert.assertFalse(observerList.addObserver(obs));
+        }
+        for (int i = 0; i < 200; i += 2) {
+            Assert.assertTrue(observerList.removeObserver(observers.get(i)));
+            Assert.assertFalse(observerList.removeObserver(observers.get(i)));
+        }
+        Assert.assertEquals(100, observerList.size());
+
+        int index = 1;
+        for (Object obs : observerList) {
+            Assert.assertEquals(observers.get(index), obs);
+            Assert.assertTrue(observerList.hasObserver(obs));
+            Assert.assertFalse(observerList.hasObserver(observers.get(index - 1)));
+            index += 2;
+        }
+        Assert.assertEquals(201, index);
+
+        observerList.clear();
+        Assert.assertTrue(observerList.isEmpty());
+        Assert.assertFalse(observerList.hasObserver(observers.get(1)));
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testObserversAreComparedWithEquals() {
+        // Both sizes, as large lists look observers up in an index.
+        for (int observerCount : new int[] {1, 100}) {
+            ObserverList<String> observerList = new ObserverList<String>();
+            for (int i = 0; i < observerCount; i++) {
+                Assert.assertTrue(observerList.addObserver(new String("observer" + i)));
+            }
+            String a = new String("observer0");
+            String b = new String("observer0");
+
+            Assert.assertFalse(observerList.addObserver(a));
+            Assert.assertTrue(observerList.hasObserver(b));
+            Assert.assertEquals(observerCount, observerList.size());
+
+            Assert.assertTrue(observerList.removeObserver(b));
+            Assert.assertFalse(observerList.hasObserver(a));
+            Assert.assertFalse(observerList.removeObserver(a));
+            Assert.assertEquals(observerCount - 1, observerList.size());
+        }
+    }
+
+    /** Similar to NotifyPerformance in observer_list_perftest.cc. */
+    @Test
+    @MediumTest
+    @Feature({"Android-AppBase"})
+    public void testNotifyPerformance() {
+        final int maxObservers = 128;
+        final int laps = 1000000;
+        final int warmupLaps = 1000;
+        int[] counter = new int[1];
+        Observer observer = x -> counter[0] += x;
+        for (int observerCount = 0;
+                observerCount <= maxObservers;
+                observerCount = observerCount == 0 ? 1 : observerCount * 2) {
+            ObserverList<Observer> observerList = new ObserverList<Observer>();
+            for (int i = 0; i < observerCount; i++) {
+                // Distinct instances, as an observer is only added once.
+                observerList.addObserver(x -> observer.observe(x));
+            }
+            for (int i = 0; i < warmupLaps; i++) {
+                observerList.forEach(obs -> obs.observe(1));
+            }
+            counter[0] = 0;
+            int weightedLaps = laps / (observerCount + 1);
+
+            long startNs = System.nanoTime();
+            for (int i = 0; i < weightedLaps; i++) {
+                for (Observer obs : observerList) obs.observe(1);
+            }
+            long iteratorNs = System.nanoTime() - startNs;
+            startNs = System.nanoTime();
+            for (int i = 0; i < weightedLaps; i++) {
+                observerList.forEach(obs -> obs.observe(1));
+            }
+            long forEachNs = System.nanoTime() - startNs;
+
+            Assert.assertEquals(2 * observerCount * weightedLaps, counter[0]);
+            int notifyCount = Math.max(1, observerCount) * weightedLaps;
+            Log.i(
+                    TAG,
+                    "notify_time_per_observer with %d observers: %.1f ns with an iterator, "
+                            + "%.1f ns with forEach()",
+                    observerCount,
+                    (double) iteratorNs / notifyCount,
+                    (double) forEachNs / notifyCount);
+        }
+    }
+
+    /** Adding and removing observers shouldn't scan the list. */
+    @Test
+    @MediumTest
+    @Feature({"Android-AppBase"})
+    public void testRegistrationPerformance() {
+        final int observerCount = 2000;
+        List<Object> observers = new ArrayList<>();
+        for (int i = 0; i < observerCount; i++) observers.add(new Object());
+        ObserverList<Object> observerList = new ObserverList<Object>();
+
+        long startNs = System.nanoTime();
+        for (Object obs : observers) observerList.addObserver(obs);
+        for (Object obs : observers) observerList.removeObserver(obs);
+        long elapsedNs = System.nanoTime() - startNs;
+
+        Assert.assertTrue(observerList.isEmpty());
+        Log.i(
+                TAG,
+                "add and remove time per observer with %d observers: %.1f ns",
+                observerCount,
+                (double) elapsedNs / observerCount);
+    }
 }
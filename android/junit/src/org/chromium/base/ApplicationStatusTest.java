@@ -35,7 +35,10 @@ import org.robolectric.shadows.ShadowActivity;
 
 import org.chromium.base.test.BaseRobolectricTestRunner;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** Unit tests for {@link ApplicationStatus}. */
 @RunWith(BaseRobolectricTestRunner.class)
@@ -223,6 +226,38 @@ public class ApplicationStatusTest {
         Assert.assertEquals(1, shadow.mWindowFocusCalls);
     }
 
+    @Test
+    public void testWindowCallbackIsForwardedWithoutReflection() {
+        Assert.assertTrue(WindowCallbackForwarder.forwardsAllMethods());
+        Window.Callback callback = mock(Window.Callback.class);
+        Window.Callback forwarder =
+                ApplicationStatus.createWindowCallbackProxy(mock(Activity.class), callback);
+        Assert.assertTrue(forwarder instanceof WindowCallbackForwarder);
+
+        KeyEvent event = new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_A);
+        forwarder.dispatchKeyEvent(event);
+        forwarder.onPointerCaptureChanged(true);
+        verify(callback).dispatchKeyEvent(event);
+        verify(callback).onPointerCaptureChanged(true);
+    }
+
+    @Test
+    public void testReflectiveProxyWindowsFocusChanged() {
+        ApplicationStatus.WindowFocusChangedListener listener =
+                mock(ApplicationStatus.WindowFocusChangedListener.class);
+        ApplicationStatus.registerWindowFocusChangedListener(listener);
+        Activity activity = mock(Activity.class);
+        Window.Callback callback = mock(Window.Callback.class);
+
+        Window.Callback proxy =
+                ApplicationStatus.createReflectiveWindowCallbackProxy(activity, callback);
+        proxy.onWindowFocusChanged(true);
+
+        verify(callback).onWindowFocusChanged(true);
+        verify(listener).onWindowFocusChanged(activity, true);
+        Assert.assertTrue(ApplicationStatus.reachesWindowCallback(proxy));
+    }
+
     @Test
     public void testNullCallback() {
         Assert.assertFalse(ApplicationStatus.reachesWindowCallback(null));
@@ -312,4 +347,96 @@ public class ApplicationStatusTest {
         controller.create().destroy();
         Assert.assertFalse(ApplicationStatus.isTaskVisible(controller.get().getTaskId()));
     }
+
+    @Test
+    public void testApplicationStateFollowsActivityStates() {
+        Activity first = mock(Activity.class);
+        Activity second = mock(Activity.class);
+
+        ApplicationStatus.onStateChangeForTesting(first, ActivityState.CREATED);
+        ApplicationStatus.onStateChangeForTesting(second, ActivityState.CREATED);
+        Assert.assertEquals(
+                ApplicationState.HAS_RUNNING_ACTIVITIES,
+                ApplicationStatus.getStateForApplication());
+        Assert.assertEquals(2, ApplicationStatus.getRunningActivities().size());
+
+        ApplicationStatus.onStateChangeForTesting(first, ActivityState.PAUSED);
+        Assert.assertEquals(
+                ApplicationState.HAS_RUNNING_ACTIVITIES,
+                ApplicationStatus.getStateForApplication());
+        ApplicationStatus.onStateChangeForTesting(second, ActivityState.STOPPED);
+        Assert.assertEquals(
+                ApplicationState.HAS_PAUSED_ACTIVITIES,
+                ApplicationStatus.getStateForApplication());
+        Assert.assertEquals(ActivityState.PAUSED, ApplicationStatus.getStateForActivity(first));
+        Assert.assertEquals(ActivityState.STOPPED, ApplicationStatus.getStateForActivity(second));
+
+        ApplicationStatus.onStateChangeForTesting(first, ActivityState.STOPPED);
+        Assert.assertEquals(
+                ApplicationState.HAS_STOPPED_ACTIVITIES,
+                ApplicationStatus.getStateForApplication());
+
+        List<Activity> runningActivities = ApplicationStatus.getRunningActivities();
+        ApplicationStatus.onStateChangeForTesting(first, ActivityState.DESTROYED);
+        ApplicationStatus.onStateChangeForTesting(second, ActivityState.DESTROYED);
+        Assert.assertEquals(
+                ApplicationState.HAS_DESTROYED_ACTIVITIES,
+                ApplicationStatus.getStateForApplication());
+        Assert.assertEquals(ActivityState.DESTROYED, ApplicationStatus.getStateForActivity(first));
+        Assert.assertTrue(ApplicationStatus.isEveryActivityDestroyed());
+        // Previously returned lists are snapshots.
+        Assert.assertEquals(2, runningActivities.size());
+    }
+
+    /**
+     * Reads the state of the activities from several threads while it changes. Checks that
+     * readers always see a consistent state.
+     */
+    @Test
+    public void testConcurrentReadsDuringStateChanges() throws InterruptedException {
+        final int readerCount = 4;
+        final int stateChangeCount = 20_000;
+        Activity activity = mock(Activity.class);
+        ApplicationStatus.onStateChangeForTesting(activity, ActivityState.CREATED);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger inconsistentReadCount = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < readerCount; i++) {
+            readers.add(
+                    new Thread(
+                            () -> {
+                                while (!done.get()) {
+                                    int state = ApplicationStatus.getStateForActivity(activity);
+                                    int applicationState =
+                                            ApplicationStatus.getStateForApplication();
+                                    List<Activity> running =
+                                            ApplicationStatus.getRunningActivities();
+                                    if (state == ActivityState.DESTROYED
+                                            || applicationState
+                                                    == ApplicationState.HAS_DESTROYED_ACTIVITIES
+                                            || running.size() != 1
+                                            || running.get(0) != activity) {
+                                        inconsistentReadCount.incrementAndGet();
+                                    }
+                                }
+                            }));
+        }
+
+        for (Thread reader : readers) reader.start();
+        int[] states = {
+            ActivityState.STARTED,
+            ActivityState.RESUMED,
+            ActivityState.PAUSED,
+            ActivityState.STOPPED
+        };
+        for (int i = 0; i < stateChangeCount; i++) {
+            ApplicationStatus.onStateChangeForTesting(activity, states[i % states.length]);
+        }
+        done.set(true);
+        for (Thread reader : readers) reader.join();
+
+        Assert.assertEquals(0, inconsistentReadCount.get());
+        ApplicationStatus.onStateChangeForTesting(activity, ActivityState.DESTROYED);
+    }
 }
@@ -0,0 +1,127 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base;
+
+import androidx.test.filters.SmallTest;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+import org.chromium.base.test.util.Feature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/** Tests for {@link JavaTraceSink}. */
+@RunWith(BaseRobolectricTestRunner.class)
+public class JavaTraceSinkTest {
+    @Rule public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mTraceFile;
+
+    private JavaTraceSink createSink(int recordCount) throws IOException {
+        mTraceFile = mTemporaryFolder.newFile("trace.json");
+        JavaTraceSink sink = JavaTraceSink.create(mTraceFile, recordCount);
+        JavaTraceSink.setInstanceForTesting(sink);
+        return sink;
+    }
+
+    /** Parses the trace file, skipping the metadata record written first. */
+    private JSONArray readEvents() throws IOException, JSONException {
+        String contents =
+                new String(Files.readAllBytes(mTraceFile.toPath()), StandardCharsets.UTF_8);
+        JSONArray records = new JSONArray(contents);
+        JSONArray events = new JSONArray();
+        for (int i = 1; i < records.length(); i++) {
+            events.put(records.getJSONObject(i));
+        }
+        return events;
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testDisabledByDefault() {
+        Assert.assertFalse(JavaTraceSink.enabled());
+        Assert.assertNull(TraceEvent.scoped("TestEvent"));
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testRecordsEvents() throws Exception {
+        createSink(16);
+        Assert.assertTrue(JavaTraceSink.enabled());
+        try (TraceEvent event = TraceEvent.scoped("TestEvent", "TestArg")) {
+            Assert.assertNotNull(event);
+        }
+        TraceEvent.instant("TestInstant");
+        TraceEvent.startAsync("TestAsync", 42);
+        TraceEvent.finishAsync("TestAsync", 42);
+
+        JSONArray events = readEvents();
+        Assert.assertEquals(5, events.length());
+        JSONObject begin = events.getJSONObject(0);
+        Assert.assertEquals("B", begin.getString("ph"));
+        Assert.assertEquals("TestEvent", begin.getString("name"));
+        Assert.assertEquals("TestArg", begin.getJSONObject("args").getString("arg"));
+        Assert.assertEquals("E", events.getJSONObject(1).getString("ph"));
+        Assert.assertEquals("i", events.getJSONObject(2).getString("ph"));
+        Assert.assertEquals("b", events.getJSONObject(3).getString("ph"));
+        Assert.assertEquals("0x2a", events.getJSONObject(3).getString("id"));
+        Assert.assertEquals("e", events.getJSONObject(4).getString("ph"));
+        Assert.assertTrue(begin.getDouble("ts") <= events.getJSONObject(1).getDouble("ts"));
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testEscapesAndTruncatesStrings() throws Exception {
+        createSink(16);
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < JavaTraceSink.RECORD_SIZE; i++) longName.append('x');
+        TraceEvent.begin("Quote\"Backslash\\Newline\n");
+        TraceEvent.begin(longName.toString(), longName.toString());
+
+        JSONArray events = readEvents();
+        Assert.assertEquals(2, events.length());
+        Assert.assertEquals(
+                "Quote\"Backslash\\Newline\n", events.getJSONObject(0).getString("name"));
+        String truncatedName = events.getJSONObject(1).getString("name");
+        Assert.assertTrue(truncatedName.length() > 0);
+        Assert.assertTrue(longName.toString().startsWith(truncatedName));
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testOldestEventsOverwrittenWhenFull() throws Exception {
+        JavaTraceSink sink = createSink(4);
+        TraceEvent.begin("Overwritten1");
+        TraceEvent.begin("Overwritten2");
+        TraceEvent.begin("Kept1");
+        TraceEvent.begin("Kept2");
+        TraceEvent.begin("Kept3");
+        TraceEvent.begin("Kept4");
+
+        // The file stays valid JSON after wrapping.
+        JSONArray events = readEvents();
+        Assert.assertEquals(4, events.length());
+        Assert.assertEquals("Kept3", events.getJSONObject(0).getString("name"));
+        Assert.assertEquals("Kept4", events.getJSONObject(1).getString("name"));
+        Assert.assertEquals("Kept1", events.getJSONObject(2).getString("name"));
+        Assert.assertEquals("Kept2", events.getJSONObject(3).getString("name"));
+        Assert.assertEquals(2, sink.getOverwrittenEventCount());
+    }
+}
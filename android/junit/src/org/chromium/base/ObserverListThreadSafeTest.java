@@ -0,0 +1,143 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.task.TaskRunner;
+import org.chromium.base.task.test.ManualTaskRunner;
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit tests for {@link ObserverListThreadSafe}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ObserverListThreadSafeTest {
+    @Test
+    public void observersAreNotifiedOnTheirTaskRunnerWithOnePostPerRunner() {
+        ObserverListThreadSafe<List<String>> observerList = new ObserverListThreadSafe<>();
+        ManualTaskRunner runnerA = new ManualTaskRunner();
+        ManualTaskRunner runnerB = new ManualTaskRunner();
+        List<String> a1 = new ArrayList<>();
+        List<String> a2 = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+
+        assertTrue(observerList.addObserver(a1, runnerA));
+        assertTrue(observerList.addObserver(b, runnerB));
+        assertTrue(observerList.addObserver(a2, runnerA));
+        assertFalse(observerList.addObserver(a1, runnerB));
+        assertFalse(observerList.addObserver(null, runnerA));
+        assertEquals(3, observerList.size());
+
+        observerList.notifyObservers(obs -> obs.add("notified"));
+        assertEquals(1, runnerA.getPostCount());
+        assertEquals(1, runnerB.getPostCount());
+        assertTrue(a1.isEmpty());
+
+        runnerA.runAll();
+        assertEquals(1, a1.size());
+        assertEquals(1, a2.size());
+        assertTrue(b.isEmpty());
+        runnerB.runAll();
+        assertEquals(1, b.size());
+    }
+
+    @Test
+    public void removedObserversAreNotNotified() {
+        ObserverListThreadSafe<List<String>> observerList = new ObserverListThreadSafe<>();
+        ManualTaskRunner runner = new ManualTaskRunner();
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        List<String> c = new ArrayList<>();
+        observerList.addObserver(a, runner);
+        observerList.addObserver(b, runner);
+        observerList.addObserver(c, runner);
+
+        // b is removed while the notification is pending, and by a during the notification.
+        observerList.notifyObservers(
+                obs -> {
+                    obs.add("notified");
+                    if (obs == a) observerList.removeObserver(c);
+                });
+        assertTrue(observerList.removeObserver(b));
+        assertFalse(observerList.removeObserver(b));
+        runner.runAll();
+
+        assertEquals(1, a.size());
+        assertTrue(b.isEmpty());
+        assertTrue(c.isEmpty());
+        assertEquals(1, observerList.size());
+        assertTrue(observerList.hasObserver(a));
+        assertFalse(observerList.hasObserver(b));
+
+        observerList.removeObserver(a);
+        assertTrue(observerList.isEmpty());
+        observerList.notifyObservers(obs -> obs.add("notified"));
+        assertFalse(runner.hasPendingTasks());
+    }
+
+    @Test
+    public void observersAreAddedAndNotifiedFromManyThreads() throws InterruptedException {
+        final int threadCount = 4;
+        final int observerCountPerThread = 50;
+        ObserverListThreadSafe<AtomicInteger> observerList = new ObserverListThreadSafe<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        TaskRunner taskRunner =
+                new TaskRunner() {
+                    @Override
+                    public void postTask(Runnable task) {
+                        executor.execute(task);
+                    }
+
+                    @Override
+                    public void postDelayedTask(Runnable task, long delay) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+        List<AtomicInteger> observers = new ArrayList<>();
+        for (int i = 0; i < threadCount * observerCountPerThread; i++) {
+            observers.add(new AtomicInteger());
+        }
+
+        CountDownLatch added = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            new Thread(
+                            () -> {
+                                for (int i = 0; i < observerCountPerThread; i++) {
+                                    AtomicInteger obs =
+                                            observers.get(thread * observerCountPerThread + i);
+                                    observerList.addObserver(obs, taskRunner);
+                                    observerList.notifyObservers(o -> o.incrementAndGet());
+                                }
+                                added.countDown();
+                            })
+                    .start();
+        }
+        assertTrue(added.await(10, TimeUnit.SECONDS));
+        assertEquals(threadCount * observerCountPerThread, observerList.size());
+
+        // Every observer was added before this notification.
+        observerList.notifyObservers(o -> o.addAndGet(1000));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (AtomicInteger obs : observers) {
+            assertTrue(obs.get() >= 1000);
+        }
+    }
+}
@@ -87,6 +87,53 @@ public class TraceEventTest {
                 TraceEvent.BasicLooperMonitor.FILTERED_EVENT_NAME);
     }
 
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testEventNameCache() {
+        TraceEvent.setEventNameFilteringEnabled(false);
+        TraceEvent.BasicLooperMonitor.EventNameCache cache =
+                new TraceEvent.BasicLooperMonitor.EventNameCache(2);
+        String line1 =
+                ">>>>> Dispatching to (org.chromium.myClass.myMethod) "
+                        + "{1a2b} org.chromium.myOtherClass.instance: 0";
+        String line2 = ">>>>> Dispatching to (org.chromium.myClass.myMethod) {3c4d} Other: 1";
+        String line3 = ">>>>> Dispatching to (org.chromium.Third) {5e6f} Third: 0";
+
+        String name1 = cache.getTraceEventName(line1);
+        Assert.assertEquals(TraceEvent.BasicLooperMonitor.getTraceEventName(line1), name1);
+        // Only TARGET and TARGET_NAME are part of the key, so cached names are reused.
+        Assert.assertSame(name1, cache.getTraceEventName(line1.replace("1a2b", "9999")));
+        Assert.assertSame(name1, cache.getTraceEventName(line1.replace(": 0", ": 2")));
+        Assert.assertEquals(1, cache.size());
+
+        String name2 = cache.getTraceEventName(line2);
+        Assert.assertEquals(TraceEvent.BasicLooperMonitor.getTraceEventName(line2), name2);
+        Assert.assertSame(name1, cache.getTraceEventName(line1));
+
+        // line2 is the least recently used entry, it gets evicted.
+        String name3 = cache.getTraceEventName(line3);
+        Assert.assertEquals(TraceEvent.BasicLooperMonitor.getTraceEventName(line3), name3);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertSame(name1, cache.getTraceEventName(line1));
+        Assert.assertSame(name3, cache.getTraceEventName(line3));
+        Assert.assertNotSame(name2, cache.getTraceEventName(line2));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    @SmallTest
+    @Feature({"Android-AppBase"})
+    public void testEventNameCacheMalformedLine() {
+        TraceEvent.setEventNameFilteringEnabled(false);
+        TraceEvent.BasicLooperMonitor.EventNameCache cache =
+                new TraceEvent.BasicLooperMonitor.EventNameCache(2);
+        String line = ">>>>> Dispatching to something unexpected";
+        Assert.assertEquals(
+                TraceEvent.BasicLooperMonitor.getTraceEventName(line),
+                cache.getTraceEventName(line));
+    }
+
     @Test
     @SmallTest
     @Feature({"Android-AppBase"})
@@ -122,4 +122,80 @@ public class FrameMetricsStoreTest {
         assertArrayEquals(new long[] {12_000_100L}, metrics.durationsNs);
         assertArrayEquals(new boolean[] {false}, metrics.isJanky);
     }
+
+    @Test
+    public void overlappingScenariosBeyondInitialCapacity() {
+        // Records enough frames to grow the buffers several times, while scenarios start and stop
+        // so that frames get removed from the front of the buffers.
+        FrameMetricsStore store = new FrameMetricsStore();
+        store.initialize();
+
+        store.startTrackingScenario(JankScenario.PERIODIC_REPORTING);
+        for (int i = 1; i <= 300; i++) {
+            if (i == 101) store.startTrackingScenario(JankScenario.FEED_SCROLLING);
+            store.addFrameMeasurement(i, i % 3 == 0, i * 1_000L);
+        }
+
+        JankMetrics metrics = store.stopTrackingScenario(JankScenario.PERIODIC_REPORTING);
+        assertEquals(300, metrics.durationsNs.length);
+        assertEquals(1L, metrics.durationsNs[0]);
+        assertEquals(300_000L, metrics.timestampsNs[299]);
+
+        // Frames before FEED_SCROLLING started were removed, and new frames keep being appended.
+        store.startTrackingScenario(JankScenario.PERIODIC_REPORTING);
+        for (int i = 301; i <= 400; i++) {
+            store.addFrameMeasurement(i, i % 3 == 0, i * 1_000L);
+        }
+
+        // Frames after the end time are not part of the scenario.
+        metrics = store.stopTrackingScenario(JankScenario.FEED_SCROLLING, 350_000L);
+        assertEquals(250, metrics.durationsNs.length);
+        assertEquals(101L, metrics.durationsNs[0]);
+        assertEquals(350L, metrics.durationsNs[249]);
+        for (int i = 0; i < metrics.durationsNs.length; i++) {
+            assertEquals(metrics.durationsNs[i] % 3 == 0, metrics.isJanky[i]);
+            assertEquals(metrics.durationsNs[i] * 1_000L, metrics.timestampsNs[i]);
+        }
+
+        metrics = store.stopTrackingScenario(JankScenario.PERIODIC_REPORTING);
+        assertEquals(100, metrics.durationsNs.length);
+        assertEquals(301L, metrics.durationsNs[0]);
+        assertEquals(400L, metrics.durationsNs[99]);
+    }
+
+    @Test
+    public void summaryOfConcurrentScenarios() {
+        FrameMetricsStore store = new FrameMetricsStore();
+        store.initialize();
+
+        store.startTrackingScenario(JankScenario.PERIODIC_REPORTING);
+        store.addFrameMeasurement(10_000_000L, true, 1_000L);
+        store.startTrackingScenario(JankScenario.FEED_SCROLLING);
+        store.addFrameMeasurement(12_000_000L, true, 2_000L);
+        store.addFrameMeasurement(20_000_000L, true, 3_000L);
+        store.addFrameMeasurement(8_000_000L, false, 4_000L);
+        store.addFrameMeasurement(30_000_000L, true, 5_000L);
+
+        JankScenarioAggregator summary =
+                store.stopTrackingScenarioSummary(JankScenario.PERIODIC_REPORTING);
+        assertEquals(5, summary.getFrameCount());
+        assertEquals(4, summary.getJankyFrameCount());
+        assertEquals(3, summary.getMaxConsecutiveJankyFrameCount());
+        assertEquals(1_000L, summary.getFirstTimestampNs());
+        assertEquals(5_000L, summary.getLastTimestampNs());
+        assertEquals(30_000_000L, summary.getLastDurationNs());
+
+        // Frames after the end time are not part of the summary, even if they were received before
+        // the scenario stopped.
+        summary = store.stopTrackingScenarioSummary(JankScenario.FEED_SCROLLING, 4_000L);
+        assertEquals(3, summary.getFrameCount());
+        assertEquals(2, summary.getJankyFrameCount());
+        assertEquals(2, summary.getMaxConsecutiveJankyFrameCount());
+        assertEquals(2_000L, summary.getFirstTimestampNs());
+        assertEquals(4_000L, summary.getLastTimestampNs());
+        assertEquals(8_000_000L, summary.getLastDurationNs());
+
+        summary = store.stopTrackingScenarioSummary(JankScenario.FEED_SCROLLING);
+        assertEquals(0, summary.getFrameCount());
+    }
 }
@@ -47,6 +47,21 @@ public class JankMetricUMARecorderTest {
         verify(mNativeMock).recordJankMetrics(durationsNs, jankyFrames, 0, 1000, 1);
     }
 
+    @Test
+    public void testRecordSummaryToNative() {
+        JankScenarioAggregator summary = new JankScenarioAggregator();
+        summary.addFrame(5_000_000L, false, 5L);
+        summary.addFrame(5_500_000L, true, 8L);
+        summary.addFrame(30_000_000L, true, 9L);
+
+        JankMetricUMARecorder.recordJankMetricsSummaryToUMA(summary, 0, 1000, 1);
+
+        // Durations are sent as one sample per bucket.
+        verify(mNativeMock)
+                .recordJankMetricsSummary(
+                        new int[] {5, 29}, new int[] {2, 1}, 2, 1, 2, 0, 1000, 1);
+    }
+
     @Test
     public void testRecordNullMetrics() {
         JankMetricUMARecorder.recordJankMetricsToUMA(null, 0, 0, 1);
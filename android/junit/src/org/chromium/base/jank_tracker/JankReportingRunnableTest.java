@@ -87,12 +87,15 @@ public class JankReportingRunnableTest {
 
         verify(metricsStore).initialize();
         verify(metricsStore).startTrackingScenario(JankScenario.TAB_SWITCHER);
-        verify(metricsStore).stopTrackingScenario(JankScenario.TAB_SWITCHER);
+        verify(metricsStore).stopTrackingScenarioSummary(JankScenario.TAB_SWITCHER);
 
         verify(mNativeMock)
-                .recordJankMetrics(
-                        new long[] {1_000_000L},
-                        new boolean[] {true},
+                .recordJankMetricsSummary(
+                        new int[] {1},
+                        new int[] {1},
+                        1,
+                        0,
+                        1,
                         0L,
                         1L,
                         JankScenario.TAB_SWITCHER);
@@ -140,12 +143,16 @@ public class JankReportingRunnableTest {
 
         verify(metricsStore).initialize();
         verify(metricsStore).startTrackingScenario(JankScenario.TAB_SWITCHER);
-        verify(metricsStore).stopTrackingScenario(JankScenario.TAB_SWITCHER, frameTime);
+        verify(metricsStore).stopTrackingScenarioSummary(JankScenario.TAB_SWITCHER, frameTime);
 
+        // Both frames last 1ms.
         verify(mNativeMock)
-                .recordJankMetrics(
-                        new long[] {1_000_000L, 1_000_001L},
-                        new boolean[] {true, false},
+                .recordJankMetricsSummary(
+                        new int[] {1},
+                        new int[] {2},
+                        1,
+                        1,
+                        1,
                         1L,
                         5L,
                         JankScenario.TAB_SWITCHER);
@@ -177,7 +184,7 @@ public class JankReportingRunnableTest {
 
         verify(metricsStore).initialize();
         verify(metricsStore).startTrackingScenario(JankScenario.TAB_SWITCHER);
-        verify(metricsStore).stopTrackingScenario(JankScenario.TAB_SWITCHER);
+        verify(metricsStore).stopTrackingScenarioSummary(JankScenario.TAB_SWITCHER);
 
         // Native shouldn't be called when there are no measurements.
         verifyNoMoreInteractions(mNativeMock);
@@ -75,7 +75,9 @@ public class JankReportingSchedulerTest {
         // scenario.
         orderVerifier.verify(mFrameMetricsStore).initialize();
         orderVerifier.verify(mFrameMetricsStore).startTrackingScenario(JankScenario.NEW_TAB_PAGE);
-        orderVerifier.verify(mFrameMetricsStore).stopTrackingScenario(JankScenario.NEW_TAB_PAGE);
+        orderVerifier
+                .verify(mFrameMetricsStore)
+                .stopTrackingScenarioSummary(JankScenario.NEW_TAB_PAGE);
 
         Assert.assertFalse(mShadowLooper.getScheduler().areAnyRunnable());
     }
@@ -105,7 +107,7 @@ public class JankReportingSchedulerTest {
                 .startTrackingScenario(JankScenario.PERIODIC_REPORTING);
         orderVerifier
                 .verify(mFrameMetricsStore)
-                .stopTrackingScenario(JankScenario.PERIODIC_REPORTING);
+                .stopTrackingScenarioSummary(JankScenario.PERIODIC_REPORTING);
 
         // There should be another task posted to continue the loop.
         Assert.assertTrue(mShadowLooper.getScheduler().areAnyRunnable());
@@ -145,7 +147,7 @@ public class JankReportingSchedulerTest {
                 .startTrackingScenario(JankScenario.PERIODIC_REPORTING);
         orderVerifier
                 .verify(mFrameMetricsStore)
-                .stopTrackingScenario(JankScenario.PERIODIC_REPORTING);
+                .stopTrackingScenarioSummary(JankScenario.PERIODIC_REPORTING);
 
         // Stopping reporting forces an immediate report of recorded frames, if any.
         orderVerifier
@@ -153,7 +155,7 @@ public class JankReportingSchedulerTest {
                 .startTrackingScenario(JankScenario.PERIODIC_REPORTING);
         orderVerifier
                 .verify(mFrameMetricsStore)
-                .stopTrackingScenario(JankScenario.PERIODIC_REPORTING);
+                .stopTrackingScenarioSummary(JankScenario.PERIODIC_REPORTING);
 
         // There should not be another task posted to continue the loop.
         Assert.assertFalse(mShadowLooper.getScheduler().areAnyRunnable());
@@ -0,0 +1,74 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.jank_tracker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+/** Tests for JankScenarioAggregator. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class JankScenarioAggregatorTest {
+    @Test
+    public void emptySummary() {
+        JankScenarioAggregator aggregator = new JankScenarioAggregator();
+
+        assertEquals(0, aggregator.getFrameCount());
+        assertEquals(0, aggregator.getJankyFrameCount());
+        assertEquals(0, aggregator.getMaxConsecutiveJankyFrameCount());
+        assertEquals(0, aggregator.getDurationSamplesMs().length);
+        assertEquals(0, aggregator.getDurationCounts().length);
+    }
+
+    @Test
+    public void durationsUseNativeBuckets() {
+        // Same durations as TestUMARecording in jank_metric_uma_recorder_unittest.cc.
+        long[] durationsNs = {
+            1_000_000L, 2_000_000L, 30_000_000L, 10_000_000L, 60_000_000L, 1_000_000L, 1_000_000L,
+            20_000_000L
+        };
+        JankScenarioAggregator aggregator = new JankScenarioAggregator();
+        for (int i = 0; i < durationsNs.length; i++) {
+            aggregator.addFrame(durationsNs[i], false, i);
+        }
+
+        assertArrayEquals(new int[] {1, 2, 10, 20, 29, 57}, aggregator.getDurationSamplesMs());
+        assertArrayEquals(new int[] {3, 1, 1, 1, 1, 1}, aggregator.getDurationCounts());
+    }
+
+    @Test
+    public void outOfRangeDurations() {
+        JankScenarioAggregator aggregator = new JankScenarioAggregator();
+        aggregator.addFrame(999_999L, false, 1);
+        aggregator.addFrame(20_000_000_000L, false, 2);
+        aggregator.addFrame(Long.MAX_VALUE, false, 3);
+
+        // Sub-millisecond durations go to the underflow bucket, long ones to the overflow bucket.
+        assertArrayEquals(new int[] {0, 10_000}, aggregator.getDurationSamplesMs());
+        assertArrayEquals(new int[] {1, 2}, aggregator.getDurationCounts());
+    }
+
+    @Test
+    public void countsJankyFramesAndRuns() {
+        boolean[] isJanky = {true, false, true, true, true, false, true, true};
+        JankScenarioAggregator aggregator = new JankScenarioAggregator();
+        for (int i = 0; i < isJanky.length; i++) {
+            aggregator.addFrame(16_000_000L + i, isJanky[i], 1_000L * (i + 1));
+        }
+
+        assertEquals(8, aggregator.getFrameCount());
+        assertEquals(6, aggregator.getJankyFrameCount());
+        assertEquals(3, aggregator.getMaxConsecutiveJankyFrameCount());
+        assertEquals(1_000L, aggregator.getFirstTimestampNs());
+        assertEquals(8_000L, aggregator.getLastTimestampNs());
+        assertEquals(16_000_007L, aggregator.getLastDurationNs());
+    }
+}
@@ -0,0 +1,196 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import org.chromium.base.ApplicationState;
+import org.chromium.base.test.BaseRobolectricTestRunner;
+import org.chromium.base.test.util.JniMocker;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/** Unit tests for {@link AggregatingUmaRecorder}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@SuppressWarnings("DoNotMock") // Ok to mock UmaRecorder since this is testing metrics.
+public final class AggregatingUmaRecorderTest {
+    private static final String AGGREGATED = "AggregatingUmaRecorderTest.Aggregated";
+    private static final String NOT_AGGREGATED = "AggregatingUmaRecorderTest.NotAggregated";
+
+    @Rule public JniMocker mJniMocker = new JniMocker();
+
+    @Mock UmaRecorder mUmaRecorder;
+    @Mock NativeUmaRecorder.Natives mNativeUmaRecorderNatives;
+
+    @Before
+    public void initMocks() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private static int[] bucketMins(AggregatingUmaRecorder.AggregatedHistogram histogram, int n) {
+        int[] mins = new int[n];
+        for (int i = 0; i < n; i++) {
+            mins[i] = histogram.getBucketMin(i);
+        }
+        return mins;
+    }
+
+    @Test
+    public void testExponentialBucketsMatchNative() {
+        // Same expectations as HistogramTest.ExponentialRangesTest in histogram_unittest.cc.
+        AggregatingUmaRecorder.AggregatedHistogram histogram =
+                new AggregatingUmaRecorder.AggregatedHistogram(
+                        CachingUmaRecorder.Histogram.Type.EXPONENTIAL, AGGREGATED, 1, 64, 8);
+        assertArrayEquals(new int[] {0, 1, 2, 4, 8, 16, 32, 64}, bucketMins(histogram, 8));
+
+        histogram =
+                new AggregatingUmaRecorder.AggregatedHistogram(
+                        CachingUmaRecorder.Histogram.Type.EXPONENTIAL, AGGREGATED, 1, 32, 15);
+        assertArrayEquals(
+                new int[] {0, 1, 2, 3, 4, 5, 6, 7, 9, 11, 14, 17, 21, 26, 32},
+                bucketMins(histogram, 15));
+    }
+
+    @Test
+    public void testLinearBucketsMatchNative() {
+        // Same expectations as HistogramTest.LinearRangesTest in histogram_unittest.cc.
+        AggregatingUmaRecorder.AggregatedHistogram histogram =
+                new AggregatingUmaRecorder.AggregatedHistogram(
+                        CachingUmaRecorder.Histogram.Type.LINEAR, AGGREGATED, 1, 7, 8);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6, 7}, bucketMins(histogram, 8));
+
+        histogram =
+                new AggregatingUmaRecorder.AggregatedHistogram(
+                        CachingUmaRecorder.Histogram.Type.LINEAR, AGGREGATED, 1, 6, 5);
+        assertArrayEquals(new int[] {0, 1, 3, 4, 6}, bucketMins(histogram, 5));
+    }
+
+    @Test
+    public void testOversizeBucketCountIsClampedLikeNative() {
+        // Histogram::InspectConstructionArguments() falls back to 102 buckets.
+        assertEquals(102, HistogramBucketRanges.exponential(AGGREGATED, 1, 100_000, 1500).length);
+        assertEquals(102, HistogramBucketRanges.linear(AGGREGATED, 1, 100_000, 1500).length);
+        assertEquals(1002, HistogramBucketRanges.exponential(AGGREGATED, 1, 100_000, 1002).length);
+
+        // Except for the use counters, which are allowed more buckets.
+        assertEquals(
+                1500,
+                HistogramBucketRanges.linear("Blink.UseCounter.Features", 1, 1499, 1500).length);
+    }
+
+    @Test
+    public void testBucketIndex() {
+        AggregatingUmaRecorder.AggregatedHistogram histogram =
+                new AggregatingUmaRecorder.AggregatedHistogram(
+                        CachingUmaRecorder.Histogram.Type.EXPONENTIAL, AGGREGATED, 1, 64, 8);
+        assertEquals(0, histogram.getBucketIndex(-5));
+        assertEquals(0, histogram.getBucketIndex(0));
+        assertEquals(1, histogram.getBucketIndex(1));
+        assertEquals(3, histogram.getBucketIndex(7));
+        assertEquals(4, histogram.getBucketIndex(8));
+        assertEquals(7, histogram.getBucketIndex(64));
+        assertEquals(7, histogram.getBucketIndex(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testAggregatedSamplesForwardedOnFlush() {
+        AggregatingUmaRecorder recorder =
+                new AggregatingUmaRecorder(
+                        mUmaRecorder, Collections.singletonList(AGGREGATED), 1000);
+
+        recorder.recordExponentialHistogram(AGGREGATED, 5, 1, 64, 8);
+        recorder.recordExponentialHistogram(AGGREGATED, 6, 1, 64, 8);
+        recorder.recordExponentialHistogram(AGGREGATED, 40, 1, 64, 8);
+        verifyNoMoreInteractions(mUmaRecorder);
+
+        assertEquals(3, recorder.flush());
+
+        // Samples are forwarded as the lower bound of their bucket.
+        verify(mUmaRecorder, times(2))
+                .recordExponentialHistogram(
+                        any(HistogramHandle.class), eq(4), eq(1), eq(64), eq(8));
+        verify(mUmaRecorder)
+                .recordExponentialHistogram(
+                        any(HistogramHandle.class), eq(32), eq(1), eq(64), eq(8));
+        verifyNoMoreInteractions(mUmaRecorder);
+        assertEquals(0, recorder.flush());
+    }
+
+    @Test
+    public void testNotAggregatedSamplesForwardedImmediately() {
+        AggregatingUmaRecorder recorder =
+                new AggregatingUmaRecorder(
+                        mUmaRecorder, Collections.singletonList(AGGREGATED), 1000);
+
+        recorder.recordExponentialHistogram(NOT_AGGREGATED, 5, 1, 64, 8);
+        recorder.recordSparseHistogram(AGGREGATED, 5);
+
+        verify(mUmaRecorder).recordExponentialHistogram(NOT_AGGREGATED, 5, 1, 64, 8);
+        verify(mUmaRecorder).recordSparseHistogram(AGGREGATED, 5);
+        verifyNoMoreInteractions(mUmaRecorder);
+    }
+
+    @Test
+    public void testFlushedWhenApplicationStopped() {
+        AggregatingUmaRecorder recorder =
+                new AggregatingUmaRecorder(
+                        mUmaRecorder, Collections.singletonList(AGGREGATED), 1000);
+        recorder.recordLinearHistogram(AGGREGATED, 3, 1, 7, 8);
+
+        recorder.onApplicationStateChange(ApplicationState.HAS_PAUSED_ACTIVITIES);
+        verifyNoMoreInteractions(mUmaRecorder);
+
+        recorder.onApplicationStateChange(ApplicationState.HAS_STOPPED_ACTIVITIES);
+        verify(mUmaRecorder)
+                .recordLinearHistogram(any(HistogramHandle.class), eq(3), eq(1), eq(7), eq(8));
+    }
+
+    @Test
+    public void testFlushToNativeCrossesJniOncePerHistogram() {
+        mJniMocker.mock(NativeUmaRecorderJni.TEST_HOOKS, mNativeUmaRecorderNatives);
+        AggregatingUmaRecorder recorder =
+                new AggregatingUmaRecorder(
+                        new NativeUmaRecorder(), Arrays.asList(AGGREGATED), 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            recorder.recordExponentialHistogram(AGGREGATED, i % 64, 1, 64, 8);
+        }
+        recorder.flush();
+
+        ArgumentCaptor<int[]> samples = ArgumentCaptor.forClass(int[].class);
+        ArgumentCaptor<int[]> counts = ArgumentCaptor.forClass(int[].class);
+        verify(mNativeUmaRecorderNatives)
+                .recordHistogramCounts(
+                        eq(AGGREGATED),
+                        anyLong(),
+                        eq(CachingUmaRecorder.Histogram.Type.EXPONENTIAL),
+                        eq(1),
+                        eq(64),
+                        eq(8),
+                        samples.capture(),
+                        counts.capture());
+        verifyNoMoreInteractions(mNativeUmaRecorderNatives);
+        assertArrayEquals(new int[] {0, 1, 2, 4, 8, 16, 32}, samples.getValue());
+        int total = 0;
+        for (int count : counts.getValue()) total += count;
+        assertEquals(1000, total);
+    }
+}
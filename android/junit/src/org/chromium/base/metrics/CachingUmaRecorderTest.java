@@ -9,6 +9,10 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -17,6 +21,7 @@ import androidx.test.filters.MediumTest;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -25,6 +30,7 @@ import org.mockito.MockitoAnnotations;
 
 import org.chromium.base.Callback;
 import org.chromium.base.test.BaseRobolectricTestRunner;
+import org.chromium.base.test.util.JniMocker;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -38,7 +44,10 @@ import java.util.concurrent.locks.ReentrantLock;
 @RunWith(BaseRobolectricTestRunner.class)
 @SuppressWarnings("DoNotMock") // Ok to mock UmaRecorder since this is testing metrics.
 public final class CachingUmaRecorderTest {
+    @Rule public JniMocker mJniMocker = new JniMocker();
+
     @Mock UmaRecorder mUmaRecorder;
+    @Mock NativeUmaRecorder.Natives mNativeUmaRecorderNatives;
 
     @Before
     public void initMocks() {
@@ -149,6 +158,182 @@ public final class CachingUmaRecorderTest {
                 .recordSparseHistogram("cachingUmaRecorderTest.recordSparseHistogram", 72);
     }
 
+    @Test
+    public void testSamplesBeyondInitialCapacityGetFlushed() {
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+        final int numSamples = CachingUmaRecorder.Histogram.INITIAL_SAMPLE_CAPACITY * 3 + 1;
+
+        for (int i = 0; i < numSamples; i++) {
+            cachingUmaRecorder.recordSparseHistogram("cachingUmaRecorderTest.growBuffer", i);
+        }
+        assertEquals(
+                numSamples,
+                cachingUmaRecorder.getHistogramTotalCountForTesting(
+                        "cachingUmaRecorderTest.growBuffer"));
+        assertEquals(
+                numSamples,
+                cachingUmaRecorder
+                        .getHistogramSamplesForTesting("cachingUmaRecorderTest.growBuffer")
+                        .size());
+        cachingUmaRecorder.setDelegate(mUmaRecorder);
+
+        for (int i = 0; i < numSamples; i++) {
+            verify(mUmaRecorder).recordSparseHistogram("cachingUmaRecorderTest.growBuffer", i);
+        }
+        verifyNoMoreInteractions(mUmaRecorder);
+    }
+
+    @Test
+    public void testFlushToNativeCrossesJniOncePerHistogram() {
+        mJniMocker.mock(NativeUmaRecorderJni.TEST_HOOKS, mNativeUmaRecorderNatives);
+        final int numHistograms = 16;
+        final int numSamples = 32;
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+
+        for (int i = 0; i < numHistograms; i++) {
+            for (int j = 0; j < numSamples; j++) {
+                cachingUmaRecorder.recordExponentialHistogram(
+                        "cachingUmaRecorderTest.batchedFlush" + i, j + 1, 1, 1000, 50);
+            }
+        }
+        cachingUmaRecorder.setDelegate(new NativeUmaRecorder());
+
+        for (int i = 0; i < numHistograms; i++) {
+            verify(mNativeUmaRecorderNatives)
+                    .recordHistogramSamples(
+                            eq("cachingUmaRecorderTest.batchedFlush" + i),
+                            eq(0L),
+                            eq(CachingUmaRecorder.Histogram.Type.EXPONENTIAL),
+                            eq(1),
+                            eq(1000),
+                            eq(50),
+                            any(int[].class),
+                            eq(numSamples));
+        }
+        verify(mNativeUmaRecorderNatives, times(0))
+                .recordExponentialHistogram(
+                        any(), anyLong(), anyInt(), anyInt(), anyInt(), anyInt());
+        verifyNoMoreInteractions(mNativeUmaRecorderNatives);
+    }
+
+    @Test
+    public void testFlushToAggregatingRecorderCrossesJniOncePerHistogram() {
+        mJniMocker.mock(NativeUmaRecorderJni.TEST_HOOKS, mNativeUmaRecorderNatives);
+        final int numSamples = 32;
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+
+        for (int j = 0; j < numSamples; j++) {
+            cachingUmaRecorder.recordExponentialHistogram(
+                    "cachingUmaRecorderTest.aggregatedFlush", j + 1, 1, 1000, 50);
+            cachingUmaRecorder.recordLinearHistogram(
+                    "cachingUmaRecorderTest.notAggregatedFlush", j + 1, 1, 100, 101);
+        }
+        cachingUmaRecorder.setDelegate(
+                new AggregatingUmaRecorder(
+                        new NativeUmaRecorder(),
+                        List.of("cachingUmaRecorderTest.aggregatedFlush"),
+                        /* flushIntervalMs= */ 1000));
+
+        verify(mNativeUmaRecorderNatives)
+                .recordHistogramSamples(
+                        eq("cachingUmaRecorderTest.aggregatedFlush"),
+                        eq(0L),
+                        eq(CachingUmaRecorder.Histogram.Type.EXPONENTIAL),
+                        eq(1),
+                        eq(1000),
+                        eq(50),
+                        any(int[].class),
+                        eq(numSamples));
+        verify(mNativeUmaRecorderNatives)
+                .recordHistogramSamples(
+                        eq("cachingUmaRecorderTest.notAggregatedFlush"),
+                        eq(0L),
+                        eq(CachingUmaRecorder.Histogram.Type.LINEAR),
+                        eq(1),
+                        eq(100),
+                        eq(101),
+                        any(int[].class),
+                        eq(numSamples));
+        verifyNoMoreInteractions(mNativeUmaRecorderNatives);
+    }
+
+    @Test
+    public void testRecordWithHandleGetsFlushed() {
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+        HistogramHandle handle = new HistogramHandle("cachingUmaRecorderTest.handle");
+
+        cachingUmaRecorder.recordSparseHistogram(handle, 72);
+        cachingUmaRecorder.recordSparseHistogram("cachingUmaRecorderTest.handle", 72);
+        assertEquals(
+                2,
+                cachingUmaRecorder.getHistogramValueCountForTesting(
+                        "cachingUmaRecorderTest.handle", 72));
+        cachingUmaRecorder.setDelegate(mUmaRecorder);
+
+        verify(mUmaRecorder, times(2)).recordSparseHistogram("cachingUmaRecorderTest.handle", 72);
+        verifyNoMoreInteractions(mUmaRecorder);
+    }
+
+    @Test
+    public void testRecordWithHandleDelegated() {
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+        HistogramHandle handle = new HistogramHandle("cachingUmaRecorderTest.handle");
+        cachingUmaRecorder.setDelegate(mUmaRecorder);
+
+        cachingUmaRecorder.recordExponentialHistogram(handle, 1, 2, 10, 5);
+
+        verify(mUmaRecorder).recordExponentialHistogram(handle, 1, 2, 10, 5);
+        verifyNoMoreInteractions(mUmaRecorder);
+    }
+
+    @Test
+    public void testHandleCachedHistogramNotReusedAcrossCaches() {
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+        HistogramHandle handle = new HistogramHandle("cachingUmaRecorderTest.handleCache");
+
+        cachingUmaRecorder.recordSparseHistogram(handle, 1);
+        CachingUmaRecorder.Histogram firstHistogram = handle.getCachedHistogram();
+        cachingUmaRecorder.recordSparseHistogram(handle, 2);
+        assertEquals(firstHistogram, handle.getCachedHistogram());
+
+        // Flushing replaces the cache, samples recorded afterwards must not go to the flushed
+        // histogram.
+        cachingUmaRecorder.setDelegate(new NoopUmaRecorder());
+        cachingUmaRecorder.setDelegate(null);
+        cachingUmaRecorder.recordSparseHistogram(handle, 3);
+        Assert.assertNotEquals(firstHistogram, handle.getCachedHistogram());
+
+        // Another recorder must not use histograms cached by the first one.
+        CachingUmaRecorder otherCachingUmaRecorder = new CachingUmaRecorder();
+        otherCachingUmaRecorder.recordSparseHistogram(handle, 4);
+        assertEquals(
+                1,
+                otherCachingUmaRecorder.getHistogramTotalCountForTesting(
+                        "cachingUmaRecorderTest.handleCache"));
+
+        cachingUmaRecorder.setDelegate(mUmaRecorder);
+        verify(mUmaRecorder).recordSparseHistogram("cachingUmaRecorderTest.handleCache", 3);
+        verifyNoMoreInteractions(mUmaRecorder);
+    }
+
+    @Test
+    public void testHandleReleasesFlushedHistogram() {
+        CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
+        HistogramHandle handle = new HistogramHandle("cachingUmaRecorderTest.handleRelease");
+
+        cachingUmaRecorder.recordSparseHistogram(handle, 1);
+        CachingUmaRecorder.Histogram flushedHistogram = handle.getCachedHistogram();
+        cachingUmaRecorder.setDelegate(mUmaRecorder);
+
+        // The flushed histogram no longer holds samples, and the handle drops it once it records
+        // to the delegate.
+        assertEquals(0, flushedHistogram.copySamples().length);
+        cachingUmaRecorder.recordSparseHistogram(handle, 2);
+        Assert.assertNull(handle.getCachedHistogram());
+        verify(mUmaRecorder).recordSparseHistogram("cachingUmaRecorderTest.handleRelease", 1);
+        verify(mUmaRecorder).recordSparseHistogram(handle, 2);
+    }
+
     @Test
     public void testRecordUserActionGetsFlushed() {
         CachingUmaRecorder cachingUmaRecorder = new CachingUmaRecorder();
@@ -0,0 +1,61 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+import org.chromium.base.test.util.JniMocker;
+
+/** Unit tests for {@link NativeUmaRecorder}. */
+@RunWith(BaseRobolectricTestRunner.class)
+public final class NativeUmaRecorderTest {
+    @Rule public JniMocker mJniMocker = new JniMocker();
+
+    @Mock NativeUmaRecorder.Natives mNativeUmaRecorderNatives;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mJniMocker.mock(NativeUmaRecorderJni.TEST_HOOKS, mNativeUmaRecorderNatives);
+    }
+
+    @Test
+    public void testCachesHintInHandle() {
+        Mockito.when(
+                        mNativeUmaRecorderNatives.recordSparseHistogram(
+                                eq("nativeUmaRecorderTest.nativeHint"), anyLong(), anyInt()))
+                .thenReturn(42L);
+        NativeUmaRecorder nativeUmaRecorder = new NativeUmaRecorder();
+        HistogramHandle handle = new HistogramHandle("nativeUmaRecorderTest.nativeHint");
+
+        nativeUmaRecorder.recordSparseHistogram(handle, 1);
+        nativeUmaRecorder.recordSparseHistogram(handle, 2);
+        nativeUmaRecorder.recordSparseHistogram("nativeUmaRecorderTest.nativeHint", 3);
+        nativeUmaRecorder.recordSparseHistogram("nativeUmaRecorderTest.nativeHint", 4);
+
+        assertEquals(42L, handle.getNativeHint());
+        verify(mNativeUmaRecorderNatives)
+                .recordSparseHistogram("nativeUmaRecorderTest.nativeHint", 0L, 1);
+        verify(mNativeUmaRecorderNatives)
+                .recordSparseHistogram("nativeUmaRecorderTest.nativeHint", 42L, 2);
+        verify(mNativeUmaRecorderNatives)
+                .recordSparseHistogram("nativeUmaRecorderTest.nativeHint", 0L, 3);
+        verify(mNativeUmaRecorderNatives)
+                .recordSparseHistogram("nativeUmaRecorderTest.nativeHint", 42L, 4);
+    }
+}
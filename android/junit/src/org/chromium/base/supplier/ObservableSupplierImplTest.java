@@ -14,6 +14,7 @@ import android.os.Handler;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 import org.chromium.base.Callback;
 import org.chromium.base.test.BaseRobolectricTestRunner;
@@ -221,6 +222,47 @@ public class ObservableSupplierImplTest {
         assertFalse("Both observers should be gone", mSupplier.hasObservers());
     }
 
+    @Test
+    public void testObserverNotification_Coalesced() {
+        mSupplier.enableNotificationCoalescing();
+        Callback<String> supplierObserver =
+                result -> {
+                    mCallCount++;
+                    mLastSuppliedString = result;
+                };
+
+        mSupplier.addObserver(supplierObserver);
+        mSupplier.set(TEST_STRING_1);
+        mSupplier.set(TEST_STRING_2);
+        checkState(0, null, TEST_STRING_2, "before the end of the message loop.");
+
+        ShadowLooper.idleMainLooper();
+        checkState(1, TEST_STRING_2, TEST_STRING_2, "after the end of the message loop.");
+
+        mSupplier.set(TEST_STRING_1);
+        ShadowLooper.idleMainLooper();
+        checkState(2, TEST_STRING_1, TEST_STRING_1, "after setting first string again.");
+    }
+
+    @Test
+    public void testObserverNotification_CoalescedRegisterObserverAfterSet() {
+        mSupplier.enableNotificationCoalescing();
+        mSupplier.set(TEST_STRING_1);
+        Callback<String> supplierObserver =
+                result -> {
+                    mCallCount++;
+                    mLastSuppliedString = result;
+                };
+
+        mSupplier.addObserver(supplierObserver);
+        mSupplier.set(TEST_STRING_2);
+        checkState(0, null, TEST_STRING_2, "before the end of the message loop.");
+
+        // The observer is only notified of the latest string, once.
+        ShadowLooper.idleMainLooper();
+        checkState(1, TEST_STRING_2, TEST_STRING_2, "after the end of the message loop.");
+    }
+
     private void checkState(
             int expectedCallCount,
             String expectedLastSuppliedString,
@@ -0,0 +1,93 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import org.chromium.base.Callback;
+import org.chromium.base.task.test.ManualTaskRunner;
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Unit tests for {@link ThreadSafeObservableSupplierImpl}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ThreadSafeObservableSupplierImplTest {
+    private static final String TEST_STRING_1 = "Test";
+    private static final String TEST_STRING_2 = "Test2";
+
+    private final ThreadSafeObservableSupplierImpl<String> mSupplier =
+            new ThreadSafeObservableSupplierImpl<>();
+    private final List<String> mSuppliedStrings = new ArrayList<>();
+    private final Callback<String> mObserver = mSuppliedStrings::add;
+
+    @Test
+    public void testObserverNotifiedOnItsTaskRunner() {
+        ManualTaskRunner taskRunner = new ManualTaskRunner();
+        assertEquals(null, mSupplier.addObserver(mObserver, taskRunner));
+        assertTrue(mSupplier.hasObservers());
+
+        mSupplier.set(TEST_STRING_1);
+        assertEquals(TEST_STRING_1, mSupplier.get());
+        assertTrue(mSuppliedStrings.isEmpty());
+        taskRunner.runAll();
+        assertEquals(List.of(TEST_STRING_1), mSuppliedStrings);
+
+        // Setting an equal object doesn't notify.
+        mSupplier.set(new String(TEST_STRING_1));
+        assertFalse(taskRunner.hasPendingTasks());
+
+        mSupplier.removeObserver(mObserver);
+        assertFalse(mSupplier.hasObservers());
+        mSupplier.set(TEST_STRING_2);
+        assertFalse(taskRunner.hasPendingTasks());
+        assertEquals(List.of(TEST_STRING_1), mSuppliedStrings);
+    }
+
+    @Test
+    public void testObserverRegisteredAfterSet() {
+        ManualTaskRunner taskRunner = new ManualTaskRunner();
+        mSupplier.set(TEST_STRING_1);
+        assertEquals(TEST_STRING_1, mSupplier.addObserver(mObserver, taskRunner));
+        taskRunner.runAll();
+        assertEquals(List.of(TEST_STRING_1), mSuppliedStrings);
+
+        // The initial object isn't delivered once the object changed.
+        Callback<String> otherObserver = mSuppliedStrings::add;
+        mSupplier.addObserver(otherObserver, taskRunner);
+        mSupplier.removeObserver(mObserver);
+        mSupplier.set(TEST_STRING_2);
+        taskRunner.runAll();
+        assertEquals(List.of(TEST_STRING_1, TEST_STRING_2), mSuppliedStrings);
+    }
+
+    @Test
+    public void testSetFromAnotherThread() throws InterruptedException {
+        mSupplier.addObserver(mObserver);
+
+        Thread thread =
+                new Thread(
+                        () -> {
+                            mSupplier.set(TEST_STRING_1);
+                            mSupplier.set(TEST_STRING_2);
+                        });
+        thread.start();
+        thread.join();
+        assertEquals(TEST_STRING_2, mSupplier.get());
+
+        // Observers are notified on the thread they were added from, with the latest object.
+        ShadowLooper.idleMainLooper();
+        assertEquals(List.of(TEST_STRING_2, TEST_STRING_2), mSuppliedStrings);
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static org.chromium.base.GarbageCollectionTestUtils.canBeGarbageCollected;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Unit tests for {@link ChainedTasks}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ChainedTasksTest {
+    @Test
+    public void tasksRunInOrder() throws InterruptedException {
+        ChainedTasks tasks = new ChainedTasks();
+        final int taskCount = 20;
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            final int index = i;
+            // Alternating traits are posted separately.
+            tasks.add(
+                    i % 2 == 0 ? TaskTraits.USER_BLOCKING : TaskTraits.USER_VISIBLE,
+                    () -> {
+                        synchronized (order) {
+                            order.add(index);
+                        }
+                        done.countDown();
+                    });
+        }
+        tasks.setFrameTimeBudget(60_000);
+        tasks.start(false);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        synchronized (order) {
+            for (int i = 0; i < taskCount; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void tasksWithTheSameTraitsRunInOnePostWithinTheBudget() throws InterruptedException {
+        ChainedTasks tasks = new ChainedTasks();
+        final int taskCount = 10;
+        Thread[] threads = new Thread[taskCount];
+        CountDownLatch done = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            final int index = i;
+            tasks.add(
+                    TaskTraits.USER_BLOCKING,
+                    () -> {
+                        threads[index] = Thread.currentThread();
+                        done.countDown();
+                    });
+        }
+        tasks.setFrameTimeBudget(60_000);
+        tasks.start(false);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < taskCount; i++) {
+            assertSame(threads[0], threads[i]);
+        }
+    }
+
+    @Test
+    public void cancelReleasesTheRemainingTasks() throws InterruptedException {
+        ChainedTasks tasks = new ChainedTasks();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Runnable remainingTask =
+                new Runnable() {
+                    @Override
+                    public void run() {}
+                };
+        WeakReference<Runnable> remainingTaskReference = new WeakReference<>(remainingTask);
+        tasks.add(
+                TaskTraits.USER_BLOCKING,
+                () -> {
+                    tasks.cancel();
+                    cancelled.countDown();
+                });
+        tasks.add(TaskTraits.USER_BLOCKING, remainingTask);
+        remainingTask = null;
+        tasks.start(false);
+
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        // The remaining task is released even though the chain is still referenced.
+        assertTrue(canBeGarbageCollected(remainingTaskReference));
+        tasks.cancel();
+    }
+}
@@ -0,0 +1,168 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static org.chromium.base.GarbageCollectionTestUtils.canBeGarbageCollected;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+import org.chromium.base.test.util.JniMocker;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit tests for the Java-only mode of {@link PostTask}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class JavaOnlySchedulerTest {
+    @Rule public JniMocker mMocker = new JniMocker();
+
+    private final AtomicInteger mNativeCallCount = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        mMocker.mock(TaskRunnerImplJni.TEST_HOOKS, new CountingTaskRunnerImplNatives());
+        PostTask.enableJavaOnlyScheduler();
+    }
+
+    @After
+    public void tearDown() {
+        PostTask.resetJavaOnlySchedulerForTesting();
+        assertEquals("The native scheduler should not be used", 0, mNativeCallCount.get());
+    }
+
+    @Test
+    public void sequencedTasksRunInPostingOrder() throws InterruptedException {
+        SequencedTaskRunner taskRunner =
+                PostTask.createSequencedTaskRunner(TaskTraits.USER_VISIBLE);
+        final int taskCount = 100;
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(taskCount + 1);
+
+        for (int i = 0; i < taskCount; i++) {
+            final int index = i;
+            taskRunner.postTask(
+                    () -> {
+                        synchronized (order) {
+                            order.add(index);
+                        }
+                        done.countDown();
+                    });
+        }
+        // Delayed tasks run once their delay expires, rather than waiting for native.
+        taskRunner.postDelayedTask(
+                () -> {
+                    synchronized (order) {
+                        order.add(taskCount);
+                    }
+                    done.countDown();
+                },
+                20);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        synchronized (order) {
+            for (int i = 0; i <= taskCount; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void singleThreadTaskRunnersRunTasksOnADedicatedThread() throws InterruptedException {
+        SingleThreadTaskRunner taskRunner =
+                PostTask.createSingleThreadTaskRunner(TaskTraits.USER_BLOCKING);
+        SingleThreadTaskRunner sameTraitsTaskRunner =
+                PostTask.createSingleThreadTaskRunner(TaskTraits.USER_BLOCKING);
+        SingleThreadTaskRunner mayBlockTaskRunner =
+                PostTask.createSingleThreadTaskRunner(TaskTraits.USER_BLOCKING_MAY_BLOCK);
+        SingleThreadTaskRunner[] taskRunners = {
+            taskRunner, sameTraitsTaskRunner, mayBlockTaskRunner
+        };
+        Thread[] threads = new Thread[taskRunners.length];
+        boolean[] belongsToCurrentThread = new boolean[taskRunners.length];
+        CountDownLatch done = new CountDownLatch(taskRunners.length);
+
+        for (int i = 0; i < taskRunners.length; i++) {
+            final int index = i;
+            taskRunners[i].postDelayedTask(
+                    () -> {
+                        threads[index] = Thread.currentThread();
+                        belongsToCurrentThread[index] =
+                                taskRunners[index].belongsToCurrentThread();
+                        done.countDown();
+                    },
+                    index * 10);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNotNull(threads[0]);
+        // Task runners of the same priority and may-block trait share their thread, so that tasks
+        // that may block don't delay the others.
+        assertSame(threads[0], threads[1]);
+        assertNotSame(threads[0], threads[2]);
+        for (boolean belongs : belongsToCurrentThread) assertTrue(belongs);
+        assertFalse(taskRunner.belongsToCurrentThread());
+    }
+
+    @Test
+    public void taskRunnersAreNotRetained() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        TaskRunner taskRunner = PostTask.createTaskRunner(TaskTraits.BEST_EFFORT);
+        taskRunner.postTask(done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        WeakReference<TaskRunner> taskRunnerReference = new WeakReference<>(taskRunner);
+        taskRunner = null;
+        assertTrue(canBeGarbageCollected(taskRunnerReference));
+    }
+
+    private class CountingTaskRunnerImplNatives implements TaskRunnerImpl.Natives {
+        @Override
+        public long init(int taskRunnerType, int taskTraits) {
+            mNativeCallCount.incrementAndGet();
+            return 1;
+        }
+
+        @Override
+        public void destroy(long nativeTaskRunnerAndroid) {
+            mNativeCallCount.incrementAndGet();
+        }
+
+        @Override
+        public void postDelayedTask(
+                long nativeTaskRunnerAndroid, Runnable task, long delay, String runnableClassName) {
+            mNativeCallCount.incrementAndGet();
+        }
+
+        @Override
+        public void postTasks(
+                long nativeTaskRunnerAndroid, Runnable[] tasks, String[] runnableClassNames) {
+            mNativeCallCount.incrementAndGet();
+        }
+
+        @Override
+        public boolean belongsToCurrentThread(long nativeTaskRunnerAndroid) {
+            mNativeCallCount.incrementAndGet();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Unit tests for {@link PreNativeTaskQueue}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PreNativeTaskQueueTest {
+    /** A task identifying the thread that posted it and its posting order on that thread. */
+    private static class NumberedTask implements Runnable {
+        final int mProducer;
+        final int mIndex;
+
+        NumberedTask(int producer, int index) {
+            mProducer = producer;
+            mIndex = index;
+        }
+
+        @Override
+        public void run() {}
+    }
+
+    @Test
+    public void pollReturnsTasksInPostingOrder() {
+        PreNativeTaskQueue queue = new PreNativeTaskQueue();
+        Runnable task1 = () -> {};
+        Runnable task2 = () -> {};
+
+        assertNull(queue.poll());
+        assertTrue(queue.offer(task1, 0));
+        assertTrue(queue.offer(task2, 0));
+
+        assertSame(task1, queue.poll());
+        assertSame(task2, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void closeHandsOverRemainingTasksWithDelays() {
+        PreNativeTaskQueue queue = new PreNativeTaskQueue();
+        Runnable task1 = () -> {};
+        Runnable task2 = () -> {};
+        Runnable task3 = () -> {};
+        queue.offer(task1, 10);
+        queue.offer(task2, 20);
+        queue.offer(task3, 30);
+        assertSame(task1, queue.poll());
+
+        List<Runnable> tasks = new ArrayList<>();
+        List<Long> delays = new ArrayList<>();
+        queue.close(
+                (task, delay) -> {
+                    tasks.add(task);
+                    delays.add(delay);
+                });
+
+        assertEquals(2, tasks.size());
+        assertSame(task2, tasks.get(0));
+        assertSame(task3, tasks.get(1));
+        assertEquals(20L, (long) delays.get(0));
+        assertEquals(30L, (long) delays.get(1));
+        assertFalse(queue.offer(() -> {}, 0));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void clearReturnsTaskCount() {
+        PreNativeTaskQueue queue = new PreNativeTaskQueue();
+        queue.offer(() -> {}, 0);
+        queue.offer(() -> {}, 5);
+
+        assertEquals(2, queue.clear());
+        assertNull(queue.poll());
+        assertTrue(queue.offer(() -> {}, 0));
+    }
+
+    /**
+     * Offers tasks from several threads while another thread polls them, and closes the queue
+     * mid-stream. Every accepted task must come out exactly once, in the order its thread posted
+     * it, whether it was polled or handed over by close().
+     */
+    @Test
+    public void concurrentOffersAreOrderedAcrossClose() throws InterruptedException {
+        final int producerCount = 4;
+        final int tasksPerProducer = 20_000;
+        PreNativeTaskQueue queue = new PreNativeTaskQueue();
+        int[] acceptedCounts = new int[producerCount];
+        int[] nextIndices = new int[producerCount];
+        AtomicBoolean outOfOrder = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                awaitNoInterruptedException(start);
+                                for (int i = 0; i < tasksPerProducer; i++) {
+                                    if (!queue.offer(new NumberedTask(producer, i), 0)) break;
+                                    acceptedCounts[producer]++;
+                                }
+                            });
+            producers.add(thread);
+            thread.start();
+        }
+        // Only one thread consumes at a time: the polling thread, then close() once it's joined.
+        Thread consumer =
+                new Thread(
+                        () -> {
+                            awaitNoInterruptedException(start);
+                            for (int i = 0; i < tasksPerProducer; i++) {
+                                Runnable task = queue.poll();
+                                if (task != null) {
+                                    checkOrder((NumberedTask) task, nextIndices, outOfOrder);
+                                }
+                            }
+                        });
+        consumer.start();
+
+        start.countDown();
+        consumer.join();
+        queue.close((task, delay) -> checkOrder((NumberedTask) task, nextIndices, outOfOrder));
+        for (Thread thread : producers) thread.join();
+
+        assertFalse("Tasks of a thread ran out of posting order", outOfOrder.get());
+        for (int p = 0; p < producerCount; p++) {
+            assertEquals("Accepted tasks were lost", acceptedCounts[p], nextIndices[p]);
+        }
+        assertNull(queue.poll());
+    }
+
+    private static void checkOrder(NumberedTask task, int[] nextIndices, AtomicBoolean outOfOrder) {
+        if (task.mIndex != nextIndices[task.mProducer]) outOfOrder.set(true);
+        nextIndices[task.mProducer] = task.mIndex + 1;
+    }
+
+    private static void awaitNoInterruptedException(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,368 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Tests for {@link PreNativeThreadPoolExecutor}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PreNativeThreadPoolExecutorTest {
+    private static final long NO_AGING_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long NO_ADMISSION_TIMEOUT_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_QUEUED_TASK_COUNT = 128;
+
+    private PreNativeThreadPoolExecutor mExecutor;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates an executor with a single thread, so tasks run one at a time. Tasks that may block
+     * don't get an extra thread.
+     */
+    private PreNativeThreadPoolExecutor createSingleThreadExecutor(long agingThresholdMs) {
+        return createSingleThreadExecutor(
+                MAX_QUEUED_TASK_COUNT, NO_ADMISSION_TIMEOUT_MS, agingThresholdMs);
+    }
+
+    private PreNativeThreadPoolExecutor createSingleThreadExecutor(
+            int maxQueuedTaskCount, long admissionTimeoutMs, long agingThresholdMs) {
+        mExecutor =
+                new PreNativeThreadPoolExecutor(
+                        1,
+                        maxQueuedTaskCount,
+                        admissionTimeoutMs,
+                        /* maxCompensatedTaskCount= */ 0,
+                        agingThresholdMs);
+        return mExecutor;
+    }
+
+    /** Occupies the only thread of the executor until the returned latch is released. */
+    private CountDownLatch blockExecutor() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mExecutor.execute(
+                () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                TaskTraits.USER_BLOCKING);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private void postRecordingTask(
+            @TaskTraits int traits, int id, List<Integer> order, CountDownLatch done) {
+        mExecutor.execute(
+                () -> {
+                    synchronized (order) {
+                        order.add(id);
+                    }
+                    done.countDown();
+                },
+                traits);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) array[i] = list.get(i);
+        return array;
+    }
+
+    @Test
+    @SmallTest
+    public void testHigherPriorityTasksRunFirst() throws InterruptedException {
+        createSingleThreadExecutor(NO_AGING_MS);
+        CountDownLatch release = blockExecutor();
+
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(6);
+        postRecordingTask(TaskTraits.BEST_EFFORT, 1, order, done);
+        postRecordingTask(TaskTraits.USER_VISIBLE, 2, order, done);
+        postRecordingTask(TaskTraits.USER_BLOCKING_MAY_BLOCK, 3, order, done);
+        postRecordingTask(TaskTraits.BEST_EFFORT_MAY_BLOCK, 4, order, done);
+        postRecordingTask(TaskTraits.USER_BLOCKING, 5, order, done);
+        postRecordingTask(TaskTraits.USER_VISIBLE_MAY_BLOCK, 6, order, done);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new int[] {3, 5, 2, 6, 1, 4}, toArray(order));
+    }
+
+    @Test
+    @SmallTest
+    public void testAgedTasksRunInPostingOrder() throws InterruptedException {
+        // Every lower priority task is aged as soon as it's posted.
+        createSingleThreadExecutor(0);
+        CountDownLatch release = blockExecutor();
+
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        postRecordingTask(TaskTraits.BEST_EFFORT, 1, order, done);
+        postRecordingTask(TaskTraits.USER_BLOCKING, 2, order, done);
+        postRecordingTask(TaskTraits.USER_VISIBLE, 3, order, done);
+        postRecordingTask(TaskTraits.USER_BLOCKING, 4, order, done);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new int[] {1, 2, 3, 4}, toArray(order));
+    }
+
+    @Test
+    @SmallTest
+    public void testTasksWithoutTraitsRunAsUserVisible() throws InterruptedException {
+        createSingleThreadExecutor(NO_AGING_MS);
+        CountDownLatch release = blockExecutor();
+
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        postRecordingTask(TaskTraits.BEST_EFFORT, 1, order, done);
+        mExecutor.execute(
+                () -> {
+                    synchronized (order) {
+                        order.add(2);
+                    }
+                    done.countDown();
+                });
+        postRecordingTask(TaskTraits.USER_BLOCKING, 3, order, done);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new int[] {3, 2, 1}, toArray(order));
+    }
+
+    private static class Task1 implements Runnable {
+        @Override
+        public void run() {}
+    }
+
+    private static class Task2 implements Runnable {
+        @Override
+        public void run() {}
+    }
+
+    @Test
+    @SmallTest
+    public void testAcceptsTasksPastLimit() throws InterruptedException {
+        createSingleThreadExecutor(NO_AGING_MS);
+        CountDownLatch release = blockExecutor();
+
+        // Over the limit, tasks are still accepted rather than rejected. The test runs on the UI
+        // thread, which doesn't wait for the queues to drain.
+        for (int i = 0; i < MAX_QUEUED_TASK_COUNT; i++) {
+            mExecutor.execute(new Task1(), TaskTraits.BEST_EFFORT);
+        }
+        for (int i = 0; i < 33; i++) {
+            mExecutor.execute(new Task2(), TaskTraits.USER_VISIBLE);
+        }
+        mExecutor.execute(() -> {}, TaskTraits.USER_BLOCKING);
+        assertEquals(MAX_QUEUED_TASK_COUNT + 34, mExecutor.getQueuedTaskCount());
+        String classNames = mExecutor.findClassNamesWithTooManyRunnables();
+        assertTrue(classNames.contains(Task1.class.getName()));
+        assertTrue(classNames.contains(Task2.class.getName()));
+
+        CountDownLatch done = new CountDownLatch(1);
+        mExecutor.execute(done::countDown, TaskTraits.BEST_EFFORT);
+        assertEquals(1, mExecutor.getDeferredTaskCountForTesting());
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, mExecutor.getQueuedTaskCount());
+        assertEquals("NO CLASSES FOUND", mExecutor.findClassNamesWithTooManyRunnables());
+    }
+
+    @Test
+    @SmallTest
+    public void testBestEffortTasksAreDeferredPastLimit() throws InterruptedException {
+        createSingleThreadExecutor(2, NO_ADMISSION_TIMEOUT_MS, NO_AGING_MS);
+        CountDownLatch release = blockExecutor();
+
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(5);
+        postRecordingTask(TaskTraits.BEST_EFFORT, 1, order, done);
+        postRecordingTask(TaskTraits.BEST_EFFORT_MAY_BLOCK, 2, order, done);
+        assertEquals(0, mExecutor.getDeferredTaskCountForTesting());
+        postRecordingTask(TaskTraits.BEST_EFFORT, 3, order, done);
+        postRecordingTask(TaskTraits.USER_VISIBLE, 4, order, done);
+        postRecordingTask(TaskTraits.BEST_EFFORT, 5, order, done);
+        assertEquals(2, mExecutor.getDeferredTaskCountForTesting());
+        assertEquals(5, mExecutor.getQueuedTaskCount());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new int[] {4, 1, 2, 3, 5}, toArray(order));
+        assertEquals(0, mExecutor.getDeferredTaskCountForTesting());
+    }
+
+    /** Posts a task from a new thread, which isn't the UI thread and can wait for room. */
+    private Thread postFromBackgroundThread(
+            @TaskTraits int traits, int id, List<Integer> order, CountDownLatch done) {
+        Thread thread = new Thread(() -> postRecordingTask(traits, id, order, done));
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    @SmallTest
+    public void testPostersWaitForRoomPastLimit() throws InterruptedException {
+        createSingleThreadExecutor(1, NO_ADMISSION_TIMEOUT_MS, NO_AGING_MS);
+        CountDownLatch release = blockExecutor();
+
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        postRecordingTask(TaskTraits.USER_VISIBLE, 1, order, done);
+        Thread poster = postFromBackgroundThread(TaskTraits.USER_BLOCKING, 2, order, done);
+        long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mExecutor.getWaitingPosterCountForTesting() == 0) {
+            assertTrue(System.nanoTime() < deadlineNs);
+            Thread.sleep(1);
+        }
+        assertEquals(1, mExecutor.getQueuedTaskCount());
+        release.countDown();
+
+        poster.join(5000);
+        assertFalse(poster.isAlive());
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // The waiting task was only queued once the first one ran.
+        assertArrayEquals(new int[] {1, 2}, toArray(order));
+    }
+
+    @Test
+    @SmallTest
+    public void testPostersAreAdmittedAfterTimeout() throws InterruptedException {
+        createSingleThreadExecutor(1, /* admissionTimeoutMs= */ 1, NO_AGING_MS);
+        CountDownLatch release = blockExecutor();
+
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        postRecordingTask(TaskTraits.USER_VISIBLE, 1, order, done);
+        Thread poster = postFromBackgroundThread(TaskTraits.USER_BLOCKING, 2, order, done);
+        poster.join(5000);
+        assertFalse(poster.isAlive());
+        assertEquals(2, mExecutor.getQueuedTaskCount());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new int[] {2, 1}, toArray(order));
+    }
+
+    @Test
+    @SmallTest
+    public void testMayBlockTasksDontStallOtherTasks() throws InterruptedException {
+        mExecutor =
+                new PreNativeThreadPoolExecutor(
+                        1,
+                        MAX_QUEUED_TASK_COUNT,
+                        NO_ADMISSION_TIMEOUT_MS,
+                        /* maxCompensatedTaskCount= */ 1,
+                        NO_AGING_MS);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mExecutor.execute(
+                () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                TaskTraits.USER_VISIBLE_MAY_BLOCK);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The pool adds a thread while the only one is blocked.
+        CountDownLatch done = new CountDownLatch(1);
+        mExecutor.execute(done::countDown, TaskTraits.USER_VISIBLE);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    /**
+     * Measures how long tasks of each priority wait in the queue under a synthetic startup load:
+     * bursts of mostly BEST_EFFORT tasks posted to a single busy thread.
+     */
+    @Test
+    @SmallTest
+    public void testQueueingLatencyUnderStartupLoad() throws InterruptedException {
+        createSingleThreadExecutor(NO_AGING_MS);
+        final int taskCount = 300;
+        final @TaskTraits int[] traitsMix = {
+            TaskTraits.BEST_EFFORT,
+            TaskTraits.BEST_EFFORT_MAY_BLOCK,
+            TaskTraits.BEST_EFFORT,
+            TaskTraits.USER_VISIBLE,
+            TaskTraits.USER_VISIBLE_MAY_BLOCK,
+            TaskTraits.USER_BLOCKING
+        };
+        long[] totalLatencyNs = new long[TaskTraits.THREAD_POOL_TRAITS_END + 1];
+        int[] counts = new int[TaskTraits.THREAD_POOL_TRAITS_END + 1];
+        CountDownLatch done = new CountDownLatch(taskCount);
+
+        CountDownLatch release = blockExecutor();
+        for (int i = 0; i < taskCount; i++) {
+            final @TaskTraits int traits = traitsMix[i % traitsMix.length];
+            final long postTimeNs = System.nanoTime();
+            mExecutor.execute(
+                    () -> {
+                        long latencyNs = System.nanoTime() - postTimeNs;
+                        // Only ever accessed from the single thread of the executor.
+                        totalLatencyNs[traits] += latencyNs;
+                        counts[traits]++;
+                        // Simulates a short task.
+                        long endNs = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(20);
+                        while (System.nanoTime() < endNs) {}
+                        done.countDown();
+                    },
+                    traits);
+        }
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        int bestEffortCount =
+                counts[TaskTraits.BEST_EFFORT] + counts[TaskTraits.BEST_EFFORT_MAY_BLOCK];
+        int userVisibleCount =
+                counts[TaskTraits.USER_VISIBLE] + counts[TaskTraits.USER_VISIBLE_MAY_BLOCK];
+        assertEquals(taskCount / 2, bestEffortCount);
+        assertEquals(taskCount / 3, userVisibleCount);
+        assertEquals(taskCount / 6, counts[TaskTraits.USER_BLOCKING]);
+
+        long bestEffortLatencyNs =
+                (totalLatencyNs[TaskTraits.BEST_EFFORT]
+                                + totalLatencyNs[TaskTraits.BEST_EFFORT_MAY_BLOCK])
+                        / bestEffortCount;
+        long userVisibleLatencyNs =
+                (totalLatencyNs[TaskTraits.USER_VISIBLE]
+                                + totalLatencyNs[TaskTraits.USER_VISIBLE_MAY_BLOCK])
+                        / userVisibleCount;
+        long userBlockingLatencyNs =
+                totalLatencyNs[TaskTraits.USER_BLOCKING] / counts[TaskTraits.USER_BLOCKING];
+        assertTrue(userBlockingLatencyNs < userVisibleLatencyNs);
+        assertTrue(userVisibleLatencyNs < bestEffortLatencyNs);
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.task.test.ManualTaskRunner;
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Unit tests for {@link PreNativeTimerWheel}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PreNativeTimerWheelTest {
+    /** Records the time tasks were posted at by the timer wheel. */
+    private static class RecordingTaskRunner extends ManualTaskRunner {
+        final List<Long> mPostTimesNs = new ArrayList<>();
+
+        @Override
+        public synchronized void postTask(Runnable task) {
+            mPostTimesNs.add(System.nanoTime());
+            super.postTask(task);
+        }
+
+        void awaitTasksPosted(int taskCount) throws InterruptedException {
+            assertTrue(waitForPostCount(taskCount, 10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void tasksArePostedInDueOrderOnceTheirDelayExpires() throws InterruptedException {
+        // The longest delay takes several turns of the wheel.
+        PreNativeTimerWheel wheel = new PreNativeTimerWheel(1, 8);
+        RecordingTaskRunner taskRunner = new RecordingTaskRunner();
+        Runnable task30 = () -> {};
+        Runnable task10 = () -> {};
+        Runnable task20 = () -> {};
+        Runnable task0 = () -> {};
+
+        long startNs = System.nanoTime();
+        wheel.schedule(taskRunner, task30, 30);
+        wheel.schedule(taskRunner, task10, 10);
+        wheel.schedule(taskRunner, task20, 20);
+        wheel.schedule(taskRunner, task0, 0);
+        taskRunner.awaitTasksPosted(4);
+
+        List<Runnable> tasks = taskRunner.getPendingTasks();
+        assertSame(task0, tasks.get(0));
+        assertSame(task10, tasks.get(1));
+        assertSame(task20, tasks.get(2));
+        assertSame(task30, tasks.get(3));
+        synchronized (taskRunner) {
+            long[] delaysMs = {0, 10, 20, 30};
+            for (int i = 0; i < delaysMs.length; i++) {
+                long elapsedNs = taskRunner.mPostTimesNs.get(i) - startNs;
+                assertTrue(
+                        "Task posted before its delay expired",
+                        elapsedNs >= TimeUnit.MILLISECONDS.toNanos(delaysMs[i]));
+            }
+        }
+        assertEquals(0, wheel.getTimerCountForTesting());
+    }
+
+    @Test
+    public void tasksWithTheSameDelayArePostedInPostingOrder() throws InterruptedException {
+        PreNativeTimerWheel wheel = new PreNativeTimerWheel(1, 8);
+        RecordingTaskRunner taskRunner = new RecordingTaskRunner();
+        Runnable task1 = () -> {};
+        Runnable task2 = () -> {};
+        Runnable task3 = () -> {};
+
+        wheel.schedule(taskRunner, task1, 5);
+        wheel.schedule(taskRunner, task2, 5);
+        wheel.schedule(taskRunner, task3, 5);
+        taskRunner.awaitTasksPosted(3);
+
+        List<Runnable> tasks = taskRunner.getPendingTasks();
+        assertSame(task1, tasks.get(0));
+        assertSame(task2, tasks.get(1));
+        assertSame(task3, tasks.get(2));
+    }
+
+    @Test
+    public void ticksWithoutTimersAreSkipped() throws InterruptedException {
+        // The delays span 200 ticks and several turns of the wheel.
+        PreNativeTimerWheel wheel = new PreNativeTimerWheel(1, 8);
+        RecordingTaskRunner taskRunner = new RecordingTaskRunner();
+
+        wheel.schedule(taskRunner, () -> {}, 100);
+        wheel.schedule(taskRunner, () -> {}, 200);
+        taskRunner.awaitTasksPosted(2);
+
+        // Once per timer, with some slack for spurious wake-ups.
+        assertTrue(wheel.getWakeUpCountForTesting() <= 10);
+    }
+
+    @Test
+    public void cancelledTimersKeepTheirRemainingDelay() {
+        PreNativeTimerWheel wheel = new PreNativeTimerWheel(10, 512);
+        ManualTaskRunner taskRunner = new ManualTaskRunner();
+        ManualTaskRunner otherTaskRunner = new ManualTaskRunner();
+        Runnable task1 = () -> {};
+        Runnable task2 = () -> {};
+
+        wheel.schedule(taskRunner, task2, 60_000);
+        wheel.schedule(otherTaskRunner, () -> {}, 60_000);
+        wheel.schedule(taskRunner, task1, 30_000);
+
+        List<Runnable> tasks = new ArrayList<>();
+        List<Long> delays = new ArrayList<>();
+        int cancelledCount =
+                wheel.cancelTimers(
+                        taskRunner,
+                        (task, delay) -> {
+                            tasks.add(task);
+                            delays.add(delay);
+                        });
+
+        assertEquals(2, cancelledCount);
+        assertSame(task1, tasks.get(0));
+        assertSame(task2, tasks.get(1));
+        assertTrue(delays.get(0) <= 30_000 && delays.get(0) > 20_000);
+        assertTrue(delays.get(1) <= 60_000 && delays.get(1) > 50_000);
+        assertEquals(1, wheel.getTimerCountForTesting());
+
+        assertEquals(1, wheel.cancelTimers(otherTaskRunner, (task, delay) -> {}));
+        assertEquals(0, wheel.getTimerCountForTesting());
+        assertFalse(taskRunner.hasPendingTasks());
+    }
+}
@@ -15,6 +15,8 @@ import org.robolectric.annotation.Config;
 import org.chromium.base.test.BaseRobolectricTestRunner;
 import org.chromium.base.test.util.JniMocker;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
@@ -129,6 +131,134 @@ public class SequencedTaskRunnerTaskMigrationTest {
                 "Task should run on the native pool", fakeTaskRunnerNatives.hasReceivedTasks());
     }
 
+    @Test
+    public void delayedTaskRunsBeforeNativeInit() {
+        FakeTaskRunnerImplNatives fakeTaskRunnerNatives =
+                new FakeTaskRunnerImplNatives(mConcurrentExecutor);
+        mMocker.mock(TaskRunnerImplJni.TEST_HOOKS, fakeTaskRunnerNatives);
+        SequencedTaskRunnerImpl taskRunner = new SequencedTaskRunnerImpl(TaskTraits.USER_VISIBLE);
+
+        AwaitableTask delayedTask = new AwaitableTask();
+        taskRunner.postDelayedTask(delayedTask, 20);
+
+        delayedTask.awaitTaskStarted();
+        Assert.assertFalse(
+                "Delayed task should run on the pre-native pool",
+                fakeTaskRunnerNatives.hasReceivedTasks());
+    }
+
+    @Test
+    public void pendingDelayedTaskMigratesWithRemainingDelay() {
+        FakeTaskRunnerImplNatives fakeTaskRunnerNatives =
+                new FakeTaskRunnerImplNatives(runnable -> {});
+        mMocker.mock(TaskRunnerImplJni.TEST_HOOKS, fakeTaskRunnerNatives);
+        SequencedTaskRunnerImpl taskRunner = new SequencedTaskRunnerImpl(TaskTraits.USER_VISIBLE);
+
+        taskRunner.postDelayedTask(() -> {}, 60_000);
+        taskRunner.initNativeTaskRunner();
+
+        Assert.assertTrue(
+                "Pending delayed task should be posted to the native runner",
+                fakeTaskRunnerNatives.hasReceivedTasks());
+        long delay = fakeTaskRunnerNatives.getLastDelay();
+        Assert.assertTrue("Unexpected remaining delay " + delay, delay > 50_000 && delay <= 60_000);
+    }
+
+    @Test
+    public void postTasksRunsTasksInOrderBeforeNativeInit() {
+        FakeTaskRunnerImplNatives fakeTaskRunnerNatives =
+                new FakeTaskRunnerImplNatives(mConcurrentExecutor);
+        mMocker.mock(TaskRunnerImplJni.TEST_HOOKS, fakeTaskRunnerNatives);
+        SequencedTaskRunnerImpl taskRunner = new SequencedTaskRunnerImpl(TaskTraits.USER_VISIBLE);
+        List<Integer> order = new ArrayList<>();
+        AwaitableTask lastTask = new AwaitableTask();
+
+        taskRunner.postTasks(Arrays.asList(() -> order.add(1), () -> order.add(2), lastTask));
+        lastTask.awaitTaskStarted();
+
+        Assert.assertEquals(Arrays.asList(1, 2), order);
+        Assert.assertFalse(fakeTaskRunnerNatives.hasReceivedTasks());
+    }
+
+    @Test
+    public void postTasksPostsToNativeInOneCall() {
+        FakeTaskRunnerImplNatives fakeTaskRunnerNatives =
+                new FakeTaskRunnerImplNatives(mConcurrentExecutor);
+        mMocker.mock(TaskRunnerImplJni.TEST_HOOKS, fakeTaskRunnerNatives);
+        SequencedTaskRunnerImpl taskRunner = new SequencedTaskRunnerImpl(TaskTraits.USER_VISIBLE);
+        taskRunner.initNativeTaskRunner();
+        List<Integer> order = new ArrayList<>();
+        AwaitableTask lastTask = new AwaitableTask();
+
+        taskRunner.postTasks(Arrays.asList(() -> order.add(1), () -> order.add(2), lastTask));
+        lastTask.awaitTaskStarted();
+
+        Assert.assertEquals(Arrays.asList(1, 2), order);
+        Assert.assertEquals(
+                "Tasks should be posted to native in a single call",
+                1,
+                fakeTaskRunnerNatives.getReceivedBatchCount());
+    }
+
+    /**
+     * Posts tasks from several threads while native initializes. Every task must run exactly once,
+     * never concurrently with another task of the runner, and in the order its thread posted it.
+     */
+    @Test
+    public void tasksPostedConcurrentlyKeepOrderAcrossMigration() throws Exception {
+        ExecutorService nativeExecutor = Executors.newSingleThreadExecutor();
+        FakeTaskRunnerImplNatives fakeTaskRunnerNatives =
+                new FakeTaskRunnerImplNatives(nativeExecutor);
+        mMocker.mock(TaskRunnerImplJni.TEST_HOOKS, fakeTaskRunnerNatives);
+        SequencedTaskRunnerImpl taskRunner = new SequencedTaskRunnerImpl(TaskTraits.USER_VISIBLE);
+
+        final int producerCount = 4;
+        final int tasksPerProducer = 2000;
+        // Only accessed by tasks of the sequence.
+        int[] nextIndices = new int[producerCount];
+        AtomicInteger runningTasks = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch firstTaskRan = new CountDownLatch(1);
+        CountDownLatch allTasksRan = new CountDownLatch(producerCount * tasksPerProducer);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                for (int i = 0; i < tasksPerProducer; i++) {
+                                    final int index = i;
+                                    taskRunner.postTask(
+                                            () -> {
+                                                if (runningTasks.getAndIncrement() != 0
+                                                        || nextIndices[producer] != index) {
+                                                    failures.incrementAndGet();
+                                                }
+                                                nextIndices[producer] = index + 1;
+                                                runningTasks.decrementAndGet();
+                                                firstTaskRan.countDown();
+                                                allTasksRan.countDown();
+                                            });
+                                }
+                            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        // Migrate while the producers are still posting.
+        awaitNoInterruptedException(firstTaskRan);
+        taskRunner.initNativeTaskRunner();
+        for (Thread thread : producers) thread.join();
+        awaitNoInterruptedException(allTasksRan);
+        nativeExecutor.shutdown();
+
+        Assert.assertEquals("Tasks ran concurrently or out of order", 0, failures.get());
+        Assert.assertTrue(
+                "Tasks should run on the native pool after migration",
+                fakeTaskRunnerNatives.hasReceivedTasks());
+    }
+
     private static void awaitNoInterruptedException(CountDownLatch taskLatch) {
         try {
             // Generous timeout prevents test from being stuck forever. Actual delay is going to
@@ -170,7 +300,9 @@ public class SequencedTaskRunnerTaskMigrationTest {
 
     private static class FakeTaskRunnerImplNatives implements TaskRunnerImpl.Natives {
         private final AtomicInteger mReceivedTasksCount = new AtomicInteger();
+        private final AtomicInteger mReceivedBatchCount = new AtomicInteger();
         private final Executor mExecutor;
+        private volatile long mLastDelay;
 
         public FakeTaskRunnerImplNatives(Executor executor) {
             mExecutor = executor;
@@ -188,16 +320,37 @@ public class SequencedTaskRunnerTaskMigrationTest {
         public void postDelayedTask(
                 long nativeTaskRunnerAndroid, Runnable task, long delay, String runnableClassName) {
             mReceivedTasksCount.incrementAndGet();
+            mLastDelay = delay;
             mExecutor.execute(task);
         }
 
+        @Override
+        public void postTasks(
+                long nativeTaskRunnerAndroid, Runnable[] tasks, String[] runnableClassNames) {
+            mReceivedBatchCount.incrementAndGet();
+            mReceivedTasksCount.addAndGet(tasks.length);
+            // Run the batch as a single task, so it stays sequenced on a concurrent executor.
+            mExecutor.execute(
+                    () -> {
+                        for (Runnable task : tasks) task.run();
+                    });
+        }
+
         @Override
         public boolean belongsToCurrentThread(long nativeTaskRunnerAndroid) {
             return false;
         }
 
+        public int getReceivedBatchCount() {
+            return mReceivedBatchCount.get();
+        }
+
         public boolean hasReceivedTasks() {
             return mReceivedTasksCount.get() > 0;
         }
+
+        public long getLastDelay() {
+            return mLastDelay;
+        }
     }
 }
@@ -0,0 +1,139 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit tests for {@link SerialExecutor}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SerialExecutorTest {
+    /** Queues the dispatches of the SerialExecutor, which run when the test asks for it. */
+    private static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> mDispatches = new ArrayDeque<>();
+        int mDispatchCount;
+
+        @Override
+        public void execute(Runnable runnable) {
+            mDispatches.add(runnable);
+            mDispatchCount++;
+        }
+
+        void runAll() {
+            while (!mDispatches.isEmpty()) {
+                try {
+                    mDispatches.poll().run();
+                } catch (RuntimeException e) {
+                    // Thrown by a task, the pool would drop it the same way.
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tasksRunInBatchesOfTheTaskBudget() {
+        ManualExecutor pool = new ManualExecutor();
+        SerialExecutor executor = new SerialExecutor(pool, 10, 60_000);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            final int index = i;
+            executor.execute(() -> order.add(index));
+        }
+        assertEquals(1, pool.mDispatchCount);
+
+        pool.runAll();
+        assertEquals(25, order.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        // Batches of 10, 10 and 5 tasks.
+        assertEquals(3, pool.mDispatchCount);
+
+        // Once drained, the next task is dispatched again.
+        executor.execute(() -> order.add(25));
+        assertEquals(4, pool.mDispatchCount);
+        pool.runAll();
+        assertEquals(26, order.size());
+    }
+
+    @Test
+    public void tasksRunAfterATaskThrows() {
+        ManualExecutor pool = new ManualExecutor();
+        SerialExecutor executor = new SerialExecutor(pool, 10, 60_000);
+        List<Integer> order = new ArrayList<>();
+        executor.execute(() -> order.add(0));
+        executor.execute(
+                () -> {
+                    throw new RuntimeException();
+                });
+        executor.execute(() -> order.add(1));
+
+        pool.runAll();
+        assertEquals(2, order.size());
+        assertEquals(1, (int) order.get(1));
+    }
+
+    @Test
+    public void tasksRunSeriallyWhenSubmittedConcurrently() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        SerialExecutor executor = new SerialExecutor(pool, 4, 1);
+        final int threadCount = 4;
+        final int taskCountPerThread = 500;
+        AtomicInteger runningCount = new AtomicInteger();
+        AtomicInteger overlapCount = new AtomicInteger();
+        int[] lastIndexByThread = new int[threadCount];
+        AtomicInteger outOfOrderCount = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threadCount * taskCountPerThread);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            lastIndexByThread[thread] = -1;
+            threads.add(
+                    new Thread(
+                            () -> {
+                                for (int i = 0; i < taskCountPerThread; i++) {
+                                    final int index = i;
+                                    executor.execute(
+                                            () -> {
+                                                if (runningCount.incrementAndGet() != 1) {
+                                                    overlapCount.incrementAndGet();
+                                                }
+                                                // Only ever accessed by one task at a time.
+                                                if (lastIndexByThread[thread] != index - 1) {
+                                                    outOfOrderCount.incrementAndGet();
+                                                }
+                                                lastIndexByThread[thread] = index;
+                                                runningCount.decrementAndGet();
+                                                done.countDown();
+                                            });
+                                }
+                            }));
+        }
+        for (Thread thread : threads) thread.start();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(0, overlapCount.get());
+        assertEquals(0, outOfOrderCount.get());
+    }
+}
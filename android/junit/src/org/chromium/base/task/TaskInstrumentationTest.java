@@ -0,0 +1,139 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+import org.chromium.base.test.util.HistogramWatcher;
+
+import java.util.List;
+import java.util.Map;
+
+/** Unit tests for {@link TaskInstrumentation}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TaskInstrumentationTest {
+    private static class SlowTask implements Runnable {
+        private final long mDurationMs;
+
+        SlowTask(long durationMs) {
+            mDurationMs = durationMs;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(mDurationMs);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class OtherTask implements Runnable {
+        @Override
+        public void run() {}
+    }
+
+    @After
+    public void tearDown() {
+        TaskInstrumentation.resetForTesting();
+    }
+
+    @Test
+    public void tasksAreNotWrappedWhileDisabled() {
+        Runnable task = new OtherTask();
+        assertSame(
+                task,
+                TaskInstrumentation.wrap(
+                        task, TaskInstrumentation.QUEUE_PRE_NATIVE, TaskTraits.USER_VISIBLE));
+        assertTrue(TaskInstrumentation.getPostCountsByClassName().isEmpty());
+    }
+
+    @Test
+    public void runningTasksRecordsHistogramsByQueueAndTraits() {
+        TaskInstrumentation.setEnabled(true);
+        Runnable task = new OtherTask();
+        Runnable wrapped =
+                TaskInstrumentation.wrap(
+                        task, TaskInstrumentation.QUEUE_PRE_NATIVE, TaskTraits.USER_BLOCKING);
+        assertNotSame(task, wrapped);
+        assertSame(task, TaskInstrumentation.unwrap(wrapped));
+
+        try (HistogramWatcher watcher =
+                HistogramWatcher.newBuilder()
+                        .expectAnyRecord(
+                                "Android.TaskScheduler.PreNative.QueueingDelay.UserBlocking")
+                        .expectAnyRecord("Android.TaskScheduler.PreNative.RunTime.UserBlocking")
+                        .expectNoRecords(
+                                "Android.TaskScheduler.SerialExecutor.RunTime.UserBlocking")
+                        .build()) {
+            wrapped.run();
+        }
+    }
+
+    @Test
+    public void postsAreCountedByClass() {
+        TaskInstrumentation.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            TaskInstrumentation.wrap(
+                    new OtherTask(), TaskInstrumentation.QUEUE_PRE_NATIVE, TaskTraits.BEST_EFFORT);
+        }
+        TaskInstrumentation.wrap(
+                new SlowTask(0),
+                TaskInstrumentation.QUEUE_SERIAL_EXECUTOR,
+                TaskTraits.BEST_EFFORT_MAY_BLOCK);
+
+        Map<String, Integer> postCounts = TaskInstrumentation.getPostCountsByClassName();
+        assertEquals(2, postCounts.size());
+        assertEquals(3, (int) postCounts.get(OtherTask.class.getName()));
+        assertEquals(1, (int) postCounts.get(SlowTask.class.getName()));
+    }
+
+    @Test
+    public void slowestRecentTasksAreReturnedSlowestFirst() {
+        TaskInstrumentation.setEnabled(true);
+        long[] durationsMs = {10, 40, 0, 20};
+        for (long durationMs : durationsMs) {
+            TaskInstrumentation.wrap(
+                            new SlowTask(durationMs),
+                            TaskInstrumentation.QUEUE_SERIAL_EXECUTOR,
+                            TaskTraits.BEST_EFFORT_MAY_BLOCK)
+                    .run();
+        }
+
+        List<TaskInstrumentation.TaskRecord> records =
+                TaskInstrumentation.getSlowestRecentTasks(2);
+        assertEquals(2, records.size());
+        assertTrue(records.get(0).runTimeMs >= 40);
+        assertTrue(records.get(1).runTimeMs >= 20);
+        assertTrue(records.get(0).runTimeMs >= records.get(1).runTimeMs);
+        assertEquals(SlowTask.class.getName(), records.get(0).className);
+        assertEquals(TaskTraits.BEST_EFFORT_MAY_BLOCK, records.get(0).taskTraits);
+
+        // Only the last RECENT_TASK_COUNT tasks are kept.
+        for (int i = 0; i < TaskInstrumentation.RECENT_TASK_COUNT; i++) {
+            TaskInstrumentation.wrap(
+                            new OtherTask(),
+                            TaskInstrumentation.QUEUE_PRE_NATIVE,
+                            TaskTraits.USER_VISIBLE)
+                    .run();
+        }
+        records = TaskInstrumentation.getSlowestRecentTasks(Integer.MAX_VALUE);
+        assertEquals(TaskInstrumentation.RECENT_TASK_COUNT, records.size());
+        for (TaskInstrumentation.TaskRecord record : records) {
+            assertEquals(OtherTask.class.getName(), record.className);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import org.chromium.base.test.BaseRobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit tests for {@link VirtualThreadExecutorProvider}. */
+@RunWith(BaseRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class VirtualThreadExecutorProviderTest {
+    private ExecutorService mThreadPerTaskExecutor;
+
+    @After
+    public void tearDown() {
+        PostTask.setThreadPoolExecutorProvider(null);
+        if (mThreadPerTaskExecutor != null) mThreadPerTaskExecutor.shutdownNow();
+    }
+
+    @Test
+    public void onlyMayBlockTasksAreProvidedAnExecutor() {
+        VirtualThreadExecutorProvider provider =
+                new VirtualThreadExecutorProvider(Runnable::run, 1);
+        assertNotNull(provider.getExecutor(TaskTraits.BEST_EFFORT_MAY_BLOCK));
+        assertNotNull(provider.getExecutor(TaskTraits.USER_VISIBLE_MAY_BLOCK));
+        assertNotNull(provider.getExecutor(TaskTraits.USER_BLOCKING_MAY_BLOCK));
+        assertNull(provider.getExecutor(TaskTraits.BEST_EFFORT));
+        assertNull(provider.getExecutor(TaskTraits.USER_BLOCKING));
+        assertNull(provider.getExecutor(TaskTraits.UI_USER_BLOCKING));
+    }
+
+    @Test
+    public void runningTasksAreLimited() throws InterruptedException {
+        // Stands in for virtual threads, which may not be supported by the test JVM.
+        mThreadPerTaskExecutor = Executors.newCachedThreadPool();
+        final int maxRunningTasks = 2;
+        final int taskCount = 10;
+        VirtualThreadExecutorProvider provider =
+                new VirtualThreadExecutorProvider(mThreadPerTaskExecutor, maxRunningTasks);
+        AtomicInteger runningCount = new AtomicInteger();
+        AtomicInteger maxRunningCount = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(taskCount);
+
+        for (int i = 0; i < taskCount; i++) {
+            provider.getExecutor(TaskTraits.BEST_EFFORT_MAY_BLOCK)
+                    .execute(
+                            () -> {
+                                int running = runningCount.incrementAndGet();
+                                maxRunningCount.accumulateAndGet(running, Math::max);
+                                try {
+                                    // Blocks, as I/O would.
+                                    Thread.sleep(10);
+                                } catch (InterruptedException e) {
+                                    throw new RuntimeException(e);
+                                }
+                                runningCount.decrementAndGet();
+                                done.countDown();
+                            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunningCount.get() <= maxRunningTasks);
+    }
+
+    @Test
+    public void mayBlockTasksRunOnVirtualThreadsWhenSupported() throws InterruptedException {
+        VirtualThreadExecutorProvider provider = VirtualThreadExecutorProvider.createIfSupported(4);
+        Assume.assumeNotNull(provider);
+        PostTask.setThreadPoolExecutorProvider(provider);
+        CountDownLatch done = new CountDownLatch(1);
+        String[] threadDescriptions = new String[1];
+
+        PostTask.postTask(
+                TaskTraits.USER_VISIBLE_MAY_BLOCK,
+                () -> {
+                    threadDescriptions[0] = Thread.currentThread().toString();
+                    done.countDown();
+                });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(threadDescriptions[0], threadDescriptions[0].startsWith("VirtualThread"));
+    }
+}
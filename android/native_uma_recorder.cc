@@ -142,6 +142,42 @@ HistogramBase* SparseHistogram(JNIEnv* env,
   return histogram;
 }
 
+// Mirrors CachingUmaRecorder.Histogram.Type in Java.
+enum class CachedHistogramType : jint {
+  kBoolean = 1,
+  kExponential = 2,
+  kLinear = 3,
+  kSparse = 4,
+};
+
+HistogramBase* HistogramOfType(JNIEnv* env,
+                               jstring j_histogram_name,
+                               jlong j_histogram_hint,
+                               jint j_type,
+                               jint j_min,
+                               jint j_max,
+                               jint j_num_buckets) {
+  HistogramBase* histogram = nullptr;
+  switch (static_cast<CachedHistogramType>(j_type)) {
+    case CachedHistogramType::kBoolean:
+      histogram = BooleanHistogram(env, j_histogram_name, j_histogram_hint);
+      break;
+    case CachedHistogramType::kExponential:
+      histogram = ExponentialHistogram(env, j_histogram_name, j_histogram_hint,
+                                       j_min, j_max, j_num_buckets);
+      break;
+    case CachedHistogramType::kLinear:
+      histogram = LinearHistogram(env, j_histogram_name, j_histogram_hint,
+                                  j_min, j_max, j_num_buckets);
+      break;
+    case CachedHistogramType::kSparse:
+      histogram = SparseHistogram(env, j_histogram_name, j_histogram_hint);
+      break;
+  }
+  CHECK(histogram) << "Unknown histogram type " << j_type;
+  return histogram;
+}
+
 struct ActionCallbackWrapper {
   base::ActionCallback action_callback;
 };
@@ -208,6 +244,55 @@ jlong JNI_NativeUmaRecorder_RecordSparseHistogram(
   return reinterpret_cast<jlong>(histogram);
 }
 
+jlong JNI_NativeUmaRecorder_RecordHistogramSamples(
+    JNIEnv* env,
+    const JavaParamRef<jstring>& j_histogram_name,
+    jlong j_histogram_hint,
+    jint j_type,
+    jint j_min,
+    jint j_max,
+    jint j_num_buckets,
+    const JavaParamRef<jintArray>& j_samples,
+    jint j_sample_count) {
+  HistogramBase* histogram =
+      HistogramOfType(env, j_histogram_name, j_histogram_hint, j_type, j_min,
+                      j_max, j_num_buckets);
+
+  std::vector<int> samples;
+  JavaIntArrayToIntVector(env, j_samples, &samples);
+  CHECK_LE(static_cast<size_t>(j_sample_count), samples.size());
+  samples.resize(static_cast<size_t>(j_sample_count));
+  for (int sample : samples) {
+    histogram->Add(sample);
+  }
+  return reinterpret_cast<jlong>(histogram);
+}
+
+jlong JNI_NativeUmaRecorder_RecordHistogramCounts(
+    JNIEnv* env,
+    const JavaParamRef<jstring>& j_histogram_name,
+    jlong j_histogram_hint,
+    jint j_type,
+    jint j_min,
+    jint j_max,
+    jint j_num_buckets,
+    const JavaParamRef<jintArray>& j_samples,
+    const JavaParamRef<jintArray>& j_counts) {
+  HistogramBase* histogram =
+      HistogramOfType(env, j_histogram_name, j_histogram_hint, j_type, j_min,
+                      j_max, j_num_buckets);
+
+  std::vector<int> samples;
+  JavaIntArrayToIntVector(env, j_samples, &samples);
+  std::vector<int> counts;
+  JavaIntArrayToIntVector(env, j_counts, &counts);
+  CHECK_EQ(samples.size(), counts.size());
+  for (size_t i = 0; i < samples.size(); ++i) {
+    histogram->AddCount(samples[i], counts[i]);
+  }
+  return reinterpret_cast<jlong>(histogram);
+}
+
 void JNI_NativeUmaRecorder_RecordUserAction(
     JNIEnv* env,
     const JavaParamRef<jstring>& j_user_action_name,
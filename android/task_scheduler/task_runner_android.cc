@@ -12,6 +12,7 @@
 #include "base/android_runtime_unchecked_jni_headers/Runnable_jni.h"
 #include "base/base_jni/TaskRunnerImpl_jni.h"
 #include "base/check.h"
+#include "base/check_op.h"
 #include "base/compiler_specific.h"
 #include "base/functional/bind.h"
 #include "base/no_destructor.h"
@@ -95,6 +96,37 @@ void TaskRunnerAndroid::PostDelayedTask(
       Milliseconds(delay));
 }
 
+void TaskRunnerAndroid::PostTasks(
+    JNIEnv* env,
+    const base::android::JavaRef<jobjectArray>& tasks,
+    const base::android::JavaRef<jobjectArray>& runnable_class_names) {
+  const jsize task_count = env->GetArrayLength(tasks.obj());
+  DCHECK_EQ(task_count, env->GetArrayLength(runnable_class_names.obj()));
+  // Java passes the same string instance for runnables of the same class, so
+  // a burst of tasks of the same class converts the class name once.
+  base::android::ScopedJavaLocalRef<jstring> converted_class_name;
+  std::string class_name;
+  for (jsize i = 0; i < task_count; ++i) {
+    // Scoped so that local references don't pile up over large batches.
+    base::android::ScopedJavaLocalRef<jobject> task(
+        env, env->GetObjectArrayElement(tasks.obj(), i));
+    base::android::ScopedJavaLocalRef<jstring> runnable_class_name(
+        env, static_cast<jstring>(
+                 env->GetObjectArrayElement(runnable_class_names.obj(), i)));
+    if (!env->IsSameObject(runnable_class_name.obj(),
+                           converted_class_name.obj())) {
+      class_name =
+          android::ConvertJavaStringToUTF8(env, runnable_class_name.obj());
+      converted_class_name = std::move(runnable_class_name);
+    }
+    task_runner_->PostTask(
+        FROM_HERE,
+        base::BindOnce(&RunJavaTask,
+                       base::android::ScopedJavaGlobalRef<jobject>(task),
+                       class_name));
+  }
+}
+
 bool TaskRunnerAndroid::BelongsToCurrentThread(JNIEnv* env) {
   // TODO(crbug.com/1026641): Move BelongsToCurrentThread from TaskRunnerImpl to
   // SequencedTaskRunnerImpl on the Java side too.
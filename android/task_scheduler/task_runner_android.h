@@ -37,6 +37,11 @@ class BASE_EXPORT TaskRunnerAndroid {
                        jlong delay,
                        jstring runnable_class_name);
 
+  void PostTasks(
+      JNIEnv* env,
+      const base::android::JavaRef<jobjectArray>& tasks,
+      const base::android::JavaRef<jobjectArray>& runnable_class_names);
+
   bool BelongsToCurrentThread(JNIEnv* env);
 
   static std::unique_ptr<TaskRunnerAndroid> Create(jint task_runner_type,
@@ -0,0 +1,86 @@
+// Copyright 2026 The Chromium Authors
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.chromium.base.task.test;
+
+import org.chromium.base.task.TaskRunner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TaskRunner} that queues the posted tasks until the test runs them. Tasks can be posted
+ * from any thread, and run on the thread calling {@link #runAll()}.
+ */
+public class ManualTaskRunner implements TaskRunner {
+    private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+    private int mPostCount;
+
+    @Override
+    public void postTask(Runnable task) {
+        synchronized (mTasks) {
+            mTasks.add(task);
+            mPostCount++;
+            mTasks.notifyAll();
+        }
+    }
+
+    /** Not supported, as the test decides when tasks run. */
+    @Override
+    public void postDelayedTask(Runnable task, long delay) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Returns the number of tasks posted so far, including the ones that ran. */
+    public int getPostCount() {
+        synchronized (mTasks) {
+            return mPostCount;
+        }
+    }
+
+    /** Returns the tasks that were posted and haven't run yet, in posting order. */
+    public List<Runnable> getPendingTasks() {
+        synchronized (mTasks) {
+            return new ArrayList<>(mTasks);
+        }
+    }
+
+    public boolean hasPendingTasks() {
+        synchronized (mTasks) {
+            return !mTasks.isEmpty();
+        }
+    }
+
+    /** Runs the pending tasks in posting order, including the tasks they post. */
+    public void runAll() {
+        while (true) {
+            Runnable task;
+            synchronized (mTasks) {
+                task = mTasks.poll();
+            }
+            if (task == null) return;
+            task.run();
+        }
+    }
+
+    /**
+     * Waits until {@code postCount} tasks have been posted in total.
+     *
+     * @return false if the timeout expired first.
+     */
+    public boolean waitForPostCount(int postCount, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadlineNs = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (mTasks) {
+            while (mPostCount < postCount) {
+                long remainingNs = deadlineNs - System.nanoTime();
+                if (remainingNs <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(mTasks, remainingNs);
+            }
+            return true;
+        }
+    }
+}